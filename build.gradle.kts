@@ -23,6 +23,8 @@ intellij {
 dependencies {
     implementation("org.projectlombok:lombok:1.18.30")
     annotationProcessor("org.projectlombok:lombok:1.18.30")
+
+    testImplementation("junit:junit:4.13.2")
 }
 
 tasks {
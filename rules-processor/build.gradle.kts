@@ -0,0 +1,35 @@
+plugins {
+    id("java-library")
+    id("maven-publish")
+}
+
+group = "me.rubix327"
+version = "1.0.0"
+
+repositories {
+    mavenCentral()
+}
+
+java {
+    // Процессор подключается в metaloader-проекты, которые могут собираться более старой Java
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    testImplementation("junit:junit:4.13.2")
+    testImplementation("com.google.testing.compile:compile-testing:0.21.0")
+}
+
+tasks.withType<JavaCompile> {
+    options.encoding = "UTF-8"
+}
+
+publishing {
+    publications {
+        create<MavenPublication>("maven") {
+            artifactId = "liquibasehelper-rules-processor"
+            from(components["java"])
+        }
+    }
+}
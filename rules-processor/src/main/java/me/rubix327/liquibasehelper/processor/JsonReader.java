@@ -0,0 +1,175 @@
+package me.rubix327.liquibasehelper.processor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Минимальное чтение JSON без сторонних зависимостей (для объединения с манифестом прошлой компиляции).<br>
+ * Объекты читаются в {@link LinkedHashMap}, массивы - в {@link List}, целые числа - в {@link Long}, дробные - в {@link Double}.
+ */
+class JsonReader {
+
+    private final String s;
+    private int pos;
+
+    private JsonReader(String s) {
+        this.s = s;
+    }
+
+    /**
+     * @throws IllegalArgumentException Если строка не является корректным JSON
+     */
+    static Object parse(String s){
+        JsonReader reader = new JsonReader(s);
+        Object value = reader.readValue();
+        reader.skipWhitespace();
+        if (reader.pos != s.length()) throw reader.error("Unexpected trailing characters");
+        return value;
+    }
+
+    private Object readValue(){
+        skipWhitespace();
+        if (pos >= s.length()) throw error("Unexpected end of JSON");
+
+        char c = s.charAt(pos);
+        switch (c) {
+            case '{': return readObject();
+            case '[': return readArray();
+            case '"': return readString();
+            case 't': return readLiteral("true", Boolean.TRUE);
+            case 'f': return readLiteral("false", Boolean.FALSE);
+            case 'n': return readLiteral("null", null);
+            default:
+                if (c == '-' || c >= '0' && c <= '9') return readNumber();
+                throw error("Unexpected character '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> readObject(){
+        Map<String, Object> result = new LinkedHashMap<>();
+        pos++;
+        skipWhitespace();
+        if (peek() == '}'){
+            pos++;
+            return result;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') throw error("Expected object key");
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            result.put(name, readValue());
+            skipWhitespace();
+            if (peek() == ','){
+                pos++;
+                continue;
+            }
+            expect('}');
+            return result;
+        }
+    }
+
+    private List<Object> readArray(){
+        List<Object> result = new ArrayList<>();
+        pos++;
+        skipWhitespace();
+        if (peek() == ']'){
+            pos++;
+            return result;
+        }
+        while (true) {
+            result.add(readValue());
+            skipWhitespace();
+            if (peek() == ','){
+                pos++;
+                continue;
+            }
+            expect(']');
+            return result;
+        }
+    }
+
+    private String readString(){
+        StringBuilder sb = new StringBuilder();
+        pos++;
+        while (pos < s.length()) {
+            char c = s.charAt(pos++);
+            if (c == '"') return sb.toString();
+            if (c != '\\'){
+                sb.append(c);
+                continue;
+            }
+
+            if (pos >= s.length()) break;
+            char escaped = s.charAt(pos++);
+            switch (escaped) {
+                case '"': sb.append('"'); break;
+                case '\\': sb.append('\\'); break;
+                case '/': sb.append('/'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    if (pos + 4 > s.length()) throw error("Broken unicode escape");
+                    try {
+                        sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Broken unicode escape");
+                    }
+                    pos += 4;
+                    break;
+                default: throw error("Unknown escape '\\" + escaped + "'");
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private Object readNumber(){
+        int start = pos;
+        boolean fraction = false;
+        while (pos < s.length()) {
+            char c = s.charAt(pos);
+            if (c == '.' || c == 'e' || c == 'E'){
+                fraction = true;
+            } else if (!(c == '-' || c == '+' || c >= '0' && c <= '9')){
+                break;
+            }
+            pos++;
+        }
+        String number = s.substring(start, pos);
+        try {
+            return fraction ? (Object) Double.parseDouble(number) : (Object) Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            throw error("Broken number '" + number + "'");
+        }
+    }
+
+    private Object readLiteral(String literal, Object value){
+        if (!s.startsWith(literal, pos)) throw error("Unexpected literal");
+        pos += literal.length();
+        return value;
+    }
+
+    private void expect(char c){
+        if (peek() != c) throw error("Expected '" + c + "'");
+        pos++;
+    }
+
+    private char peek(){
+        return pos < s.length() ? s.charAt(pos) : '\0';
+    }
+
+    private void skipWhitespace(){
+        while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+    }
+
+    private IllegalArgumentException error(String message){
+        return new IllegalArgumentException(message + " at position " + pos);
+    }
+
+}
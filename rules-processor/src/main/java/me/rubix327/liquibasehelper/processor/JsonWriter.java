@@ -0,0 +1,139 @@
+package me.rubix327.liquibasehelper.processor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Минимальная запись JSON без сторонних зависимостей (процессор не должен тянуть библиотеки в сборку metaloader-проектов).
+ */
+class JsonWriter {
+
+    private final StringBuilder sb = new StringBuilder();
+    /**
+     * Нужна ли запятая перед следующим элементом текущего объекта или массива
+     */
+    private boolean needsComma;
+
+    JsonWriter beginObject(){
+        separate();
+        sb.append('{');
+        needsComma = false;
+        return this;
+    }
+
+    JsonWriter endObject(){
+        sb.append('}');
+        needsComma = true;
+        return this;
+    }
+
+    JsonWriter beginArray(){
+        separate();
+        sb.append('[');
+        needsComma = false;
+        return this;
+    }
+
+    JsonWriter endArray(){
+        sb.append(']');
+        needsComma = true;
+        return this;
+    }
+
+    JsonWriter name(String name){
+        separate();
+        quote(name);
+        sb.append(':');
+        needsComma = false;
+        return this;
+    }
+
+    JsonWriter value(String value){
+        separate();
+        if (value == null){
+            sb.append("null");
+        } else {
+            quote(value);
+        }
+        needsComma = true;
+        return this;
+    }
+
+    JsonWriter value(long value){
+        separate();
+        sb.append(value);
+        needsComma = true;
+        return this;
+    }
+
+    JsonWriter value(boolean value){
+        separate();
+        sb.append(value);
+        needsComma = true;
+        return this;
+    }
+
+    /**
+     * Записать значение, прочитанное через {@link JsonReader} (объект, массив, строка, число, логическое значение или null).
+     */
+    JsonWriter value(Object value){
+        if (value == null || value instanceof String){
+            return value((String) value);
+        }
+        if (value instanceof Boolean){
+            return value((boolean) (Boolean) value);
+        }
+        if (value instanceof Number){
+            separate();
+            sb.append(value);
+            needsComma = true;
+            return this;
+        }
+        if (value instanceof Map){
+            beginObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                name(String.valueOf(entry.getKey())).value(entry.getValue());
+            }
+            return endObject();
+        }
+        if (value instanceof List){
+            beginArray();
+            for (Object item : (List<?>) value) {
+                value(item);
+            }
+            return endArray();
+        }
+        throw new IllegalArgumentException("Unsupported JSON value: " + value.getClass().getName());
+    }
+
+    private void separate(){
+        if (needsComma) sb.append(',');
+    }
+
+    private void quote(String s){
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20){
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return sb.toString();
+    }
+
+}
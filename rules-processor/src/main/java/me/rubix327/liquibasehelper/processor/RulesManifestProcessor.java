@@ -0,0 +1,549 @@
+package me.rubix327.liquibasehelper.processor;
+
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.Trees;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Процессор аннотаций для metaloader-проектов.<br>
+ * Во время компиляции собирает правила классов @CbsDatamodelClass (так же, как их собирает плагин: вместе с родителями,
+ * значениями перечислений и комментариями) и записывает их в манифест {@value #MANIFEST_PATH}.
+ * Если манифест есть в .jar зависимости, то плагин берет правила из него и не разбирает классы этого .jar.<br><br>
+ * При инкрементальной компиляции процессор видит только пересобираемые классы, поэтому манифест прошлой компиляции
+ * из выходной папки не перезаписывается, а объединяется с новыми правилами: записи пересобранных и удаленных классов заменяются.
+ * Если запись непересобранного класса зависит от пересобранного родителя или перечисления (или прошлый манифест не удалось прочитать),
+ * то манифест помечается неполным ({@code "complete": false}), и плагин собирает правила такого .jar сам.<br><br>
+ * Аннотации ищутся по вхождению короткого названия (как и в плагине), поэтому процессору не нужна зависимость на них.
+ */
+@SupportedAnnotationTypes("*")
+public class RulesManifestProcessor extends AbstractProcessor {
+
+    /**
+     * Путь к манифесту внутри .jar (должен совпадать с путем в RulesManifestReader плагина)
+     */
+    static final String MANIFEST_PATH = "META-INF/liquibasehelper/rules.json";
+    static final int FORMAT_VERSION = 2;
+
+    private static final String CLASS_ANNOTATION = "CbsDatamodelClass";
+    private static final String FIELD_ANNOTATION = "CbsDatamodelField";
+    private static final String VALUE_ANNOTATION = "CbsDatamodelValue";
+    private static final String IGNORE_ANNOTATION = "CbsDatamodelIgnore";
+
+    private static final Set<String> ALLOWED_TYPES = Set.of(
+            String.class.getName(), Long.class.getName(), Double.class.getName(), Boolean.class.getName(), Date.class.getName());
+
+    /**
+     * Классы @CbsDatamodelClass, найденные во всех раундах: qualifiedName -> класс
+     */
+    private final Map<String, TypeElement> datamodelClasses = new TreeMap<>();
+    /**
+     * Все классы текущей компиляции (в том числе без @CbsDatamodelClass)
+     */
+    private final Set<String> compiledClasses = new HashSet<>();
+    /**
+     * Правила из полей классов. Общий mapped-родитель разбирается один раз.
+     */
+    private final Map<String, FieldRules> fieldRulesCache = new HashMap<>();
+    private Trees trees;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        try {
+            trees = Trees.instance(processingEnv);
+        } catch (IllegalArgumentException e) {
+            // Не javac - аргументы конструкторов перечислений недоступны
+            trees = null;
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getRootElements()) {
+            if (!(element instanceof TypeElement)) continue;
+            TypeElement typeElement = (TypeElement) element;
+            compiledClasses.add(typeElement.getQualifiedName().toString());
+            if (findAnnotation(element, CLASS_ANNOTATION) != null){
+                datamodelClasses.put(typeElement.getQualifiedName().toString(), typeElement);
+            }
+        }
+
+        if (roundEnv.processingOver()){
+            writeManifest();
+        }
+        // Аннотации не "забираются", чтобы не мешать другим процессорам
+        return false;
+    }
+
+    private void writeManifest(){
+        PreviousManifest previous = readPreviousManifest();
+        if (datamodelClasses.isEmpty() && previous == null) return;
+
+        // Записи прошлого манифеста, которые остаются актуальными
+        boolean complete = previous == null || previous.classes != null;
+        List<Map<String, Object>> keptClasses = new ArrayList<>();
+        if (previous != null && previous.classes != null){
+            for (Map<String, Object> previousClass : previous.classes) {
+                Object className = previousClass.get("className");
+                // Пересобранный класс заменяется новой записью (или удаляется, если он больше не datamodel)
+                if (!(className instanceof String) || compiledClasses.contains(className)) continue;
+                // Удаленный класс
+                if (processingEnv.getElementUtils().getTypeElement((String) className) == null) continue;
+
+                // Родитель или перечисление пересобраны без этого класса - его правила могли устареть
+                if (dependsOnCompiledClasses(previousClass, "superClasses") || dependsOnCompiledClasses(previousClass, "usedEnums")){
+                    complete = false;
+                }
+                keptClasses.add(previousClass);
+            }
+        }
+
+        JsonWriter json = new JsonWriter().beginObject()
+                .name("version").value(FORMAT_VERSION)
+                .name("complete").value(complete)
+                .name("classes").beginArray();
+
+        int classesCount = 0;
+        for (TypeElement typeElement : datamodelClasses.values()) {
+            if (!isDatamodelClass(typeElement)) continue;
+            AnnotationMirror classAnnotation = findAnnotation(typeElement, CLASS_ANNOTATION);
+            // mapped-класс только встраивает свои правила в наследников
+            if (Boolean.TRUE.equals(getValue(classAnnotation, "mapped"))) continue;
+
+            writeClass(json, typeElement, classAnnotation);
+            classesCount++;
+        }
+        for (Map<String, Object> keptClass : keptClasses) {
+            json.value(keptClass);
+        }
+        json.endArray().endObject();
+
+        try {
+            FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", MANIFEST_PATH);
+            try (OutputStream outputStream = resource.openOutputStream()) {
+                outputStream.write(json.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "LiquibaseHelper: rules of " + classesCount + " classes (" + keptClasses.size() + " kept from the previous compilation) were written to "
+                            + MANIFEST_PATH + (complete ? "" : " (incomplete: the plugin will collect rules of this jar itself)"));
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "LiquibaseHelper: could not write " + MANIFEST_PATH + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Прочитать манифест, оставшийся в выходной папке от прошлой компиляции.
+     * @return Прошлый манифест или null, если его нет
+     */
+    private PreviousManifest readPreviousManifest(){
+        String content;
+        try {
+            FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", MANIFEST_PATH);
+            content = resource.getCharContent(true).toString();
+        } catch (IOException | IllegalArgumentException | UnsupportedOperationException e) {
+            // Манифеста нет (FileNotFoundException или NoSuchFileException) или выходная папка недоступна для чтения
+            return null;
+        }
+
+        try {
+            Object manifest = JsonReader.parse(content);
+            if (manifest instanceof Map && Long.valueOf(FORMAT_VERSION).equals(((Map<?, ?>) manifest).get("version"))){
+                Object classes = ((Map<?, ?>) manifest).get("classes");
+                if (classes instanceof List){
+                    List<Map<String, Object>> result = new ArrayList<>();
+                    for (Object previousClass : (List<?>) classes) {
+                        if (!(previousClass instanceof Map)) return new PreviousManifest(null);
+                        @SuppressWarnings("unchecked")
+                        Map<String, Object> classObject = (Map<String, Object>) previousClass;
+                        result.add(classObject);
+                    }
+                    return new PreviousManifest(result);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "LiquibaseHelper: could not read previous " + MANIFEST_PATH + ": " + e.getMessage());
+        }
+        // Манифест есть, но неизвестно, какие классы в нем были
+        return new PreviousManifest(null);
+    }
+
+    private boolean dependsOnCompiledClasses(Map<String, Object> previousClass, String key){
+        Object classNames = previousClass.get(key);
+        if (!(classNames instanceof List)) return false;
+        for (Object className : (List<?>) classNames) {
+            if (compiledClasses.contains(className)) return true;
+        }
+        return false;
+    }
+
+    private void writeClass(JsonWriter json, TypeElement typeElement, AnnotationMirror classAnnotation){
+        FieldRules ownRules = getFieldRules(typeElement);
+        List<Rule> mergedRules = ownRules.rules;
+        Set<String> usedEnums = new TreeSet<>(ownRules.usedEnums);
+        List<String> superClasses = new ArrayList<>();
+        Set<TypeElement> visited = new HashSet<>(Set.of(typeElement));
+
+        for (TypeElement superClass = getSuperClass(typeElement); superClass != null && visited.add(superClass); superClass = getSuperClass(superClass)) {
+            if (!isDatamodelClass(superClass)) break;
+
+            FieldRules rulesFromSuper = getFieldRules(superClass);
+            mergedRules = mergeRules(mergedRules, rulesFromSuper.rules);
+            usedEnums.addAll(rulesFromSuper.usedEnums);
+            superClasses.add(superClass.getQualifiedName().toString());
+        }
+
+        json.beginObject()
+                .name("className").value(typeElement.getQualifiedName().toString())
+                .name("tag").value(getDatamodelTag(typeElement, classAnnotation))
+                .name("tooltip").value(getString(classAnnotation, "comment"))
+                .name("description").value(getString(classAnnotation, "description"));
+
+        json.name("superClasses").beginArray();
+        superClasses.forEach(json::value);
+        json.endArray();
+
+        json.name("usedEnums").beginArray();
+        usedEnums.forEach(json::value);
+        json.endArray();
+
+        json.name("rules").beginArray();
+        for (Rule rule : mergedRules) {
+            json.beginObject()
+                    .name("tagName").value(rule.tagName)
+                    .name("type").value(rule.type)
+                    .name("maxLength").value(rule.maxLength)
+                    .name("required").value(rule.required)
+                    .name("tooltip").value(rule.tooltip)
+                    .name("description").value(rule.description)
+                    .name("metaClassPath").value(rule.metaClassPath)
+                    .name("listLinkToBaseClass").value(rule.listLinkToBaseClass)
+                    .name("availableValues").beginArray();
+            for (String[] availableValue : rule.availableValues) {
+                json.beginObject().name("value").value(availableValue[0]).name("comment").value(availableValue[1]).endObject();
+            }
+            json.endArray().endObject();
+        }
+        json.endArray();
+
+        json.endObject();
+    }
+
+    /**
+     * Объединить правила класса с правилами родителя (как в плагине):
+     * правила родителя идут спереди в обратном порядке, теги, которые уже есть у класса, от родителя не добавляются.
+     */
+    private static List<Rule> mergeRules(List<Rule> rulesFromBase, List<Rule> rulesFromSuper){
+        Set<String> baseTagNames = new HashSet<>();
+        for (Rule rule : rulesFromBase) {
+            baseTagNames.add(rule.tagName);
+        }
+
+        List<Rule> mergedRules = new ArrayList<>(rulesFromBase.size() + rulesFromSuper.size());
+        for (int i = rulesFromSuper.size() - 1; i >= 0; i--) {
+            Rule ruleFromSuper = rulesFromSuper.get(i);
+            if (!baseTagNames.contains(ruleFromSuper.tagName)){
+                mergedRules.add(ruleFromSuper);
+            }
+        }
+        mergedRules.addAll(rulesFromBase);
+        return mergedRules;
+    }
+
+    private boolean isDatamodelClass(TypeElement typeElement){
+        String qualifiedName = typeElement.getQualifiedName().toString();
+        if (Object.class.getName().equals(qualifiedName) || !qualifiedName.contains(".metaloader.")) return false;
+        if (typeElement.getNestingKind() != NestingKind.TOP_LEVEL) return false;
+        if (typeElement.getKind() != ElementKind.CLASS) return false;
+        return findAnnotation(typeElement, CLASS_ANNOTATION) != null;
+    }
+
+    private static String getDatamodelTag(TypeElement typeElement, AnnotationMirror classAnnotation){
+        String fromField = getString(classAnnotation, "tag");
+        if (fromField != null) return fromField;
+
+        String name = typeElement.getSimpleName().toString();
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static TypeElement getSuperClass(TypeElement typeElement){
+        TypeMirror superClass = typeElement.getSuperclass();
+        if (superClass.getKind() != TypeKind.DECLARED) return null;
+        return (TypeElement) ((DeclaredType) superClass).asElement();
+    }
+
+    private FieldRules getFieldRules(TypeElement typeElement){
+        String qualifiedName = typeElement.getQualifiedName().toString();
+        FieldRules cached = fieldRulesCache.get(qualifiedName);
+        if (cached != null) return cached;
+
+        FieldRules rules = getRulesFromFields(typeElement);
+        fieldRulesCache.put(qualifiedName, rules);
+        return rules;
+    }
+
+    private FieldRules getRulesFromFields(TypeElement typeElement){
+        FieldRules result = new FieldRules();
+
+        for (Element element : typeElement.getEnclosedElements()) {
+            if (element.getKind() != ElementKind.FIELD) continue;
+            AnnotationMirror fieldAnnotation = findAnnotation(element, FIELD_ANNOTATION);
+            if (fieldAnnotation == null) continue;
+
+            Rule rule = new Rule();
+            rule.tagName = element.getSimpleName().toString();
+            rule.metaClassPath = typeElement.getQualifiedName().toString();
+            rule.tooltip = getString(fieldAnnotation, "comment");
+            rule.description = getString(fieldAnnotation, "description");
+            rule.required = Boolean.TRUE.equals(getValue(fieldAnnotation, "required"));
+            Object maxLength = getValue(fieldAnnotation, "maxLength");
+            rule.maxLength = maxLength instanceof Integer ? (Integer) maxLength : 0;
+            rule.listLinkToBaseClass = getFirstTypeArgument(element.asType());
+
+            Object type = getValue(fieldAnnotation, "type");
+            if (type instanceof TypeMirror && ALLOWED_TYPES.contains(type.toString())){
+                rule.type = type.toString();
+            }
+
+            // Если тип Boolean, то заполнять возможные значения не требуется
+            if (Boolean.class.getName().equals(rule.type)){
+                result.rules.add(rule);
+                continue;
+            }
+
+            // Возможные значения из availableValues (одиночная строка тоже приходит массивом)
+            Object availableValues = getValue(fieldAnnotation, "availableValues");
+            if (availableValues instanceof List){
+                for (Object item : (List<?>) availableValues) {
+                    Object value = ((AnnotationValue) item).getValue();
+                    if (value instanceof String){
+                        rule.availableValues.addAll(parseAvailableValues((String) value));
+                    }
+                }
+            }
+
+            // Возможные значения из availableValuesEnum
+            Object availableValuesEnum = getValue(fieldAnnotation, "availableValuesEnum");
+            if (availableValuesEnum instanceof DeclaredType){
+                List<String[]> fromEnum = getAvailableValuesFromEnum((TypeElement) ((DeclaredType) availableValuesEnum).asElement(), result.usedEnums);
+                if (fromEnum != null && !fromEnum.isEmpty()){
+                    rule.availableValues = fromEnum;
+                }
+            }
+
+            // Возможные значения из availableValuesEnumPath
+            String availableValuesEnumPath = getString(fieldAnnotation, "availableValuesEnumPath");
+            if (availableValuesEnumPath != null){
+                TypeElement enumElement = processingEnv.getElementUtils().getTypeElement(availableValuesEnumPath);
+                List<String[]> fromEnumPath = getAvailableValuesFromEnum(enumElement, result.usedEnums);
+                if (fromEnumPath != null){
+                    rule.availableValues = fromEnumPath;
+                }
+            }
+
+            result.rules.add(rule);
+        }
+        return result;
+    }
+
+    private List<String[]> getAvailableValuesFromEnum(TypeElement enumElement, Set<String> usedEnums){
+        if (enumElement == null || enumElement.getKind() != ElementKind.ENUM) return null;
+        usedEnums.add(enumElement.getQualifiedName().toString());
+
+        Integer valueIndex = getValueIndexInConstructor(enumElement);
+        List<String[]> result = new ArrayList<>();
+        for (Element element : enumElement.getEnclosedElements()) {
+            if (element.getKind() != ElementKind.ENUM_CONSTANT) continue;
+            if (findAnnotation(element, IGNORE_ANNOTATION) != null) continue;
+
+            result.add(new String[]{getEnumValue(element, valueIndex), getFirstMeaningfulLine(processingEnv.getElementUtils().getDocComment(element))});
+        }
+        return result;
+    }
+
+    /**
+     * Значение константы перечисления: из @CbsDatamodelValue, затем аргумент конструктора value, затем название константы.
+     */
+    private String getEnumValue(Element constant, Integer valueIndex){
+        AnnotationMirror valueAnnotation = findAnnotation(constant, VALUE_ANNOTATION);
+        if (valueAnnotation != null){
+            String value = getString(valueAnnotation, "value");
+            if (value != null) return value;
+        }
+
+        // Аргументы конструктора есть только в исходниках текущей компиляции
+        if (valueIndex != null && trees != null){
+            Tree tree = trees.getTree(constant);
+            if (tree instanceof VariableTree && ((VariableTree) tree).getInitializer() instanceof NewClassTree){
+                List<? extends ExpressionTree> arguments = ((NewClassTree) ((VariableTree) tree).getInitializer()).getArguments();
+                if (arguments.size() > valueIndex){
+                    return arguments.get(valueIndex).toString().replace("\"", "");
+                }
+            }
+        }
+
+        return constant.getSimpleName().toString();
+    }
+
+    /**
+     * Индекс параметра value в конструкторе перечисления (если в перечислении есть поле value).
+     */
+    private static Integer getValueIndexInConstructor(TypeElement enumElement){
+        boolean hasValueField = false;
+        for (Element element : enumElement.getEnclosedElements()) {
+            if (element.getKind() == ElementKind.FIELD && element.getSimpleName().contentEquals("value")){
+                hasValueField = true;
+                break;
+            }
+        }
+        if (!hasValueField) return null;
+
+        for (Element element : enumElement.getEnclosedElements()) {
+            if (element.getKind() != ElementKind.CONSTRUCTOR) continue;
+            List<? extends VariableElement> parameters = ((ExecutableElement) element).getParameters();
+            for (int i = 0; i < parameters.size(); i++) {
+                if (parameters.get(i).getSimpleName().contentEquals("value")) return i;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Класс элементов списка (List&lt;pkg.Foo&gt; -> pkg.Foo). Как и в плагине, учитывается только java.util.List.
+     */
+    private static String getFirstTypeArgument(TypeMirror type){
+        if (type.getKind() != TypeKind.DECLARED) return null;
+        if (!((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals(List.class.getName())) return null;
+        List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+        if (arguments.isEmpty() || arguments.get(0).getKind() != TypeKind.DECLARED) return null;
+        return ((TypeElement) ((DeclaredType) arguments.get(0)).asElement()).getQualifiedName().toString();
+    }
+
+    private static String getFirstMeaningfulLine(String docComment){
+        if (docComment == null) return null;
+        for (String line : docComment.split("\n")) {
+            String cleanedLine = line.replaceAll("\\*", "").replaceAll("/", "").trim();
+            if (!cleanedLine.isEmpty()) return cleanedLine;
+        }
+        return null;
+    }
+
+    // Разбор строки возможных значений ("0:Нет;1:Да"), как в AvailableValue плагина
+
+    private static List<String[]> parseAvailableValues(String s){
+        List<String[]> result = new ArrayList<>();
+        if (!s.contains(";")){
+            String[] availableValue = parseAvailableValue(s);
+            if (availableValue != null) result.add(availableValue);
+            return result;
+        }
+
+        if (s.trim().length() == 1) return result;
+        if (s.trim().startsWith(";")) return result;
+
+        for (String valueAndComment : s.split(";")) {
+            String[] availableValue = parseAvailableValue(valueAndComment);
+            if (availableValue != null) result.add(availableValue);
+        }
+        return result;
+    }
+
+    private static String[] parseAvailableValue(String s){
+        if (s.isEmpty()) return null;
+        if (!s.contains(":")) return new String[]{s, null};
+        if (s.trim().length() == 1) return null;
+        if (s.trim().startsWith(":")) return null;
+
+        String[] valueAndComment = s.split(":");
+        if (valueAndComment.length == 1) return new String[]{s.replace(":", ""), null};
+        return new String[]{valueAndComment[0], valueAndComment[1]};
+    }
+
+    // Работа с аннотациями
+
+    private static AnnotationMirror findAnnotation(Element element, String shortName){
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            Element annotationElement = annotation.getAnnotationType().asElement();
+            if (annotationElement instanceof TypeElement
+                    && ((TypeElement) annotationElement).getQualifiedName().toString().contains(shortName)){
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Значение, явно указанное в аннотации (значения по умолчанию не учитываются, как и в плагине).
+     */
+    private static Object getValue(AnnotationMirror annotation, String name){
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) return entry.getValue().getValue();
+        }
+        return null;
+    }
+
+    /**
+     * Строковое значение аннотации (пустые строки не учитываются).
+     */
+    private static String getString(AnnotationMirror annotation, String name){
+        Object value = getValue(annotation, name);
+        return value instanceof String && !((String) value).isBlank() ? (String) value : null;
+    }
+
+    private static class Rule {
+        private String tagName;
+        private String type;
+        private int maxLength;
+        private boolean required;
+        private String tooltip;
+        private String description;
+        private String metaClassPath;
+        private String listLinkToBaseClass;
+        /**
+         * Пары {значение, комментарий}
+         */
+        private List<String[]> availableValues = new ArrayList<>();
+    }
+
+    private static class PreviousManifest {
+        /**
+         * Записи классов (null - манифест не удалось прочитать или у него другая версия формата)
+         */
+        private final List<Map<String, Object>> classes;
+
+        private PreviousManifest(List<Map<String, Object>> classes) {
+            this.classes = classes;
+        }
+    }
+
+    private static class FieldRules {
+        private final List<Rule> rules = new ArrayList<>();
+        private final Set<String> usedEnums = new TreeSet<>();
+    }
+
+}
@@ -0,0 +1,213 @@
+package me.rubix327.liquibasehelper.processor;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static org.junit.Assert.*;
+
+public class RulesManifestProcessorTest {
+
+    private static final JavaFileObject CLASS_ANNOTATION = JavaFileObjects.forSourceString("test.annotations.CbsDatamodelClass",
+            "package test.annotations;\n" +
+            "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+            "public @interface CbsDatamodelClass { String tag() default \"\"; boolean mapped() default false; }");
+    private static final JavaFileObject FIELD_ANNOTATION = JavaFileObjects.forSourceString("test.annotations.CbsDatamodelField",
+            "package test.annotations;\n" +
+            "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n" +
+            "public @interface CbsDatamodelField { int maxLength() default 0; boolean required() default false; }");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path sourceDir;
+    private Path outputDir;
+
+    @Before
+    public void setUp() throws IOException {
+        sourceDir = temporaryFolder.newFolder("src").toPath();
+        outputDir = temporaryFolder.newFolder("classes").toPath();
+    }
+
+    @Test
+    public void writesCompleteManifestOnFullCompilation() throws IOException {
+        Compilation compilation = javac()
+                .withProcessors(new RulesManifestProcessor())
+                .compile(CLASS_ANNOTATION, FIELD_ANNOTATION,
+                        JavaFileObjects.forSourceString("com.example.metaloader.Account", accountSource(30)),
+                        JavaFileObjects.forSourceString("com.example.metaloader.NotDatamodel",
+                                "package com.example.metaloader;\npublic class NotDatamodel {}"));
+
+        assertThat(compilation).succeeded();
+        JavaFileObject manifestFile = compilation.generatedFile(StandardLocation.CLASS_OUTPUT, "", RulesManifestProcessor.MANIFEST_PATH)
+                .orElseThrow(AssertionError::new);
+        Map<?, ?> manifest = (Map<?, ?>) JsonReader.parse(manifestFile.getCharContent(true).toString());
+
+        assertEquals((long) RulesManifestProcessor.FORMAT_VERSION, manifest.get("version"));
+        assertEquals(Boolean.TRUE, manifest.get("complete"));
+        assertEquals(List.of("com.example.metaloader.Account"), classNames(manifest));
+
+        Map<?, ?> rule = (Map<?, ?>) ((List<?>) ((Map<?, ?>) ((List<?>) manifest.get("classes")).get(0)).get("rules")).get(0);
+        assertEquals("number", rule.get("tagName"));
+        assertEquals(30L, rule.get("maxLength"));
+    }
+
+    @Test
+    public void doesNotWriteManifestWithoutDatamodelClasses() throws IOException {
+        writeSource("com.example.Plain", "package com.example;\npublic class Plain {}");
+        compile(allSources());
+
+        assertFalse(Files.exists(outputDir.resolve(RulesManifestProcessor.MANIFEST_PATH)));
+    }
+
+    @Test
+    public void keepsClassesOfPreviousCompilationOnIncrementalCompilation() throws IOException {
+        writeSource("com.example.metaloader.Account", accountSource(30));
+        writeSource("com.example.metaloader.Client", clientSource("Object"));
+        compile(allSources());
+
+        // Пересобирается только Account: Client должен остаться в манифесте
+        writeSource("com.example.metaloader.Account", accountSource(40));
+        compile(List.of(sourceFile("com.example.metaloader.Account")));
+
+        Map<?, ?> manifest = readManifest();
+        assertEquals(Boolean.TRUE, manifest.get("complete"));
+        assertEquals(List.of("com.example.metaloader.Account", "com.example.metaloader.Client"), classNames(manifest));
+    }
+
+    @Test
+    public void removesClassesThatAreNoLongerDatamodelOrDeleted() throws IOException {
+        writeSource("com.example.metaloader.Account", accountSource(30));
+        writeSource("com.example.metaloader.Client", clientSource("Object"));
+        compile(allSources());
+
+        writeSource("com.example.metaloader.Account", "package com.example.metaloader;\npublic class Account {}");
+        compile(List.of(sourceFile("com.example.metaloader.Account")));
+        assertEquals(List.of("com.example.metaloader.Client"), classNames(readManifest()));
+
+        // Удаленный класс пропадает из манифеста, даже если пересобирается другой
+        Files.delete(outputDir.resolve("com/example/metaloader/Client.class"));
+        writeSource("com.example.metaloader.Account", accountSource(30));
+        compile(List.of(sourceFile("com.example.metaloader.Account")));
+        assertEquals(List.of("com.example.metaloader.Account"), classNames(readManifest()));
+    }
+
+    @Test
+    public void marksManifestIncompleteWhenParentIsRecompiledAlone() throws IOException {
+        writeSource("com.example.metaloader.BaseEntity",
+                "package com.example.metaloader;\n" +
+                "import test.annotations.*;\n" +
+                "@CbsDatamodelClass(mapped = true)\n" +
+                "public class BaseEntity { @CbsDatamodelField(maxLength = 10) private String code; }");
+        writeSource("com.example.metaloader.Client", clientSource("BaseEntity"));
+        compile(allSources());
+        assertEquals(Boolean.TRUE, readManifest().get("complete"));
+
+        // Правила Client включают правила родителя, который пересобран без него
+        compile(List.of(sourceFile("com.example.metaloader.BaseEntity")));
+        Map<?, ?> manifest = readManifest();
+        assertEquals(Boolean.FALSE, manifest.get("complete"));
+        assertEquals(List.of("com.example.metaloader.Client"), classNames(manifest));
+    }
+
+    @Test
+    public void marksManifestIncompleteWhenPreviousManifestIsUnreadable() throws IOException {
+        Path manifestPath = outputDir.resolve(RulesManifestProcessor.MANIFEST_PATH);
+        Files.createDirectories(manifestPath.getParent());
+        Files.writeString(manifestPath, "{\"version\":1,\"classes\":[]}");
+
+        writeSource("com.example.metaloader.Account", accountSource(30));
+        compile(allSources());
+
+        Map<?, ?> manifest = readManifest();
+        assertEquals(Boolean.FALSE, manifest.get("complete"));
+        assertEquals(List.of("com.example.metaloader.Account"), classNames(manifest));
+    }
+
+    private static String accountSource(int maxLength){
+        return "package com.example.metaloader;\n" +
+                "import test.annotations.*;\n" +
+                "@CbsDatamodelClass\n" +
+                "public class Account { @CbsDatamodelField(maxLength = " + maxLength + ", required = true) private String number; }";
+    }
+
+    private static String clientSource(String superClass){
+        return "package com.example.metaloader;\n" +
+                "import test.annotations.*;\n" +
+                "@CbsDatamodelClass\n" +
+                "public class Client extends " + superClass + " {\n" +
+                "    @CbsDatamodelField(maxLength = 100) private String name;\n" +
+                "}";
+    }
+
+    private void writeSource(String qualifiedName, String source) throws IOException {
+        Path path = sourceFile(qualifiedName).toPath();
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, source);
+    }
+
+    private File sourceFile(String qualifiedName){
+        return sourceDir.resolve(qualifiedName.replace('.', '/') + ".java").toFile();
+    }
+
+    private List<File> allSources() throws IOException {
+        List<File> result = new ArrayList<>();
+        result.add(writeAnnotation(CLASS_ANNOTATION, "test.annotations.CbsDatamodelClass"));
+        result.add(writeAnnotation(FIELD_ANNOTATION, "test.annotations.CbsDatamodelField"));
+        try (var paths = Files.walk(sourceDir.resolve("com"))) {
+            paths.filter(p -> p.toString().endsWith(".java")).sorted().forEach(p -> result.add(p.toFile()));
+        }
+        return result;
+    }
+
+    private File writeAnnotation(JavaFileObject annotation, String qualifiedName) throws IOException {
+        writeSource(qualifiedName, annotation.getCharContent(true).toString());
+        return sourceFile(qualifiedName);
+    }
+
+    /**
+     * Скомпилировать указанные исходники в общую выходную папку (как при инкрементальной сборке:
+     * ранее собранные классы берутся из нее же).
+     */
+    private void compile(List<File> sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, List.of(outputDir.toFile()));
+            fileManager.setLocation(StandardLocation.CLASS_PATH, List.of(outputDir.toFile()));
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, List.of("-implicit:none"),
+                    null, fileManager.getJavaFileObjectsFromFiles(sources));
+            task.setProcessors(List.of(new RulesManifestProcessor()));
+            assertTrue(String.valueOf(diagnostics.getDiagnostics()), task.call());
+        }
+    }
+
+    private Map<?, ?> readManifest() throws IOException {
+        return (Map<?, ?>) JsonReader.parse(Files.readString(outputDir.resolve(RulesManifestProcessor.MANIFEST_PATH)));
+    }
+
+    private static List<String> classNames(Map<?, ?> manifest){
+        List<String> result = new ArrayList<>();
+        for (Object manifestClass : (List<?>) manifest.get("classes")) {
+            result.add((String) ((Map<?, ?>) manifestClass).get("className"));
+        }
+        result.sort(null);
+        return result;
+    }
+
+}
@@ -5,4 +5,7 @@ pluginManagement {
     }
 }
 
-rootProject.name = "LiquibaseHelper"
\ No newline at end of file
+rootProject.name = "LiquibaseHelper"
+
+// Процессор аннотаций для сборки манифеста правил в metaloader-проектах
+include("rules-processor")
@@ -1,13 +1,21 @@
 package me.rubix327.liquibasehelper;
 
 import com.intellij.lang.jvm.annotation.JvmAnnotationAttribute;
+import com.intellij.openapi.project.Project;
 import com.intellij.psi.*;
+import com.intellij.psi.impl.java.stubs.index.JavaStubIndexKeys;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StubIndex;
 import me.rubix327.liquibasehelper.inspection.model.DatamodelClassCheckResponse;
 import me.rubix327.liquibasehelper.settings.CbsAnnotation;
 import me.rubix327.liquibasehelper.settings.StaticSettings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 public class AnnotationUtils {
 
     public static boolean getBooleanValueOrDefault(PsiAnnotationMemberValue param, boolean defaultValue){
@@ -85,13 +93,57 @@ public class AnnotationUtils {
             String qualifiedName = annotation.getQualifiedName();
             if (qualifiedName == null) continue;
 
-            if (qualifiedName.contains(cbsAnnotation.getShortName())){
+            if (isAnnotationOf(qualifiedName, cbsAnnotation)){
                 return annotation;
             }
         }
         return null;
     }
 
+    /**
+     * Проверить, что аннотация с указанным названием - это указанная аннотация плагина
+     * (по полному названию или по вхождению короткого, в зависимости от {@link StaticSettings#SEARCH_ANNOTATION_BY_QUALIFIED_NAME}).
+     */
+    public static boolean isAnnotationOf(@NotNull String annotationQualifiedName, @NotNull CbsAnnotation cbsAnnotation){
+        if (StaticSettings.SEARCH_ANNOTATION_BY_QUALIFIED_NAME){
+            return annotationQualifiedName.equals(cbsAnnotation.getQualifiedName());
+        }
+        return annotationQualifiedName.contains(cbsAnnotation.getShortName());
+    }
+
+    /**
+     * Найти классы, над которыми (или над полями которых) висит одна из указанных аннотаций.<br>
+     * Поиск идет по стаб-индексу аннотаций по короткому названию, поэтому обходятся только классы-кандидаты,
+     * а не все классы из области поиска. Окончательная проверка кандидатов остается за {@link #checkIsDatamodelClass(PsiClass)}.<br>
+     * Требует "умного" режима (индексы должны быть построены).
+     * @param project Проект
+     * @param scope Область поиска
+     * @param cbsAnnotations Аннотации
+     * @return Классы-кандидаты (без повторов, в порядке нахождения)
+     */
+    @NotNull
+    public static Set<PsiClass> findClassesAnnotatedWith(@NotNull Project project, @NotNull GlobalSearchScope scope, @NotNull CbsAnnotation... cbsAnnotations){
+        Set<PsiClass> result = new LinkedHashSet<>();
+        for (CbsAnnotation cbsAnnotation : cbsAnnotations) {
+            Collection<PsiAnnotation> annotations = StubIndex.getElements(
+                    JavaStubIndexKeys.ANNOTATIONS, cbsAnnotation.getShortName(), project, scope, PsiAnnotation.class);
+
+            for (PsiAnnotation annotation : annotations) {
+                if (!(annotation.getParent() instanceof PsiModifierList modifierList)) continue;
+
+                // Аннотация над классом
+                if (modifierList.getParent() instanceof PsiClass psiClass){
+                    result.add(psiClass);
+                }
+                // Аннотация над полем - берем класс, в котором объявлено поле
+                else if (modifierList.getParent() instanceof PsiField psiField && psiField.getContainingClass() != null){
+                    result.add(psiField.getContainingClass());
+                }
+            }
+        }
+        return result;
+    }
+
     public static boolean isNotDatamodelClass(@Nullable PsiClass psiClass){
         return !checkIsDatamodelClass(psiClass).isDatamodelClass();
     }
@@ -0,0 +1,19 @@
+package me.rubix327.liquibasehelper;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Запуск плагина после открытия проекта. Выполняется в фоновом потоке и не задерживает открытие проекта,
+ * вся работа делегируется {@link StartProjectService}.
+ */
+public class StartProjectActivity implements StartupActivity.Background {
+
+    @Override
+    public void runActivity(@NotNull Project project) {
+        if (project.isDisposed()) return;
+        StartProjectService.getInstance(project).initialize();
+    }
+
+}
@@ -0,0 +1,693 @@
+package me.rubix327.liquibasehelper;
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.roots.OrderEnumerator;
+import com.intellij.openapi.vfs.JarFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiPackage;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.GlobalSearchScopesCore;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
+import me.rubix327.liquibasehelper.inspection.BytecodeRulesExtractor;
+import me.rubix327.liquibasehelper.inspection.ParallelRulesExtractor;
+import me.rubix327.liquibasehelper.inspection.RulesManager;
+import me.rubix327.liquibasehelper.inspection.RulesManifestReader;
+import me.rubix327.liquibasehelper.inspection.cache.DependencyRulesCache;
+import me.rubix327.liquibasehelper.inspection.cache.FileStampUtils;
+import me.rubix327.liquibasehelper.inspection.cache.RulesSnapshotEntry;
+import me.rubix327.liquibasehelper.inspection.cache.RulesSnapshotStorage;
+import me.rubix327.liquibasehelper.inspection.model.HandleClassesResponse;
+import me.rubix327.liquibasehelper.inspection.model.PrecomputedClassRules;
+import me.rubix327.liquibasehelper.inspection.model.RulesInputs;
+import me.rubix327.liquibasehelper.inspection.model.TagRulesContainer;
+import me.rubix327.liquibasehelper.listener.ClassDeletionListener;
+import me.rubix327.liquibasehelper.listener.RulesReloadScheduler;
+import me.rubix327.liquibasehelper.listener.RulesUpdateService;
+import me.rubix327.liquibasehelper.log.MainLogger;
+import me.rubix327.liquibasehelper.settings.CbsAnnotation;
+import me.rubix327.liquibasehelper.settings.PersistentUserSettings;
+import me.rubix327.liquibasehelper.settings.StaticSettings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.idea.maven.project.MavenProject;
+import org.jetbrains.idea.maven.project.MavenProjectsManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static me.rubix327.liquibasehelper.inspection.model.HandleClassesResponse.ErrorReason.*;
+
+/**
+ * Правила проекта: полная регистрация, обновление после перезагрузки Maven и сведения о проекте (artifactId).<br>
+ * Запускается из {@link StartProjectActivity} в фоновом потоке после открытия проекта.
+ */
+@Service(Service.Level.PROJECT)
+public final class StartProjectService implements Disposable {
+
+    private final Project project;
+    /**
+     * artifactId корневого Maven-проекта (null - еще не определен)
+     */
+    private volatile String artifactId;
+    /**
+     * Входные данные правил на момент последней полной регистрации (для обновления по разнице после перезагрузки Maven)
+     */
+    private volatile RulesInputs rulesInputs;
+
+    private static final int SKIPPED_CLASSES_LOG_LEVEL = 0; // debug variable
+
+    public StartProjectService(@NotNull Project project) {
+        this.project = project;
+    }
+
+    public static StartProjectService getInstance(@NotNull Project project){
+        return project.getService(StartProjectService.class);
+    }
+
+    /**
+     * Получить название артефакта указанного проекта (artifactId корневого Maven-проекта).
+     * @param project Проект
+     * @return Название артефакта (проекта) или null, если проект еще не загружен Maven
+     */
+    @Nullable
+    public static String getArtifactId(Project project){
+        StartProjectService service = getInstance(project);
+        String artifactId = service.artifactId;
+        if (artifactId == null){
+            artifactId = service.findArtifactId();
+            service.artifactId = artifactId;
+        }
+        return artifactId;
+    }
+
+    // Берется из модели, которую уже загрузил Maven, без повторного разбора pom.xml
+    @Nullable
+    private String findArtifactId(){
+        MavenProjectsManager mavenManager = MavenProjectsManager.getInstance(project);
+        if (!mavenManager.isMavenizedProject()) return null;
+
+        List<MavenProject> rootProjects = mavenManager.getRootProjects();
+        return rootProjects.isEmpty() ? null : rootProjects.get(0).getMavenId().getArtifactId();
+    }
+
+    /**
+     * Подготовить плагин к работе в проекте. Вызывается один раз при открытии проекта, в фоновом потоке.
+     */
+    void initialize() {
+        MainLogger.info(project, "Loading settings:");
+        for (String s : PersistentUserSettings.getInstance().toString().split("\n")) {
+            MainLogger.info(project, 1, s);
+        }
+
+        registerClassDeletionListener();
+        // Сервис сам подписывается на изменения PSI и пересобирает правила измененных классов в фоне
+        RulesUpdateService.getInstance(project);
+        registerMavenReloadListener();
+        MainLogger.info(project, "Maven artifactId: %s", getArtifactId(project));
+
+        // Сначала поднимаем правила из снимка прошлой сессии (без индексов), затем запускаем полную регистрацию,
+        // которая пересоберет только устаревшие правила
+        RulesSnapshotStorage.getInstance(project).restore();
+        RulesReloadScheduler.getInstance(project).schedule("project opened");
+    }
+
+    /**
+     * Зарегистрировать все правила проекта. Вызывается только из {@link RulesReloadScheduler},
+     * который не допускает одновременных запусков (остальной код должен запрашивать перерегистрацию через него).<br>
+     * Выполняется без общего read action: кандидаты собираются в неблокирующем read action, а сами правила -
+     * параллельно в рабочих потоках небольшими порциями (см. ParallelRulesExtractor).
+     */
+    public static void registerRulesForAllClasses(Project project, ProgressIndicator indicator){
+        if (project.isDisposed()){
+            MainLogger.warn("Called project is already disposed: %s", project.getName());
+            return;
+        }
+
+        RulesManager rulesManagerInstance = RulesManager.getInstance(project);
+        // Изменения правил, сделанные во время регистрации, не должны потеряться при публикации ее результата
+        long startVersion = rulesManagerInstance.startFullRegistration();
+        try {
+            registerRulesForAllClasses(rulesManagerInstance, startVersion, indicator);
+        } finally {
+            rulesManagerInstance.finishFullRegistration();
+        }
+    }
+
+    private static void registerRulesForAllClasses(RulesManager rulesManagerInstance, long startVersion, ProgressIndicator indicator){
+        Project project = rulesManagerInstance.getProject();
+        // Каждый класс разбирается заново ровно один раз за перерегистрацию, общие родители - из памяти
+        rulesManagerInstance.invalidateAllRulesOfClasses();
+        // Правила могут быть только у классов с @CbsDatamodelClass, поэтому берем кандидатов из индекса аннотаций,
+        // а не обходим все классы проекта. Mapped-родители подтягиваются уже внутри handleClassAndSuperClasses.
+        indicator.setText("LiquibaseHelper: Searching datamodel classes");
+        Set<PsiClass> candidateClasses = Utils.computeNonBlocking(project, indicator, () -> AnnotationUtils.findClassesAnnotatedWith(
+                project, GlobalSearchScope.projectScope(project), CbsAnnotation.CbsDatamodelClass.INSTANCE));
+
+        // Сначала правила для открытых в редакторе файлов datamodel, чтобы их проверки появились до окончания полной регистрации
+        registerRulesForOpenFiles(rulesManagerInstance, candidateClasses, indicator);
+
+        MainLogger.info(project, "Registering project-level rules (candidate classes: %s)...", candidateClasses.size());
+        indicator.setText("LiquibaseHelper: Loading project rules");
+        List<HandleClassesResponse> responses = ParallelRulesExtractor.extract(rulesManagerInstance, candidateClasses, "StartProjectService: project", indicator);
+
+        // Правила копятся здесь и публикуются одним снимком в конце, чтобы инспекции не видели пустой реестр
+        List<HandleClassesResponse> extractedRules = new ArrayList<>();
+        boolean atLeastOneRegistered = false;
+        List<HandleClassesResponse> skippedResponses = new ArrayList<>();
+        for (HandleClassesResponse response : responses) {
+            if (response.isSuccess()){
+                extractedRules.add(response);
+                MainLogger.info(project, 1, response.getMessage());
+                atLeastOneRegistered = true;
+            } else if (SKIPPED_CLASSES_LOG_LEVEL == 2) {
+                MainLogger.info(project, 1, "Skipped class: %s", response.getMessage());
+                skippedResponses.add(response);
+            }
+        }
+
+        if (SKIPPED_CLASSES_LOG_LEVEL == 1){
+            ReadAction.run(() -> logSkippedClasses(project, skippedResponses, 1));
+        }
+
+        if (atLeastOneRegistered){
+            MainLogger.info(project, "Project-level rules have been registered.");
+        } else {
+            MainLogger.info(project, "No project-level rules have been registered.");
+        }
+
+        Map<String, Set<String>> moduleSourceRoots = Utils.computeNonBlocking(project, indicator, () -> collectModuleSourceRoots(project));
+        Map<String, Map<String, String>> moduleClasses = Utils.computeNonBlocking(project, indicator, () -> groupClassesByModule(extractedRules));
+        Map<String, RulesInputs.DependencyJar> dependencyJars = new HashMap<>();
+
+        extractedRules.addAll(extractRulesFromDependencies(rulesManagerInstance, dependencyJars, indicator));
+        rulesManagerInstance.replaceAllRules(extractedRules, startVersion);
+        rulesManagerInstance.printAllRules();
+        getInstance(project).rulesInputs = new RulesInputs(dependencyJars, moduleSourceRoots, moduleClasses);
+        RulesSnapshotStorage.getInstance(project).save(rulesManagerInstance, indicator);
+    }
+
+    /**
+     * Зарегистрировать правила классов, теги которых встречаются в открытых в редакторе файлах datamodel,
+     * и перезапустить подсветку этих файлов.<br>
+     * Разобранные здесь классы запоминаются в RulesMemo, поэтому при полной регистрации они повторно не разбираются.
+     */
+    private static void registerRulesForOpenFiles(RulesManager rulesManager, Set<PsiClass> candidateClasses, ProgressIndicator indicator){
+        Project project = rulesManager.getProject();
+        List<PsiFile> openFiles = ReadAction.compute(() -> findOpenDatamodelFiles(project));
+        if (openFiles.isEmpty()) return;
+
+        List<PsiClass> priorityClasses = Utils.computeNonBlocking(project, indicator, () -> {
+            Set<String> tagNames = new HashSet<>();
+            for (PsiFile openFile : openFiles) {
+                if (openFile.isValid()) collectParentTagNames(((XmlFile) openFile).getRootTag(), tagNames);
+            }
+            return candidateClasses.stream()
+                    .filter(PsiClass::isValid)
+                    .filter(c -> tagNames.contains(RulesManager.getDatamodelTagOfClass(c)))
+                    .collect(Collectors.toList());
+        });
+        if (priorityClasses.isEmpty()) return;
+
+        MainLogger.info(project, "Registering rules for open files (files: %s, classes: %s)...", openFiles.size(), priorityClasses.size());
+        indicator.setText("LiquibaseHelper: Loading rules for open files");
+        List<HandleClassesResponse> responses = ParallelRulesExtractor.extract(rulesManager, priorityClasses, "StartProjectService: open files", indicator);
+        for (HandleClassesResponse response : responses) {
+            rulesManager.applyExtractedRules(response);
+        }
+
+        ApplicationManager.getApplication().invokeLater(() -> {
+            DaemonCodeAnalyzer daemonCodeAnalyzer = DaemonCodeAnalyzer.getInstance(project);
+            for (PsiFile openFile : openFiles) {
+                if (openFile.isValid()) daemonCodeAnalyzer.restart(openFile);
+            }
+        }, project.getDisposed());
+    }
+
+    // Открытые в редакторе XML-файлы datamodel (те же, что проверяет XmlTagValuesInspector)
+    private static List<PsiFile> findOpenDatamodelFiles(Project project){
+        List<PsiFile> result = new ArrayList<>();
+        for (VirtualFile file : FileEditorManager.getInstance(project).getOpenFiles()) {
+            if (!file.isValid() || !file.getPath().contains("/datamodel/")) continue;
+            PsiFile psiFile = PsiManager.getInstance(project).findFile(file);
+            if (psiFile instanceof XmlFile) result.add(psiFile);
+        }
+        return result;
+    }
+
+    // Правила ищутся по названию родительского тега, поэтому нужны названия корня и всех тегов с вложенными тегами
+    private static void collectParentTagNames(XmlTag tag, Set<String> tagNames){
+        if (tag == null) return;
+        XmlTag[] subTags = tag.getSubTags();
+        if (subTags.length == 0 && tag.getParentTag() != null) return;
+
+        tagNames.add(tag.getName());
+        for (XmlTag subTag : subTags) {
+            collectParentTagNames(subTag, tagNames);
+        }
+    }
+
+    // Собрать правила из зависимостей Maven
+    // Состояние прочитанных .jar записывается в dependencyJars
+    private static List<HandleClassesResponse> extractRulesFromDependencies(RulesManager rulesManager, Map<String, RulesInputs.DependencyJar> dependencyJars,
+                                                                            ProgressIndicator indicator){
+        Project project = rulesManager.getProject();
+        List<HandleClassesResponse> result = new ArrayList<>();
+        if (project.isDisposed()){
+            MainLogger.warn("Called project is already disposed: %s", project.getName());
+            return result;
+        }
+
+        try {
+            MainLogger.info(project, "Registering rules from dependencies...");
+            indicator.setText("LiquibaseHelper: Loading dependency rules");
+
+            Map<String, List<String>> modulesToPackages = StaticSettings.getDependencyModules();
+            Map<VirtualFile, String> jarToModule = ReadAction.compute(() -> findDependencyJars(project, modulesToPackages.keySet()));
+
+            for (String moduleName : modulesToPackages.keySet()) {
+                if (!jarToModule.containsValue(moduleName)){
+                    MainLogger.info(project, 1, "Module \"%s\" was not found among dependencies.", moduleName);
+                }
+            }
+            for (Map.Entry<VirtualFile, String> jarAndModule : jarToModule.entrySet()) {
+                indicator.checkCanceled();
+                VirtualFile jarFile = jarAndModule.getKey();
+                List<String> packages = modulesToPackages.get(jarAndModule.getValue());
+
+                List<HandleClassesResponse> jarRules = extractRulesFromJar(rulesManager, jarFile, packages, indicator);
+                result.addAll(jarRules);
+                dependencyJars.put(jarFile.getPath(), new RulesInputs.DependencyJar(
+                        jarAndModule.getValue(), packages, FileStampUtils.getJarHash(jarFile), toClassTags(jarRules)));
+            }
+
+            MainLogger.info(project, "Rules from dependencies have been collected.");
+
+        } catch (ProcessCanceledException e){
+            throw e;
+        } catch (Exception e){
+            MainLogger.warn(project, "An error occurred while registering rules from dependencies: %s, %s", e.getMessage(), Arrays.toString(e.getStackTrace()));
+        }
+        return result;
+    }
+
+    /**
+     * Собрать правила из пакетов одного .jar.<br>
+     * Если в .jar есть манифест правил (см. {@link RulesManifestReader}), то правила берутся из него целиком.
+     * Иначе правила берутся из {@link DependencyRulesCache}, если этот .jar (той же версии) уже разбирался в этом или другом проекте.
+     * Иначе правила читаются из байткода (или, если это не удалось, через PSI), и результат сохраняется в кэш.
+     */
+    private static List<HandleClassesResponse> extractRulesFromJar(RulesManager rulesManager, VirtualFile jarFile, List<String> packages, ProgressIndicator indicator){
+        Project project = rulesManager.getProject();
+
+        // Готовые правила из манифеста, собранного при сборке артефакта
+        List<HandleClassesResponse> manifestResponses = extractRulesFromManifest(rulesManager, jarFile, indicator);
+        if (manifestResponses != null){
+            MainLogger.info(project, 1, "Jar \"%s\": %s classes from rules manifest.", jarFile.getName(), manifestResponses.size());
+            return manifestResponses;
+        }
+
+        DependencyRulesCache cache = DependencyRulesCache.getInstance();
+        String jarHash = FileStampUtils.getJarHash(jarFile);
+
+        if (jarHash != null){
+            List<HandleClassesResponse> cachedResponses = Utils.computeNonBlocking(project, indicator, () -> {
+                List<RulesSnapshotEntry> cachedEntries = cache.get(jarHash, packages);
+                return cachedEntries == null ? null : restoreResponses(rulesManager, jarFile, cachedEntries);
+            });
+            if (cachedResponses != null){
+                MainLogger.info(project, 1, "Jar \"%s\": %s classes from cache.", jarFile.getName(), cachedResponses.size());
+                return cachedResponses;
+            }
+        }
+
+        MainLogger.info(project, 1, "Jar \"%s\"...", jarFile.getName());
+        List<HandleClassesResponse> result = extractRulesFromBytecode(rulesManager, jarFile, packages, indicator);
+        if (result == null){
+            // Байткод прочитать не удалось - собираем правила через PSI
+            result = new ArrayList<>();
+            List<PsiClass> dependencyClasses = Utils.computeNonBlocking(project, indicator, () -> findDependencyClasses(project, jarFile, packages));
+            List<HandleClassesResponse> responses = ParallelRulesExtractor.extract(rulesManager, dependencyClasses, "StartProjectService: dependencies", indicator);
+            for (HandleClassesResponse response : responses) {
+                if (response.isSuccess()){
+                    result.add(response);
+                }
+            }
+        }
+        for (HandleClassesResponse response : result) {
+            MainLogger.info(project, 2, response.getMessage());
+        }
+
+        if (jarHash != null){
+            cache.put(project, jarHash, packages, result, indicator);
+        }
+        return result;
+    }
+
+    /**
+     * Собрать правила из байткода классов .jar (см. {@link BytecodeRulesExtractor}), без разбора декомпилированных классов.<br>
+     * Родители и перечисления ищутся по всем библиотекам проекта.
+     * @return Успешные ответы или null, если .jar не удалось прочитать или какой-то класс не найден через PSI
+     */
+    private static List<HandleClassesResponse> extractRulesFromBytecode(RulesManager rulesManager, VirtualFile jarFile, List<String> packages, ProgressIndicator indicator){
+        Project project = rulesManager.getProject();
+        List<Path> classPath = ReadAction.compute(() -> {
+            List<Path> paths = new ArrayList<>();
+            for (VirtualFile root : OrderEnumerator.orderEntries(project).librariesOnly().classes().getRoots()) {
+                VirtualFile localRoot = VfsUtilCore.getVirtualFileForJar(root);
+                if (localRoot == null) localRoot = root;
+                if (localRoot.isInLocalFileSystem()) paths.add(localRoot.toNioPath());
+            }
+            return paths;
+        });
+        // Сначала ищем в самом .jar
+        classPath.add(0, jarFile.toNioPath());
+
+        List<PrecomputedClassRules> classRules;
+        try (BytecodeRulesExtractor extractor = new BytecodeRulesExtractor(classPath)) {
+            classRules = extractor.extract(jarFile.toNioPath(), packages, indicator);
+        } catch (IOException e) {
+            MainLogger.warn(project, "Could not read classes of %s: %s", jarFile.getPath(), e.getMessage());
+            return null;
+        }
+
+        return Utils.computeNonBlocking(project, indicator, () -> toResponses(rulesManager, jarFile, classRules, "bytecode"));
+    }
+
+    /**
+     * Собрать правила из манифеста, который процессор аннотаций положил в .jar во время сборки (см. {@link RulesManifestReader}).
+     * @return Успешные ответы или null, если манифеста нет, его не удалось прочитать или какой-то класс не найден через PSI
+     */
+    private static List<HandleClassesResponse> extractRulesFromManifest(RulesManager rulesManager, VirtualFile jarFile, ProgressIndicator indicator){
+        List<PrecomputedClassRules> classRules;
+        try {
+            classRules = RulesManifestReader.read(jarFile.toNioPath());
+        } catch (IOException e) {
+            MainLogger.warn(rulesManager.getProject(), "Could not read rules manifest of %s: %s", jarFile.getPath(), e.getMessage());
+            return null;
+        }
+        if (classRules == null) return null;
+
+        return Utils.computeNonBlocking(rulesManager.getProject(), indicator, () -> toResponses(rulesManager, jarFile, classRules, "manifest"));
+    }
+
+    // Привязать правила, собранные без PSI, к классам .jar. Если какой-то класс не найден, возвращается null.
+    private static List<HandleClassesResponse> toResponses(RulesManager rulesManager, VirtualFile jarFile, List<PrecomputedClassRules> classRules, String source){
+        List<HandleClassesResponse> result = new ArrayList<>(classRules.size());
+        for (PrecomputedClassRules rules : classRules) {
+            PsiClass psiClass = findClassInJar(rulesManager.getProject(), rules.container().getMetaClassPath(), jarFile);
+            if (psiClass == null) return null;
+            result.add(rulesManager.extractPrecomputedRules(psiClass, rules, source));
+        }
+        return result;
+    }
+
+    // Собрать ответы из записей кэша. Если какой-то класс не найден в .jar, возвращается null (правила нужно собрать заново).
+    private static List<HandleClassesResponse> restoreResponses(RulesManager rulesManager, VirtualFile jarFile, List<RulesSnapshotEntry> entries){
+        List<HandleClassesResponse> result = new ArrayList<>(entries.size());
+
+        for (RulesSnapshotEntry entry : entries) {
+            PsiClass psiClass = findClassInJar(rulesManager.getProject(), entry.getClassQualifiedName(), jarFile);
+            if (psiClass == null) return null;
+            result.add(rulesManager.extractRulesFromSnapshot(psiClass, entry));
+        }
+        return result;
+    }
+
+    /**
+     * Обновить правила после перезагрузки Maven по разнице с последней полной регистрацией (см. {@link RulesInputs}).<br>
+     * Пересобираются только правила добавленных, удаленных и измененных .jar зависимостей (новая версия - это новый путь к .jar)
+     * и модулей проекта, у которых изменились корни исходников. Если ничего из этого не изменилось, то правила не трогаются.<br>
+     * Если полной регистрации еще не было, то вместо этого выполняется полная регистрация.<br>
+     * Вызывается только из {@link RulesReloadScheduler} (см. {@link RulesReloadScheduler.RunKind#MAVEN_REFRESH}),
+     * поэтому не выполняется одновременно с полной регистрацией.
+     */
+    public static void refreshRulesAfterMavenImport(Project project, ProgressIndicator indicator){
+        RulesInputs previous = getInstance(project).rulesInputs;
+        if (previous == null){
+            MainLogger.info(project, "Maven reloaded: rules have not been fully registered yet, registering all rules...");
+            registerRulesForAllClasses(project, indicator);
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        RulesManager rulesManager = RulesManager.getInstance(project);
+        Map<String, String> removedClasses = new HashMap<>();
+        List<HandleClassesResponse> addedRules = new ArrayList<>();
+        boolean changed = false;
+
+        // Модули проекта, у которых изменились корни исходников (в том числе добавленные и удаленные модули)
+        Map<String, Set<String>> moduleSourceRoots = Utils.computeNonBlocking(project, indicator, () -> collectModuleSourceRoots(project));
+        Map<String, Map<String, String>> moduleClasses = new HashMap<>(previous.moduleClasses());
+        Set<String> moduleNames = new HashSet<>(previous.moduleSourceRoots().keySet());
+        moduleNames.addAll(moduleSourceRoots.keySet());
+        for (String moduleName : moduleNames) {
+            if (Objects.equals(previous.moduleSourceRoots().get(moduleName), moduleSourceRoots.get(moduleName))) continue;
+            changed = true;
+            MainLogger.info(project, 1, "Module \"%s\": source roots have changed.", moduleName);
+
+            Map<String, String> oldClasses = moduleClasses.remove(moduleName);
+            if (oldClasses != null) removedClasses.putAll(oldClasses);
+            if (!moduleSourceRoots.containsKey(moduleName)) continue;
+
+            List<HandleClassesResponse> moduleRules = extractRulesFromModule(rulesManager, moduleName, indicator);
+            addedRules.addAll(moduleRules);
+            moduleClasses.put(moduleName, toClassTags(moduleRules));
+        }
+
+        // Добавленные, измененные и удаленные .jar зависимостей
+        Map<String, List<String>> modulesToPackages = StaticSettings.getDependencyModules();
+        Map<VirtualFile, String> jarToModule = Utils.computeNonBlocking(project, indicator, () -> findDependencyJars(project, modulesToPackages.keySet()));
+        Map<String, RulesInputs.DependencyJar> dependencyJars = new HashMap<>(previous.dependencyJars());
+        Set<String> currentJarPaths = new HashSet<>();
+        for (Map.Entry<VirtualFile, String> jarAndModule : jarToModule.entrySet()) {
+            indicator.checkCanceled();
+            VirtualFile jarFile = jarAndModule.getKey();
+            List<String> packages = modulesToPackages.get(jarAndModule.getValue());
+            String jarHash = FileStampUtils.getJarHash(jarFile);
+            currentJarPaths.add(jarFile.getPath());
+
+            RulesInputs.DependencyJar oldJar = dependencyJars.get(jarFile.getPath());
+            if (oldJar != null && oldJar.jarHash() != null && oldJar.jarHash().equals(jarHash) && oldJar.packages().equals(packages)) continue;
+            changed = true;
+            MainLogger.info(project, 1, "Jar \"%s\": %s.", jarFile.getName(), oldJar == null ? "added" : "changed");
+
+            if (oldJar != null) removedClasses.putAll(oldJar.classes());
+            List<HandleClassesResponse> jarRules = extractRulesFromJar(rulesManager, jarFile, packages, indicator);
+            addedRules.addAll(jarRules);
+            dependencyJars.put(jarFile.getPath(), new RulesInputs.DependencyJar(jarAndModule.getValue(), packages, jarHash, toClassTags(jarRules)));
+        }
+        for (String oldJarPath : previous.dependencyJars().keySet()) {
+            if (currentJarPaths.contains(oldJarPath)) continue;
+            changed = true;
+            MainLogger.info(project, 1, "Jar \"%s\": removed.", oldJarPath);
+            removedClasses.putAll(dependencyJars.remove(oldJarPath).classes());
+        }
+
+        if (!changed){
+            MainLogger.info(project, "Maven reloaded: rule inputs have not changed (%s ms).", System.currentTimeMillis() - start);
+            return;
+        }
+
+        rulesManager.replaceRulesOfClasses(removedClasses, addedRules);
+        getInstance(project).rulesInputs = new RulesInputs(dependencyJars, moduleSourceRoots, moduleClasses);
+        RulesSnapshotStorage.getInstance(project).save(rulesManager, indicator);
+        ApplicationManager.getApplication().invokeLater(
+                () -> DaemonCodeAnalyzer.getInstance(project).restart(), project.getDisposed());
+        MainLogger.info(project, "Maven reloaded: rules have been updated in %s ms (removed classes: %s, registered classes: %s).",
+                System.currentTimeMillis() - start, removedClasses.size(), addedRules.size());
+    }
+
+    // Собрать правила классов одного модуля проекта
+    private static List<HandleClassesResponse> extractRulesFromModule(RulesManager rulesManager, String moduleName, ProgressIndicator indicator){
+        Project project = rulesManager.getProject();
+        Set<PsiClass> candidateClasses = Utils.computeNonBlocking(project, indicator, () -> {
+            Module module = ModuleManager.getInstance(project).findModuleByName(moduleName);
+            if (module == null) return Set.of();
+            return AnnotationUtils.findClassesAnnotatedWith(project, GlobalSearchScope.moduleScope(module), CbsAnnotation.CbsDatamodelClass.INSTANCE);
+        });
+
+        List<HandleClassesResponse> result = new ArrayList<>();
+        for (HandleClassesResponse response : ParallelRulesExtractor.extract(rulesManager, candidateClasses, "StartProjectService: module", indicator)) {
+            if (response.isSuccess()){
+                result.add(response);
+            }
+        }
+        return result;
+    }
+
+    // Корни исходников модулей проекта: название модуля -> URL корней
+    private static Map<String, Set<String>> collectModuleSourceRoots(Project project){
+        Map<String, Set<String>> result = new HashMap<>();
+        for (Module module : ModuleManager.getInstance(project).getModules()) {
+            result.put(module.getName(), Set.copyOf(Arrays.asList(ModuleRootManager.getInstance(module).getSourceRootUrls())));
+        }
+        return result;
+    }
+
+    // Разложить классы с правилами по модулям проекта: название модуля -> (qualifiedName -> тег)
+    private static Map<String, Map<String, String>> groupClassesByModule(List<HandleClassesResponse> responses){
+        Map<String, Map<String, String>> result = new HashMap<>();
+        for (HandleClassesResponse response : responses) {
+            if (!response.getBaseClass().isValid()) continue;
+            Module module = ModuleUtilCore.findModuleForPsiElement(response.getBaseClass());
+            if (module == null) continue;
+            result.computeIfAbsent(module.getName(), k -> new HashMap<>()).putAll(toClassTags(List.of(response)));
+        }
+        return result;
+    }
+
+    // Классы из успешных ответов: qualifiedName -> тег
+    private static Map<String, String> toClassTags(List<HandleClassesResponse> responses){
+        Map<String, String> result = new HashMap<>();
+        for (HandleClassesResponse response : responses) {
+            TagRulesContainer container = response.getContainer();
+            if (!response.isSuccess() || container == null) continue;
+            if (container.getMetaClassPath() == null || container.getParentTagName() == null) continue;
+            result.put(container.getMetaClassPath(), container.getParentTagName());
+        }
+        return result;
+    }
+
+    // Найти .jar указанных модулей зависимостей: .jar -> модуль
+    private static Map<VirtualFile, String> findDependencyJars(Project project, Collection<String> moduleNames){
+        Map<String, List<VirtualFile>> artifactJars = indexLibraryJars(project);
+        Map<VirtualFile, String> result = new LinkedHashMap<>();
+        for (String moduleName : moduleNames) {
+            for (VirtualFile jarFile : artifactJars.getOrDefault(moduleName, List.of())) {
+                result.put(jarFile, moduleName);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Разложить .jar библиотек проекта по названиям артефактов, чтобы не перебирать все библиотеки для каждого модуля из настроек.<br>
+     * Артефакт определяется по пути в локальном репозитории (.../cbscoreservices-metaloader/1.0/cbscoreservices-metaloader-1.0.jar).
+     */
+    private static Map<String, List<VirtualFile>> indexLibraryJars(Project project){
+        Map<String, List<VirtualFile>> result = new HashMap<>();
+        for (VirtualFile root : OrderEnumerator.orderEntries(project).librariesOnly().classes().getRoots()) {
+            VirtualFile jarFile = VfsUtilCore.getVirtualFileForJar(root);
+            if (jarFile == null) continue;
+
+            VirtualFile versionDir = jarFile.getParent();
+            VirtualFile artifactDir = versionDir == null ? null : versionDir.getParent();
+            if (artifactDir == null) continue;
+
+            List<VirtualFile> jars = result.computeIfAbsent(artifactDir.getName(), k -> new ArrayList<>());
+            if (!jars.contains(jarFile)) jars.add(jarFile);
+        }
+        return result;
+    }
+
+    /**
+     * Область поиска, ограниченная одним .jar. Классы с таким же названием могут лежать и в других .jar,
+     * а поиск по всем библиотекам загружал бы их все.
+     */
+    private static GlobalSearchScope getJarScope(Project project, VirtualFile jarFile){
+        VirtualFile jarRoot = JarFileSystem.getInstance().getJarRootForLocalFile(jarFile);
+        if (jarRoot == null) return GlobalSearchScope.EMPTY_SCOPE;
+        return GlobalSearchScopesCore.directoryScope(project, jarRoot, true);
+    }
+
+    // Найти класс именно в указанном .jar
+    private static PsiClass findClassInJar(Project project, String qualifiedName, VirtualFile jarFile){
+        return JavaPsiFacade.getInstance(project).findClass(qualifiedName, getJarScope(project, jarFile));
+    }
+
+    // Найти классы указанных пакетов, лежащие в указанном .jar
+    private static List<PsiClass> findDependencyClasses(Project project, VirtualFile jarFile, List<String> packages){
+        JavaPsiFacade javaPsiFacade = JavaPsiFacade.getInstance(project);
+        // Раньше плагин находил эти классы во всех зависимостях проекта (н-р, auth, currency), и возникали расхождения правил,
+        // поэтому классы берутся только из области поиска нужного .jar
+        GlobalSearchScope jarScope = getJarScope(project, jarFile);
+        List<PsiClass> result = new ArrayList<>();
+
+        for (String pack : packages) {
+            PsiPackage psiPackage = javaPsiFacade.findPackage(pack);
+            if (psiPackage == null){
+                MainLogger.info(project, 2, "Package \"%s\" was not found.", pack);
+                continue;
+            }
+
+            MainLogger.info(project, 2, "Package \"%s\"...", psiPackage.getQualifiedName());
+            PsiClass[] classes = psiPackage.getClasses(jarScope);
+            if (classes.length == 0){
+                MainLogger.info(project, 3, "No classes found.");
+            }
+
+            result.addAll(Arrays.asList(classes));
+        }
+        return result;
+    }
+
+    // Зарегистрировать слушатель перезагрузки Maven
+    private void registerMavenReloadListener(){
+        MainLogger.info(project, "Registering MavenReloadListener...");
+        MavenProjectsManager.getInstance(project).addManagerListener(new MavenProjectsManager.Listener() {
+            @Override
+            public void projectImportCompleted() {
+                // artifactId мог измениться - определяем заново при следующем обращении
+                artifactId = null;
+                MainLogger.info(project, "Maven reloaded: checking changed dependencies and modules...");
+                RulesReloadScheduler.getInstance(project).schedule(RulesReloadScheduler.RunKind.MAVEN_REFRESH, "Maven import");
+            }
+        }, this);
+    }
+
+    private static void logSkippedClasses(Project project, List<HandleClassesResponse> skippedResponses, int baseOffset){
+        if (!skippedResponses.isEmpty()){
+            MainLogger.info(project, baseOffset, "Skipped classes (%s):", skippedResponses.size());
+        }
+        logSkippedClasses(project, skippedResponses, baseOffset + 1, CLASS_IS_NOT_DATAMODEL, "- Not datamodel classes: {count}");
+        logSkippedClasses(project, skippedResponses, baseOffset + 1, CLASS_IS_MAPPED, "- Mapped classes: {count}");
+        logSkippedClasses(project, skippedResponses, baseOffset + 1, CLASS_IS_INNER, "- Inner classes: {count}");
+        logSkippedClasses(project, skippedResponses, baseOffset + 1, CLASS_IS_ENUM, "- Enum classes: {count}");
+        logSkippedClasses(project, skippedResponses, baseOffset + 1, CANNOT_GET_QUALIFIED_NAME, "- Could not get qualified name: {count}");
+        logSkippedClasses(project, skippedResponses, baseOffset + 1, CANNOT_GET_DATAMODEL_TAG, "- Could not get datamodel tag: {count}");
+    }
+
+    private static void logSkippedClasses(Project project, List<HandleClassesResponse> skippedResponses, int offset,
+                                          HandleClassesResponse.ErrorReason errorReason, String msg){
+        Set<String> skipped = skippedResponses.stream()
+                .filter(r -> r.getErrorReason() == errorReason)
+                .map(r -> r.getBaseClass().getName())
+                .collect(Collectors.toSet());
+        if (Utils.isNotEmpty(skipped)){
+            MainLogger.info(project, offset, msg
+                    .replace("{count}", String.valueOf(skipped.size()))
+                    .replace("{classes}", String.valueOf(skipped))
+            );
+        }
+    }
+
+    private void registerClassDeletionListener() {
+        PsiManager.getInstance(project).addPsiTreeChangeListener(new ClassDeletionListener(), this);
+    }
+
+    @Override
+    public void dispose() {
+        RulesManager.removeInstance(project);
+    }
+
+}
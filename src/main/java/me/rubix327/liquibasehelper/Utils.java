@@ -5,6 +5,7 @@ import com.intellij.codeInspection.LocalQuickFix;
 import com.intellij.codeInspection.ProblemHighlightType;
 import com.intellij.codeInspection.ProblemsHolder;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.fileEditor.FileEditorManager;
 import com.intellij.openapi.fileEditor.OpenFileDescriptor;
 import com.intellij.openapi.progress.ProgressIndicator;
@@ -33,21 +34,22 @@ import java.awt.*;
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.StringSelection;
 import java.nio.file.Path;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
 import static me.rubix327.liquibasehelper.settings.StaticSettings.ERRORS_HIGHLIGHT_TYPE;
 
 @SuppressWarnings("unused")
 public class Utils {
 
+    /**
+     * Поддерживаемые форматы даты со временем. Распознаются {@link ValueScanner} за один проход.
+     */
     public static final List<String> DATE_TIME_PATTERNS = new ArrayList<>(){{
         add("dd.MM.yyyy HH:mm:ss");
         add("dd.MM.yyyy'T'HH:mm:ss");
@@ -70,6 +72,9 @@ public class Utils {
         add("yyyy-MM-dd'T'HH:mm:ssXXX");
     }};
 
+    /**
+     * Поддерживаемые форматы даты без времени.
+     */
     public static final List<String> DATE_PATTERNS = new ArrayList<>(){{
         add("dd.MM.yyyy");
         add("dd-MM-yyyy");
@@ -215,7 +220,7 @@ public class Utils {
     // List<String> -> PsiClass('String')
     public static PsiClass getPsiClassFromListType(@NotNull PsiField field){
         PsiType psiType = field.getType();
-        if (psiType instanceof PsiClassType classType) {
+        if (psiType instanceof PsiClassType classType && classType.rawType().equalsToText(CommonClassNames.JAVA_UTIL_LIST)) {
 
             // Проверяем, что это параметризованный тип
             PsiType[] parameters = classType.getParameters();
@@ -353,36 +358,44 @@ public class Utils {
     }
 
     public static boolean isDate(String s){
-        return getDate(s) != null;
+        return ValueScanner.isDate(s);
     }
 
     public static boolean isClassOfAnyType(@NotNull PsiClass psiClass, @NotNull Class<?>... types){
         return Arrays.stream(types).map(Class::getName).anyMatch(t -> t.equals(psiClass.getQualifiedName()));
     }
 
+    /**
+     * Разобрать дату в одном из форматов {@link #DATE_TIME_PATTERNS} или {@link #DATE_PATTERNS}.
+     * @return Дата или null, если строка не является датой
+     */
     public static LocalDateTime getDate(String s){
-        for (String dateFormat : DATE_TIME_PATTERNS) {
-            try{
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern(dateFormat);
+        return ValueScanner.parseDate(s);
+    }
 
-                return LocalDateTime.parse(s, formatter);
-            } catch (DateTimeParseException ignored){}
-        }
-        for (String dateFormat : DATE_PATTERNS){
-            try{
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern(dateFormat);
-                LocalDate ld = LocalDate.parse(s, formatter);
-                return LocalDateTime.of(ld, LocalTime.of(0, 0, 0));
-            } catch (DateTimeParseException ignored){}
-        }
-        return null;
+    /**
+     * Выполнить короткий read action, который не мешает действиям записи: при ожидающей записи он прерывается
+     * и после нее перезапускается с начала, поэтому вычисление не должно ничего менять вне себя.<br>
+     * Выполняется только в режиме "умной" работы. Нельзя вызывать в EDT и внутри другого read action.
+     * @param indicator Индикатор фоновой задачи (его отмена прерывает и вычисление)
+     */
+    public static <T> T computeNonBlocking(@NotNull Project project, @NotNull ProgressIndicator indicator, @NotNull Callable<T> computation){
+        return ReadAction.nonBlocking(computation)
+                .inSmartMode(project)
+                .expireWith(project)
+                .wrapProgress(indicator)
+                .executeSynchronously();
     }
 
-    public static void runReadActionInBackground(@NotNull Project project, @NotNull String title, Runnable runnable){
-        ProgressManager.getInstance().run(new Task.Backgroundable(project, title) {
+    /**
+     * Запустить фоновую задачу с индикатором прогресса, без общего read action.<br>
+     * Задача сама берет read action-ы там, где обращается к PSI.
+     */
+    public static void runInBackground(@NotNull Project project, @NotNull String title, @NotNull Consumer<ProgressIndicator> task){
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, title, true) {
             @Override
             public void run(@NotNull ProgressIndicator progressIndicator) {
-                ApplicationManager.getApplication().runReadAction(runnable);
+                task.accept(progressIndicator);
             }
         });
     }
@@ -0,0 +1,231 @@
+package me.rubix327.liquibasehelper;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.time.Year;
+
+/**
+ * Распознавание значений тегов за один проход по символам, без исключений и без выделения памяти.<br>
+ * Даты распознаются во всех форматах из {@link Utils#DATE_TIME_PATTERNS} и {@link Utils#DATE_PATTERNS}
+ * (как при разборе через {@link java.time.format.DateTimeFormatter} в режиме SMART: день месяца больше длины месяца
+ * приводится к последнему дню, смещение часового пояса проверяется и отбрасывается).
+ * Числа распознаются по правилам {@link Long#parseLong(String)} и {@link Double#parseDouble(String)}.
+ */
+public final class ValueScanner {
+
+    private static final long INVALID = -1;
+
+    private ValueScanner() {}
+
+    /**
+     * @return Является ли строка датой в одном из поддерживаемых форматов
+     */
+    public static boolean isDate(@Nullable String s){
+        return s != null && scanDate(s) != INVALID;
+    }
+
+    /**
+     * Разобрать дату в одном из поддерживаемых форматов.
+     * @return Дата со временем (00:00:00, если время не указано) или null, если строка не является датой
+     */
+    @Nullable
+    public static LocalDateTime parseDate(@Nullable String s){
+        if (s == null) return null;
+        long packed = scanDate(s);
+        if (packed == INVALID) return null;
+        return LocalDateTime.of((int) (packed >>> 26), (int) (packed >>> 22) & 0xF, (int) (packed >>> 17) & 0x1F,
+                (int) (packed >>> 12) & 0x1F, (int) (packed >>> 6) & 0x3F, (int) packed & 0x3F);
+    }
+
+    /**
+     * @return Является ли строка целым числом в диапазоне long
+     */
+    public static boolean isLong(@NotNull String s){
+        int length = s.length();
+        if (length == 0) return false;
+
+        int i = 0;
+        boolean negative = false;
+        char first = s.charAt(0);
+        if (first == '-' || first == '+'){
+            if (length == 1) return false;
+            negative = first == '-';
+            i = 1;
+        }
+
+        // Накопление в отрицательную сторону, как в Long.parseLong, чтобы поместился Long.MIN_VALUE
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multLimit = limit / 10;
+        long result = 0;
+        for (; i < length; i++){
+            int digit = Character.digit(s.charAt(i), 10);
+            if (digit < 0 || result < multLimit) return false;
+            result *= 10;
+            if (result < limit + digit) return false;
+            result -= digit;
+        }
+        return true;
+    }
+
+    /**
+     * @return Является ли строка числом с плавающей точкой
+     * (включая NaN, Infinity, экспоненту, шестнадцатеричную запись и суффиксы f/d)
+     */
+    public static boolean isDouble(@NotNull String s){
+        int start = 0;
+        int end = s.length();
+        while (start < end && s.charAt(start) <= ' ') start++;
+        while (end > start && s.charAt(end - 1) <= ' ') end--;
+        if (start == end) return false;
+
+        int i = start;
+        if (s.charAt(i) == '+' || s.charAt(i) == '-') i++;
+        if (isWord(s, i, end, "NaN") || isWord(s, i, end, "Infinity")) return true;
+
+        boolean hex = end - i > 1 && s.charAt(i) == '0' && (s.charAt(i + 1) == 'x' || s.charAt(i + 1) == 'X');
+        if (hex) i += 2;
+
+        // Мантисса: цифры с необязательной точкой, хотя бы одна цифра
+        int mantissaDigits = 0;
+        while (i < end && isDigit(s.charAt(i), hex)){ i++; mantissaDigits++; }
+        if (i < end && s.charAt(i) == '.'){
+            i++;
+            while (i < end && isDigit(s.charAt(i), hex)){ i++; mantissaDigits++; }
+        }
+        if (mantissaDigits == 0) return false;
+
+        // Экспонента (в шестнадцатеричной записи обязательна)
+        if (i < end && (hex ? s.charAt(i) == 'p' || s.charAt(i) == 'P' : s.charAt(i) == 'e' || s.charAt(i) == 'E')){
+            i++;
+            if (i < end && (s.charAt(i) == '+' || s.charAt(i) == '-')) i++;
+            int exponentDigits = 0;
+            while (i < end && isDigit(s.charAt(i), false)){ i++; exponentDigits++; }
+            if (exponentDigits == 0) return false;
+        } else if (hex){
+            return false;
+        }
+
+        // Суффикс типа
+        if (i < end && "fFdD".indexOf(s.charAt(i)) >= 0) i++;
+        return i == end;
+    }
+
+    /**
+     * Распознать дату.<ul>
+     *     <li>Дата: dd.MM.yyyy, dd-MM-yyyy, yyyy.MM.dd или yyyy-MM-dd</li>
+     *     <li>Время (необязательно): пробел или T, затем HH:mm:ss (24:00:00 - начало следующего дня)</li>
+     *     <li>Смещение (необязательно, только после времени): Z или ±HH:MM</li>
+     * </ul>
+     * @return Упакованные поля даты или {@link #INVALID}
+     */
+    private static long scanDate(@NotNull String s){
+        int length = s.length();
+        if (length < 10) return INVALID;
+
+        int year;
+        int month;
+        int day;
+        char dayFirstSeparator = s.charAt(2);
+        char yearFirstSeparator = s.charAt(4);
+        if (dayFirstSeparator == '.' || dayFirstSeparator == '-'){
+            if (s.charAt(5) != dayFirstSeparator) return INVALID;
+            day = digits2(s, 0);
+            month = digits2(s, 3);
+            year = digits4(s, 6);
+        } else if (yearFirstSeparator == '.' || yearFirstSeparator == '-'){
+            if (s.charAt(7) != yearFirstSeparator) return INVALID;
+            year = digits4(s, 0);
+            month = digits2(s, 5);
+            day = digits2(s, 8);
+        } else {
+            return INVALID;
+        }
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31) return INVALID;
+        day = Math.min(day, lengthOfMonth(year, month));
+
+        if (length == 10) return pack(year, month, day, 0, 0, 0);
+
+        if (length < 19) return INVALID;
+        char timeSeparator = s.charAt(10);
+        if (timeSeparator != ' ' && timeSeparator != 'T') return INVALID;
+        if (s.charAt(13) != ':' || s.charAt(16) != ':') return INVALID;
+
+        int hour = digits2(s, 11);
+        int minute = digits2(s, 14);
+        int second = digits2(s, 17);
+        if (hour < 0 || hour > 24 || minute < 0 || minute > 59 || second < 0 || second > 59) return INVALID;
+        if (length != 19 && !isOffset(s, 19)) return INVALID;
+
+        // 24:00:00 - начало следующего дня (как в режиме SMART)
+        if (hour == 24){
+            if (minute != 0 || second != 0) return INVALID;
+            hour = 0;
+            if (++day > lengthOfMonth(year, month)){
+                day = 1;
+                if (++month > 12){
+                    month = 1;
+                    year++;
+                }
+            }
+        }
+        return pack(year, month, day, hour, minute, second);
+    }
+
+    /**
+     * Смещение часового пояса в формате XXX: Z или ±HH:MM (не больше 18 часов).
+     */
+    private static boolean isOffset(@NotNull String s, int from){
+        int rest = s.length() - from;
+        char sign = s.charAt(from);
+        if (rest == 1) return sign == 'Z';
+        if (rest != 6 || (sign != '+' && sign != '-') || s.charAt(from + 3) != ':') return false;
+
+        int hours = digits2(s, from + 1);
+        int minutes = digits2(s, from + 4);
+        return hours >= 0 && minutes >= 0 && minutes <= 59 && (hours < 18 || hours == 18 && minutes == 0);
+    }
+
+    private static long pack(int year, int month, int day, int hour, int minute, int second){
+        return (long) year << 26 | (long) month << 22 | (long) day << 17 | (long) hour << 12 | (long) minute << 6 | second;
+    }
+
+    private static int lengthOfMonth(int year, int month){
+        return switch (month){
+            case 2 -> Year.isLeap(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /**
+     * @return Число из двух цифр или -1, если там не цифры
+     */
+    private static int digits2(@NotNull String s, int from){
+        int high = s.charAt(from) - '0';
+        int low = s.charAt(from + 1) - '0';
+        if (high < 0 || high > 9 || low < 0 || low > 9) return -1;
+        return high * 10 + low;
+    }
+
+    /**
+     * @return Число из четырех цифр или -1, если там не цифры
+     */
+    private static int digits4(@NotNull String s, int from){
+        int high = digits2(s, from);
+        int low = digits2(s, from + 2);
+        if (high < 0 || low < 0) return -1;
+        return high * 100 + low;
+    }
+
+    private static boolean isDigit(char c, boolean hex){
+        if (c >= '0' && c <= '9') return true;
+        return hex && (c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isWord(@NotNull String s, int from, int end, @NotNull String word){
+        return end - from == word.length() && s.regionMatches(from, word, 0, word.length());
+    }
+
+}
@@ -12,7 +12,7 @@ import com.intellij.ui.EditorNotificationProvider;
 import com.intellij.ui.components.JBLabel;
 import com.intellij.util.ui.JBUI;
 import com.intellij.util.ui.UIUtil;
-import me.rubix327.liquibasehelper.StartProjectComponent;
+import me.rubix327.liquibasehelper.StartProjectService;
 import me.rubix327.liquibasehelper.Utils;
 import me.rubix327.liquibasehelper.locale.Localization;
 import me.rubix327.liquibasehelper.settings.StaticSettings;
@@ -81,7 +81,7 @@ public class UsageNotificationProvider implements EditorNotificationProvider {
     }
 
     public boolean isMainCumulative(Project project, VirtualFile file){
-        return file.getPath().endsWith(StartProjectComponent.getArtifactId(project) + "-cumulative.xml");
+        return file.getPath().endsWith(StartProjectService.getArtifactId(project) + "-cumulative.xml");
     }
 
     public boolean isFileMustBeLoadedByCumulative(Project project, VirtualFile file){
@@ -4,8 +4,8 @@ import com.intellij.codeInsight.completion.*;
 import com.intellij.codeInsight.lookup.LookupElement;
 import com.intellij.codeInsight.lookup.LookupElementBuilder;
 import com.intellij.icons.AllIcons;
+import com.intellij.openapi.project.DumbAware;
 import com.intellij.patterns.PlatformPatterns;
-import com.intellij.patterns.XmlPatterns;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.psi.xml.XmlTag;
@@ -23,68 +23,69 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-public class TagCompletionContributor extends CompletionContributor {
+/**
+ * Автодополнение дочерних тегов по правилам родительского тега.<br>
+ * Контейнер правил ищется в момент вызова, поэтому подхватываются правила, зарегистрированные после старта IDE,
+ * а во время индексации используется последний опубликованный реестр (или восстановленный снимок).
+ */
+public class TagCompletionContributor extends CompletionContributor implements DumbAware {
 
     public TagCompletionContributor() {
-        if (!StaticSettings.ENABLE_TAG_AUTO_COMPLETION){
-            return;
-        }
-
         InsertHandler<LookupElement> insertHandler = new XmlTagInsertHandler();
 
-        for (RulesManager instance : RulesManager.getAllInstances()) {
-            MainLogger.info(instance.getProject(), "Registering EntityCompletionContributor...");
-            for (TagRulesContainer rulesContainer : instance.getAllRulesContainers()) {
-                extend(CompletionType.BASIC,
-                        PlatformPatterns.psiElement(XmlTokenType.XML_NAME)
-                                .withParent(XmlTag.class)
-                                .inside(XmlPatterns.xmlTag().withName(rulesContainer.getParentTagName())),
-                        new CompletionProvider<>() {
-                            @Override
-                            protected void addCompletions(@NotNull CompletionParameters parameters,
-                                                          @NotNull ProcessingContext context,
-                                                          @NotNull CompletionResultSet result) {
+        extend(CompletionType.BASIC,
+                PlatformPatterns.psiElement(XmlTokenType.XML_NAME).withParent(XmlTag.class),
+                new CompletionProvider<>() {
+                    @Override
+                    protected void addCompletions(@NotNull CompletionParameters parameters,
+                                                  @NotNull ProcessingContext context,
+                                                  @NotNull CompletionResultSet result) {
 
-                                if (!StaticSettings.ENABLE_TAG_AUTO_COMPLETION){
-                                    return;
-                                }
-                                if (!parameters.getPosition().getProject().equals(instance.getProject())){
-                                    return;
-                                }
+                        if (!StaticSettings.ENABLE_TAG_AUTO_COMPLETION){
+                            return;
+                        }
 
-                                // Получаем текущий тег
-                                PsiElement originalPosition = parameters.getOriginalPosition();
-                                XmlTag currentTag = PsiTreeUtil.getParentOfType(originalPosition, XmlTag.class);
+                        PsiElement position = parameters.getPosition();
+                        RulesManager rulesManager = RulesManager.getInstance(position.getProject());
 
-                                // Получаем теги, которые уже есть внутри родительского
-                                Set<String> existingSubTags = new HashSet<>();
-                                if (currentTag != null){
-                                    existingSubTags = Arrays.stream(currentTag.getSubTags()).map(XmlTag::getName).collect(Collectors.toSet());
-                                }
+                        // Ближайший родительский тег, для которого есть правила
+                        TagRulesContainer rulesContainer = null;
+                        for (XmlTag tag = PsiTreeUtil.getParentOfType(position, XmlTag.class); tag != null; tag = tag.getParentTag()){
+                            rulesContainer = rulesManager.getRulesContainerByTagName(tag.getName());
+                            if (rulesContainer != null) break;
+                        }
+                        if (rulesContainer == null || rulesContainer.getTagRules() == null) return;
 
-                                MainLogger.info(instance.getProject(), "Applying autocomplete options for tag %s: %s, excluding %s.",
-                                        rulesContainer.getParentTagName(), rulesContainer.getTagRules().stream().map(TagRule::getTagName).toList(), existingSubTags);
+                        // Получаем текущий тег
+                        PsiElement originalPosition = parameters.getOriginalPosition();
+                        XmlTag currentTag = PsiTreeUtil.getParentOfType(originalPosition, XmlTag.class);
+
+                        // Получаем теги, которые уже есть внутри родительского
+                        Set<String> existingSubTags = new HashSet<>();
+                        if (currentTag != null){
+                            existingSubTags = Arrays.stream(currentTag.getSubTags()).map(XmlTag::getName).collect(Collectors.toSet());
+                        }
 
-                                // Добавляем в автокомплит только те теги, которые еще не объявлены
-                                for (TagRule tagRule : rulesContainer.getTagRules()) {
-                                    if (existingSubTags.contains(tagRule.getTagName())) continue;
+                        MainLogger.info(rulesManager.getProject(), "Applying autocomplete options for tag %s: %s, excluding %s.",
+                                rulesContainer.getParentTagName(), rulesContainer.getTagRules().stream().map(TagRule::getTagName).toList(), existingSubTags);
 
-                                    result.addElement(LookupElementBuilder
-                                            .create(tagRule.getTagName())
-                                            .withIcon(AllIcons.Actions.Play_last)
-                                            .withTypeText(tagRule.getTagTooltip())
-                                            .withInsertHandler(insertHandler)
-                                    );
+                        // Добавляем в автокомплит только те теги, которые еще не объявлены
+                        for (TagRule tagRule : rulesContainer.getTagRules()) {
+                            if (existingSubTags.contains(tagRule.getTagName())) continue;
 
-                                }
+                            result.addElement(LookupElementBuilder
+                                    .create(tagRule.getTagName())
+                                    .withIcon(AllIcons.Actions.Play_last)
+                                    .withTypeText(tagRule.getTagTooltip())
+                                    .withInsertHandler(insertHandler)
+                            );
 
-                                // Глушим встроенные автодополнения
-                                result.runRemainingContributors(parameters, resultSet -> {});
-                            }
                         }
-                );
-            }
-        }
 
+                        // Глушим встроенные автодополнения
+                        result.runRemainingContributors(parameters, resultSet -> {});
+                    }
+                }
+        );
     }
 }
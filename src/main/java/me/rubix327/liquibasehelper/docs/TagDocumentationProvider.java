@@ -1,9 +1,10 @@
 package me.rubix327.liquibasehelper.docs;
 
 import com.intellij.lang.documentation.DocumentationProvider;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Key;
-import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
@@ -11,8 +12,8 @@ import com.intellij.psi.xml.XmlAttribute;
 import com.intellij.psi.xml.XmlElement;
 import com.intellij.psi.xml.XmlTag;
 import com.intellij.psi.xml.XmlText;
-import me.rubix327.liquibasehelper.AnnotationUtils;
 import me.rubix327.liquibasehelper.Utils;
+import me.rubix327.liquibasehelper.ValueScanner;
 import me.rubix327.liquibasehelper.inspection.RulesManager;
 import me.rubix327.liquibasehelper.inspection.XmlTagValuesInspector;
 import me.rubix327.liquibasehelper.inspection.model.AttributeRule;
@@ -27,12 +28,19 @@ import org.jetbrains.annotations.Nullable;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
-public class TagDocumentationProvider implements DocumentationProvider {
+/**
+ * Документация тегов и атрибутов.<br>
+ * Работает и во время индексации: правила берутся из последнего опубликованного реестра (или восстановленного снимка),
+ * а к индексам обращаются только переходы по ссылкам на классы.
+ */
+public class TagDocumentationProvider implements DocumentationProvider, DumbAware {
 
     private static final Key<String> CLASS_DOC_KEY = Key.create("classDoc");
+    private static final DateTimeFormatter DATE_TOOLTIP_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss");
 
     // Обработчик нажатий на ссылки внутри документации
     @Override
@@ -41,6 +49,8 @@ public class TagDocumentationProvider implements DocumentationProvider {
         if (link.startsWith("class:") || link.startsWith("field:")){
             String[] parts = link.split(":");
             if (parts.length < 3) return null;
+            // Поиск класса требует индексов
+            if (DumbService.isDumb(context.getProject())) return null;
 
             String classPath = parts[1]; // class qualifiedName
             String offsetStr = parts[2]; // offset from TagRule.metaFieldOffset or TagRulesContainer.metaClassNameOffset
@@ -85,11 +95,11 @@ public class TagDocumentationProvider implements DocumentationProvider {
         // Формирование документации другого класса из уже существующей документации
         String linkedClassPath = element.getUserData(CLASS_DOC_KEY);
         if (linkedClassPath != null){
-            PsiClass linkedClass = Utils.findPsiClassByQualifiedName(element.getProject(), linkedClassPath);
-            if (linkedClass != null && linkedClass.getName() != null){
-                String tag = RulesManager.getDatamodelTagOfClass(linkedClass);
-                assert tag != null;
-                TagRulesContainer container = RulesManager.getInstance(element.getProject()).getRulesContainerByTagName(tag);
+            // Тег класса берется из реестра, а не из PSI, чтобы ссылка работала и во время индексации
+            RulesManager rulesManager = RulesManager.getInstance(element.getProject());
+            String tag = rulesManager.getDatamodelValueFromRegistry(linkedClassPath);
+            TagRulesContainer container = tag != null ? rulesManager.getRulesContainerByTagName(tag) : null;
+            if (container != null){
                 return getParentTagTooltip(element.getProject(), tag, container);
             }
         }
@@ -118,9 +128,9 @@ public class TagDocumentationProvider implements DocumentationProvider {
 
     private String getTextTooltip(XmlText xmlText) {
 //        System.out.println(xmlText.getValue());
-        LocalDateTime date = Utils.getDate(xmlText.getValue());
+        LocalDateTime date = ValueScanner.parseDate(xmlText.getValue());
         if (date != null){
-            return DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss").format(date);
+            return DATE_TOOLTIP_FORMATTER.format(date);
         }
         return null;
     }
@@ -128,7 +138,7 @@ public class TagDocumentationProvider implements DocumentationProvider {
     private String getAttributeTooltip(@NotNull XmlAttribute attribute) {
 //        System.out.println("XML ATTRIBUTE: " + attribute + " // " + attribute.getName() + " // " + attribute.getParent() + " // " + attribute.getParent().getName());
 
-        AttributeRule rule = AttributeRule.getSuitableAttributeRule(XmlTagValuesInspector.attributeRules, attribute);
+        AttributeRule rule = XmlTagValuesInspector.attributeRulesIndex.getSuitableRule(attribute);
         if (rule == null) return null;
 
         if (rule.getAttributeTooltip() == null) return null;
@@ -148,19 +158,21 @@ public class TagDocumentationProvider implements DocumentationProvider {
         TagRulesContainer containerOfThisParent = rulesManager.getRulesContainerByTagName(tag.getParentTag().getName());
         if (containerOfThisParent == null || containerOfThisParent.getTagRules() == null || containerOfThisParent.getTagRules().isEmpty()) return null;
 
-        TagRule rule = TagRule.getSuitableTagRule(containerOfThisParent.getTagRules(), tag);
+        TagRule rule = TagRule.getSuitableTagRule(containerOfThisParent, tag);
         if (rule == null) return null;
 
         return getChildTagTooltip(rule);
     }
 
     private String getParentTagTooltip(@NotNull Project project, @NotNull String fallbackName, @NotNull TagRulesContainer tagRulesContainer){
+        RulesManager rulesManager = RulesManager.getInstance(project);
         StringBuilder resultTooltip = new StringBuilder();
 
         String tooltip = tagRulesContainer.getParentTagTooltip();
         resultTooltip.append("<b>").append(Utils.isNotBlank(tooltip) ? tooltip : fallbackName).append("</b>");
         resultTooltip.append(Utils.isNotBlank(tagRulesContainer.getParentTagDescription()) ? "<br>" + tagRulesContainer.getParentTagDescription() : "");
-        List<TagRule> tagRules = tagRulesContainer.getTagRules();
+        // Сортируем копию: контейнер принадлежит опубликованному реестру правил и читается из других потоков
+        List<TagRule> tagRules = tagRulesContainer.getTagRules() != null ? new ArrayList<>(tagRulesContainer.getTagRules()) : null;
         if (tagRules != null && !tagRules.isEmpty()){
             resultTooltip.append("<br><br>").append(Localization.message("docs.available-tags"));
             TagRule.sortByImportance(tagRules);
@@ -170,9 +182,9 @@ public class TagDocumentationProvider implements DocumentationProvider {
 
                 // Формирование ссылки на класс поля со списочным типом, если он является @CbsDatamodelClass
                 // Например List<EnumerationValueMeta> - формируем ссылку на класс EnumerationValueMeta
-                PsiClass linkedClass = Utils.findPsiClassByQualifiedName(project, tagRule.getListLinkToBaseClass());
-                if (linkedClass != null && linkedClass.getQualifiedName() != null && !AnnotationUtils.isNotDatamodelClass(linkedClass)){
-                    String link = Utils.getHtmlLink("classDoc:" + linkedClass.getQualifiedName(), tagRule.getTagName());
+                String linkedClassPath = tagRule.getListLinkToBaseClass();
+                if (linkedClassPath != null && rulesManager.getDatamodelValueFromRegistry(linkedClassPath) != null){
+                    String link = Utils.getHtmlLink("classDoc:" + linkedClassPath, tagRule.getTagName());
                     resultTooltip.append(link);
                 }
                 // Обычный случай (просто название тега из правила)
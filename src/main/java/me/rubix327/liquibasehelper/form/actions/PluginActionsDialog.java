@@ -3,8 +3,8 @@ package me.rubix327.liquibasehelper.form.actions;
 import com.intellij.openapi.options.ShowSettingsUtil;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogWrapper;
-import me.rubix327.liquibasehelper.StartProjectComponent;
 import me.rubix327.liquibasehelper.form.metadatagenerator.MetadataGeneratorChooseDialog;
+import me.rubix327.liquibasehelper.listener.RulesReloadScheduler;
 import me.rubix327.liquibasehelper.locale.Localization;
 import me.rubix327.liquibasehelper.log.MainLogger;
 import me.rubix327.liquibasehelper.settings.StaticSettings;
@@ -34,7 +34,7 @@ public class PluginActionsDialog extends DialogWrapper {
         JButton reloadRulesButton = new JButton(Localization.message("actions.reload-rules"));
         reloadRulesButton.addActionListener((event) -> {
             MainLogger.info(project, "Clicked 'Reload rules' button in Actions menu...");
-            StartProjectComponent.registerRulesForAllClassesAfterIndexingInBackground(project);
+            RulesReloadScheduler.getInstance(project).schedule("'Reload rules' button");
         });
 
         JButton changesetTreeButton = new JButton(Localization.message("actions.changeset-tree"));
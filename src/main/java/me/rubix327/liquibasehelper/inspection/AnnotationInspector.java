@@ -3,17 +3,13 @@ package me.rubix327.liquibasehelper.inspection;
 import com.intellij.codeInspection.LocalInspectionTool;
 import com.intellij.codeInspection.LocalQuickFix;
 import com.intellij.codeInspection.ProblemsHolder;
-import com.intellij.navigation.NavigationItem;
 import com.intellij.psi.*;
-import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.psi.search.searches.ClassInheritorsSearch;
 import com.intellij.psi.util.PsiUtil;
 import me.rubix327.liquibasehelper.AnnotationUtils;
 import me.rubix327.liquibasehelper.Utils;
 import me.rubix327.liquibasehelper.inspection.model.TagRulesContainer;
 import me.rubix327.liquibasehelper.inspection.quickfix.*;
 import me.rubix327.liquibasehelper.locale.Localization;
-import me.rubix327.liquibasehelper.log.MainLogger;
 import me.rubix327.liquibasehelper.settings.CbsAnnotation;
 import me.rubix327.liquibasehelper.settings.StaticSettings;
 import org.jetbrains.annotations.NotNull;
@@ -41,10 +37,9 @@ public class AnnotationInspector extends LocalInspectionTool {
                     return;
                 }
 
+                // Инспекция только читает правила: их пересборку после изменений выполняет RulesUpdateService
                 RulesManager instance = RulesManager.getInstance(psiClass.getProject());
-
                 checkClass(instance, psiClass);
-                updateClassesUsingEnums(instance, psiClass);
             }
 
             public void checkClass(@NotNull RulesManager instance, @NotNull PsiClass psiClass){
@@ -65,7 +60,6 @@ public class AnnotationInspector extends LocalInspectionTool {
                         message = Localization.message("class.warn.interfaces", CbsDatamodelClass.SHORT_NAME);
                     }
 
-                    instance.removeRulesOfClass(psiClass, "Class is either inner, nested, enum or interface", "AnnotationInspector: checkClass");
                     Utils.registerError(holder, annotation,
                             new RemovePsiElementQuickFix(annotation, Localization.message("field.quickfix.delete-annotation", CbsDatamodelClass.SHORT_NAME)),
                             message);
@@ -74,8 +68,6 @@ public class AnnotationInspector extends LocalInspectionTool {
 
                 // Проверка на то, чтобы название класса совпадало с названием файла
                 if (Utils.isClassAndFileNamesNotMatch(psiClass)){
-                    instance.removeRulesOfClass(psiClass, "Class name does not match file name", "AnnotationInspector: checkClass");
-
                     LocalQuickFix fix = null;
                     if (psiClass.getContainingFile() != null) {
                         String newClassName = psiClass.getContainingFile().getName()
@@ -106,21 +98,6 @@ public class AnnotationInspector extends LocalInspectionTool {
                 if (thisClassQualifiedName == null) return;
                 if (currentDatamodelName == null) return;
 
-                // Удаляем мусорные правила в процессе изменения tag у аннотации @CbsDatamodelClass
-                String savedDatamodelName = instance.getDatamodelValueFromRegistry(thisClassQualifiedName);
-                if (!currentDatamodelName.equals(savedDatamodelName)){
-                    instance.removeRulesByTagNameAndClass(thisClassQualifiedName, savedDatamodelName);
-                    instance.putDatamodelValueToRegistry(thisClassQualifiedName, currentDatamodelName);
-                }
-
-                // Собираем правила для класса и его родителей
-                instance.handleClassAndSuperClasses(psiClass, "AnnotationInspector: checkClass: exact class");
-
-                // Обновляем правила наследников, в случае если были изменены правила в родителе
-                for (PsiClass inheritor : getInheritors(psiClass, ".metaloader.")) {
-                    instance.handleClassAndSuperClasses(inheritor, "AnnotationInspector: checkClass: inheritor");
-                }
-
                 // Проверка на совпадающие теги у классов
                 List<TagRulesContainer> rulesFromDatamodelName = instance.getRulesContainerListByTagName(currentDatamodelName);
                 if (rulesFromDatamodelName.size() > 1){
@@ -137,21 +114,6 @@ public class AnnotationInspector extends LocalInspectionTool {
                 super.visitClass(psiClass);
             }
 
-            void updateClassesUsingEnums(@NotNull RulesManager instance, @NotNull PsiClass psiClass){
-                // Если обновляется enum, который используется в мета-классах, то нужно обновить правила в этих мета-классах
-                Set<PsiClass> classesToUpdate = instance.getClassesUsingThisEnum(psiClass);
-                if (classesToUpdate != null){
-                    MainLogger.info(instance.getProject(), "Updating classes using enum %s: %s", psiClass.getName(), classesToUpdate.stream().map(NavigationItem::getName).toList());
-                    for (PsiClass classToUpdate : classesToUpdate) {
-                        if (classToUpdate == null || !classToUpdate.isValid()) continue;
-                        instance.handleClassAndSuperClasses(classToUpdate, "AnnotationInspector: updateClassesUsingEnums: exact class");
-                        for (PsiClass inheritor : getInheritors(classToUpdate, ".metaloader.")) {
-                            instance.handleClassAndSuperClasses(inheritor, "AnnotationInspector: updateClassesUsingEnums: inheritor");
-                        }
-                    }
-                }
-            }
-
             @Override
             public void visitField(@NotNull PsiField field) {
                 if (!StaticSettings.ENABLE_INSPECTIONS){
@@ -164,18 +126,6 @@ public class AnnotationInspector extends LocalInspectionTool {
         };
     }
 
-    /**
-     * Найти наследников определенного класса
-     */
-    public static Collection<PsiClass> getInheritors(PsiClass psiClass, String mustContainPath) {
-        GlobalSearchScope scope = GlobalSearchScope.allScope(psiClass.getProject());
-        return ClassInheritorsSearch.search(psiClass, scope, true)
-                .findAll().stream()
-                .filter(c -> c.getQualifiedName() != null)
-                .filter(c -> Utils.isBlank(mustContainPath) || c.getQualifiedName().contains(mustContainPath))
-                .toList();
-    }
-
     public void checkForFieldConstraints(PsiField field, ProblemsHolder holder) {
         PsiAnnotation annotation = AnnotationUtils.findAnnotation(field, CbsDatamodelField.INSTANCE);
         if (annotation == null){
@@ -0,0 +1,710 @@
+package me.rubix327.liquibasehelper.inspection;
+
+import com.intellij.concurrency.SensitiveProgressWrapper;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import me.rubix327.liquibasehelper.AnnotationUtils;
+import me.rubix327.liquibasehelper.Utils;
+import me.rubix327.liquibasehelper.inspection.model.AvailableValue;
+import me.rubix327.liquibasehelper.inspection.model.PrecomputedClassRules;
+import me.rubix327.liquibasehelper.inspection.model.TagRule;
+import me.rubix327.liquibasehelper.inspection.model.TagRulesContainer;
+import me.rubix327.liquibasehelper.settings.CbsAnnotation;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.org.objectweb.asm.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static me.rubix327.liquibasehelper.settings.CbsAnnotation.*;
+
+/**
+ * Сбор правил из скомпилированных классов (.jar зависимостей) без PSI.<br>
+ * Аннотации @CbsDatamodelClass/@CbsDatamodelField/@CbsDatamodelValue читаются прямо из class-файлов,
+ * а значения перечислений - из их статического инициализатора, поэтому, в отличие от декомпилированных стабов,
+ * учитываются и аргументы конструктора перечисления.<br>
+ * Классы указанных пакетов читаются из .jar параллельно. Родители и перечисления, лежащие в других .jar,
+ * ищутся по переданному classpath.<br><br>
+ * В class-файлах нет javadoc и позиций в исходном тексте, поэтому у значений перечислений нет комментариев,
+ * а ссылки на поля ведут в начало класса.
+ */
+public class BytecodeRulesExtractor implements Closeable {
+
+    private static final int MAX_WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final ExecutorService EXECUTOR = AppExecutorUtil.createBoundedApplicationPoolExecutor("LiquibaseHelper Bytecode Rules", MAX_WORKERS);
+
+    private static final String CLASS_EXTENSION = ".class";
+    /**
+     * Начало сигнатуры поля типа java.util.List с параметром
+     */
+    private static final String LIST_SIGNATURE_PREFIX = "Ljava/util/List<";
+    private static final Set<String> ALLOWED_TYPES = Set.of(
+            String.class.getName(), Long.class.getName(), Double.class.getName(), Boolean.class.getName(), Date.class.getName());
+
+    /**
+     * Правила из полей одного класса (без родителей).
+     */
+    private record FieldRules(@NotNull List<TagRule> rules, @NotNull Set<String> usedEnums) {}
+
+    private final List<Path> classPath;
+    private final Map<Path, ZipFile> openedJars = new ConcurrentHashMap<>();
+    /**
+     * Прочитанные классы: внутреннее название (pkg/Name) -> класс (пустой, если класс не найден или не читается)
+     */
+    private final Map<String, Optional<ClassFileInfo>> classes = new ConcurrentHashMap<>();
+    /**
+     * Правила из полей классов. Общий mapped-родитель разбирается один раз.
+     */
+    private final Map<String, FieldRules> fieldRules = new ConcurrentHashMap<>();
+
+    /**
+     * @param classPath .jar файлы и папки с классами, в которых ищутся родители и перечисления
+     */
+    public BytecodeRulesExtractor(@NotNull List<Path> classPath) {
+        this.classPath = classPath;
+    }
+
+    /**
+     * Собрать правила классов указанных пакетов .jar.<br>
+     * Не требует read action.
+     * @param jarPath .jar файл
+     * @param packages Пакеты (вложенные пакеты не обходятся)
+     * @param indicator Индикатор фоновой задачи (отмена останавливает все потоки)
+     * @return Правила подходящих классов (mapped-классы, перечисления и прочие классы пропускаются)
+     */
+    @NotNull
+    public List<PrecomputedClassRules> extract(@NotNull Path jarPath, @NotNull Collection<String> packages, @NotNull ProgressIndicator indicator) throws IOException {
+        ZipFile jar = openJar(jarPath);
+        Set<String> packagePaths = new HashSet<>();
+        for (String pack : packages) {
+            packagePaths.add(pack.replace('.', '/'));
+        }
+
+        List<String> classNames = new ArrayList<>();
+        for (Enumeration<? extends ZipEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+            String entryName = entries.nextElement().getName();
+            if (!entryName.endsWith(CLASS_EXTENSION)) continue;
+
+            int lastSlash = entryName.lastIndexOf('/');
+            if (lastSlash < 0 || !packagePaths.contains(entryName.substring(0, lastSlash))) continue;
+            // Только классы верхнего уровня (как и PsiPackage#getClasses)
+            String className = entryName.substring(0, entryName.length() - CLASS_EXTENSION.length());
+            if (className.indexOf('$', lastSlash) >= 0) continue;
+
+            classNames.add(className);
+            // Классы пакета читаются именно из этого .jar, даже если такие же есть в других
+            classes.computeIfAbsent(className, k -> Optional.ofNullable(readClass(jar, entryName)));
+        }
+
+        List<Future<List<PrecomputedClassRules>>> futures = new ArrayList<>();
+        for (List<String> partition : ParallelRulesExtractor.partition(classNames, MAX_WORKERS)) {
+            futures.add(EXECUTOR.submit(() -> ProgressManager.getInstance().runProcess(
+                    () -> extractPartition(partition), new SensitiveProgressWrapper(indicator))));
+        }
+
+        List<PrecomputedClassRules> result = new ArrayList<>();
+        try {
+            for (Future<List<PrecomputedClassRules>> future : futures) {
+                result.addAll(ParallelRulesExtractor.await(future, indicator));
+            }
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+        }
+        return result;
+    }
+
+    @NotNull
+    private List<PrecomputedClassRules> extractPartition(@NotNull List<String> classNames){
+        List<PrecomputedClassRules> result = new ArrayList<>();
+        for (String className : classNames) {
+            ProgressManager.checkCanceled();
+            PrecomputedClassRules classRules = extractClass(className);
+            if (classRules != null){
+                result.add(classRules);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Собрать правила класса вместе с правилами его родителей (аналог {@link RulesManager#extractRules}).
+     */
+    @Nullable
+    private PrecomputedClassRules extractClass(@NotNull String className){
+        ClassFileInfo classInfo = findClass(className);
+        if (!isDatamodelClass(classInfo)) return null;
+        assert classInfo != null;
+
+        AnnotationInfo classAnnotation = classInfo.findAnnotation(CbsDatamodelClass.INSTANCE);
+        assert classAnnotation != null;
+        if (Boolean.TRUE.equals(classAnnotation.getBoolean(CbsDatamodelClass.Fields.MAPPED))) return null;
+
+        FieldRules ownRules = getFieldRules(classInfo);
+        List<TagRule> mergedRules = ownRules.rules();
+        Set<String> usedEnums = new HashSet<>(ownRules.usedEnums());
+        List<String> superClasses = new ArrayList<>();
+        Set<String> visited = new HashSet<>(Set.of(className));
+
+        for (String superName = classInfo.superName; superName != null && visited.add(superName); ) {
+            ClassFileInfo superInfo = findClass(superName);
+            if (!isDatamodelClass(superInfo)) break;
+            assert superInfo != null;
+
+            FieldRules rulesFromSuper = getFieldRules(superInfo);
+            mergedRules = RulesManager.mergeRules(mergedRules, rulesFromSuper.rules());
+            usedEnums.addAll(rulesFromSuper.usedEnums());
+            superClasses.add(superInfo.getQualifiedName());
+            superName = superInfo.superName;
+        }
+
+        TagRulesContainer container = new TagRulesContainer()
+                .setParentTagName(getDatamodelTag(classInfo, classAnnotation))
+                .setTagRules(mergedRules)
+                .setParentTagTooltip(classAnnotation.getString(CbsDatamodelClass.Fields.COMMENT))
+                .setParentTagDescription(classAnnotation.getString(CbsDatamodelClass.Fields.DESCRIPTION))
+                .setClassPath(classInfo.getQualifiedName());
+        return new PrecomputedClassRules(container, Set.copyOf(usedEnums), List.copyOf(superClasses));
+    }
+
+    /**
+     * Аналог {@link AnnotationUtils#checkIsDatamodelClass}.
+     */
+    private static boolean isDatamodelClass(@Nullable ClassFileInfo classInfo){
+        if (classInfo == null) return false;
+        String qualifiedName = classInfo.getQualifiedName();
+        if (Object.class.getName().equals(qualifiedName) || !qualifiedName.contains(".metaloader.")) return false;
+        if (classInfo.isInner || classInfo.isEnum()) return false;
+        return classInfo.findAnnotation(CbsDatamodelClass.INSTANCE) != null;
+    }
+
+    /**
+     * Аналог {@link RulesManager#getDatamodelTagOfClass}.
+     */
+    @NotNull
+    private static String getDatamodelTag(@NotNull ClassFileInfo classInfo, @NotNull AnnotationInfo classAnnotation){
+        String fromField = classAnnotation.getString(CbsDatamodelClass.Fields.TAG);
+        if (fromField != null) return fromField;
+
+        String qualifiedName = classInfo.getQualifiedName();
+        String simpleName = qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+        return Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1);
+    }
+
+    @NotNull
+    private FieldRules getFieldRules(@NotNull ClassFileInfo classInfo){
+        FieldRules cached = fieldRules.get(classInfo.name);
+        if (cached != null) return cached;
+
+        FieldRules rules = getRulesFromFields(classInfo);
+        fieldRules.putIfAbsent(classInfo.name, rules);
+        return rules;
+    }
+
+    /**
+     * Аналог {@link RulesManager#getRulesFromFields}.
+     */
+    @NotNull
+    private FieldRules getRulesFromFields(@NotNull ClassFileInfo classInfo){
+        List<TagRule> resultRules = new ArrayList<>();
+        Set<String> usedEnums = new HashSet<>();
+
+        for (FieldInfo field : classInfo.fields) {
+            AnnotationInfo fieldAnnotation = field.findAnnotation(CbsDatamodelField.INSTANCE);
+            if (fieldAnnotation == null) continue;
+
+            TagRule tagRule = new TagRule(field.name);
+            tagRule.setMetaClassPath(classInfo.getQualifiedName());
+            tagRule.setTagTooltip(fieldAnnotation.getString(CbsDatamodelField.Fields.COMMENT));
+            tagRule.setTagDescription(fieldAnnotation.getString(CbsDatamodelField.Fields.DESCRIPTION));
+            tagRule.setRequired(Boolean.TRUE.equals(fieldAnnotation.getBoolean(CbsDatamodelField.Fields.REQUIRED)));
+            Object maxLength = fieldAnnotation.values.get(CbsDatamodelField.Fields.MAX_LENGTH);
+            tagRule.setMaxLength(maxLength instanceof Integer i ? i : 0);
+            tagRule.setListLinkToBaseClass(getFirstTypeArgument(field.signature));
+
+            Object type = fieldAnnotation.values.get(CbsDatamodelField.Fields.TYPE);
+            if (type instanceof Type typeValue && ALLOWED_TYPES.contains(typeValue.getClassName())){
+                tagRule.setType(typeValue.getClassName());
+            }
+
+            // Если тип Boolean, то заполнять возможные значения не требуется
+            if (Boolean.class.getTypeName().equals(tagRule.getType())){
+                resultRules.add(tagRule);
+                continue;
+            }
+
+            // Возможные значения из availableValues (в class-файле и одиночная строка, и константа хранятся массивом строк)
+            if (fieldAnnotation.values.get(CbsDatamodelField.Fields.AVAILABLE_VALUES) instanceof List<?> availableValuesArray){
+                List<AvailableValue> availableValuesList = new ArrayList<>();
+                for (Object element : availableValuesArray) {
+                    if (element instanceof String s){
+                        availableValuesList.addAll(AvailableValue.stringToAvailableValues(s));
+                    }
+                }
+                tagRule.setAvailableValues(availableValuesList);
+            }
+
+            // Возможные значения из availableValuesEnum
+            if (fieldAnnotation.values.get(CbsDatamodelField.Fields.AVAILABLE_VALUES_ENUM) instanceof Type enumType){
+                List<AvailableValue> availableValuesFromEnum = getAvailableValuesFromEnum(enumType.getInternalName(), usedEnums);
+                if (availableValuesFromEnum != null && !availableValuesFromEnum.isEmpty()){
+                    tagRule.setAvailableValues(availableValuesFromEnum);
+                }
+            }
+
+            // Возможные значения из availableValuesEnumPath
+            String availableValuesEnumPath = fieldAnnotation.getString(CbsDatamodelField.Fields.AVAILABLE_VALUES_ENUM_PATH);
+            if (availableValuesEnumPath != null){
+                List<AvailableValue> availableValuesFromEnumPath = getAvailableValuesFromEnum(availableValuesEnumPath.replace('.', '/'), usedEnums);
+                if (availableValuesFromEnumPath != null){
+                    tagRule.setAvailableValues(availableValuesFromEnumPath);
+                }
+            }
+
+            resultRules.add(tagRule);
+        }
+
+        return new FieldRules(List.copyOf(resultRules), Set.copyOf(usedEnums));
+    }
+
+    @Nullable
+    private List<AvailableValue> getAvailableValuesFromEnum(@NotNull String enumName, @NotNull Set<String> usedEnums){
+        ClassFileInfo enumInfo = findClass(enumName);
+        if (enumInfo == null || !enumInfo.isEnum()) return null;
+        usedEnums.add(enumInfo.getQualifiedName());
+
+        List<AvailableValue> result = new ArrayList<>();
+        for (FieldInfo field : enumInfo.fields) {
+            if (!field.isEnumConstant()) continue;
+            if (field.findAnnotation(CbsDatamodelIgnore.INSTANCE) != null) continue;
+            result.add(new AvailableValue(getEnumValue(enumInfo, field)));
+        }
+        return result;
+    }
+
+    /**
+     * Аналог {@link RulesManager#getEnumValue}: значение из @CbsDatamodelValue, затем аргумент конструктора,
+     * который записывается в поле value, затем название константы.
+     */
+    @NotNull
+    private static String getEnumValue(@NotNull ClassFileInfo enumInfo, @NotNull FieldInfo constant){
+        AnnotationInfo valueAnnotation = constant.findAnnotation(CbsDatamodelValue.INSTANCE);
+        if (valueAnnotation != null){
+            String value = valueAnnotation.getString(CbsDatamodelValue.Fields.VALUE);
+            if (value != null) return value;
+        }
+
+        List<Object> arguments = enumInfo.constantArguments.get(constant.name);
+        Integer valueIndex = enumInfo.valueArgumentIndex;
+        if (valueIndex != null && arguments != null && arguments.size() > valueIndex && arguments.get(valueIndex) != null){
+            return String.valueOf(arguments.get(valueIndex));
+        }
+
+        return constant.name;
+    }
+
+    /**
+     * Получить класс элементов списка из сигнатуры поля (List&lt;pkg.Foo&gt; -> pkg.Foo).<br>
+     * Как и через PSI (см. {@link Utils#getPsiClassFromListType}), учитывается только java.util.List.
+     */
+    @Nullable
+    private static String getFirstTypeArgument(@Nullable String signature){
+        if (signature == null || !signature.startsWith(LIST_SIGNATURE_PREFIX)) return null;
+        int start = LIST_SIGNATURE_PREFIX.length() - 1;
+        if (start + 1 >= signature.length() || signature.charAt(start + 1) != 'L') return null;
+
+        int end = start + 2;
+        while (end < signature.length() && signature.charAt(end) != ';' && signature.charAt(end) != '<') end++;
+        return signature.substring(start + 2, end).replace('/', '.').replace('$', '.');
+    }
+
+    @Nullable
+    private ClassFileInfo findClass(@NotNull String internalName){
+        Optional<ClassFileInfo> cached = classes.get(internalName);
+        if (cached != null) return cached.orElse(null);
+
+        ClassFileInfo classInfo = null;
+        String entryName = internalName + CLASS_EXTENSION;
+        for (Path root : classPath) {
+            try {
+                if (Files.isDirectory(root)){
+                    Path classFile = root.resolve(entryName);
+                    if (Files.isRegularFile(classFile)){
+                        classInfo = parse(Files.readAllBytes(classFile));
+                        break;
+                    }
+                } else {
+                    ZipFile jar = openJar(root);
+                    if (jar.getEntry(entryName) != null){
+                        classInfo = readClass(jar, entryName);
+                        break;
+                    }
+                }
+            } catch (IOException ignored) {
+                // Нечитаемый элемент classpath пропускается
+            }
+        }
+
+        classes.putIfAbsent(internalName, Optional.ofNullable(classInfo));
+        return classInfo;
+    }
+
+    @NotNull
+    private ZipFile openJar(@NotNull Path jarPath) throws IOException {
+        ZipFile jar = openedJars.get(jarPath);
+        if (jar != null) return jar;
+
+        ZipFile opened = new ZipFile(jarPath.toFile());
+        jar = openedJars.putIfAbsent(jarPath, opened);
+        if (jar != null){
+            opened.close();
+            return jar;
+        }
+        return opened;
+    }
+
+    @Nullable
+    private static ClassFileInfo readClass(@NotNull ZipFile jar, @NotNull String entryName){
+        ZipEntry entry = jar.getEntry(entryName);
+        if (entry == null) return null;
+        try (InputStream inputStream = jar.getInputStream(entry)) {
+            return parse(inputStream.readAllBytes());
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    @NotNull
+    private static ClassFileInfo parse(byte[] bytes){
+        ClassReader reader = new ClassReader(bytes);
+        // Код методов нужен только перечислениям (аргументы конструкторов констант)
+        boolean isEnum = (reader.getAccess() & Opcodes.ACC_ENUM) != 0;
+        ClassFileInfo classInfo = new ClassFileInfo();
+        reader.accept(classInfo.visitor(), isEnum ? ClassReader.SKIP_FRAMES | ClassReader.SKIP_DEBUG : ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG);
+        return classInfo;
+    }
+
+    @Override
+    public void close() {
+        for (ZipFile jar : openedJars.values()) {
+            try {
+                jar.close();
+            } catch (IOException ignored) {
+            }
+        }
+        openedJars.clear();
+    }
+
+    /**
+     * Значения аннотации: String, Boolean, Integer, {@link Type} (для Class), List (для массивов).
+     */
+    private static final class AnnotationInfo {
+
+        private final String qualifiedName;
+        private final Map<String, Object> values = new HashMap<>();
+
+        private AnnotationInfo(@NotNull String descriptor) {
+            this.qualifiedName = Type.getType(descriptor).getClassName();
+        }
+
+        /**
+         * Аналог {@link AnnotationUtils#getStringValue}: пустые строки не учитываются.
+         */
+        @Nullable
+        String getString(@NotNull String name){
+            return values.get(name) instanceof String s && Utils.isNotBlank(s) ? s : null;
+        }
+
+        @Nullable
+        Boolean getBoolean(@NotNull String name){
+            return values.get(name) instanceof Boolean b ? b : null;
+        }
+
+        @NotNull
+        AnnotationVisitor visitor(){
+            return new AnnotationVisitor(Opcodes.ASM9) {
+                @Override
+                public void visit(String name, Object value) {
+                    values.put(name, value);
+                }
+
+                @Override
+                public AnnotationVisitor visitArray(String name) {
+                    List<Object> array = new ArrayList<>();
+                    values.put(name, array);
+                    return new AnnotationVisitor(Opcodes.ASM9) {
+                        @Override
+                        public void visit(String ignored, Object value) {
+                            array.add(value);
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    private static final class FieldInfo {
+
+        private final String name;
+        private final String signature;
+        private final int access;
+        private final List<AnnotationInfo> annotations = new ArrayList<>();
+
+        private FieldInfo(@NotNull String name, @Nullable String signature, int access) {
+            this.name = name;
+            this.signature = signature;
+            this.access = access;
+        }
+
+        boolean isEnumConstant(){
+            return (access & Opcodes.ACC_ENUM) != 0;
+        }
+
+        @Nullable
+        AnnotationInfo findAnnotation(@NotNull CbsAnnotation cbsAnnotation){
+            return ClassFileInfo.findAnnotation(annotations, cbsAnnotation);
+        }
+    }
+
+    private static final class ClassFileInfo {
+
+        private String name;
+        private String superName;
+        private int access;
+        private boolean isInner;
+        private final List<AnnotationInfo> annotations = new ArrayList<>();
+        private final List<FieldInfo> fields = new ArrayList<>();
+        /**
+         * Только у перечислений: название константы -> аргументы ее конструктора (включая название и порядковый номер).<br>
+         * Аргумент, который не является константой, равен null.
+         */
+        private final Map<String, List<Object>> constantArguments = new HashMap<>();
+        /**
+         * Только у перечислений: индекс аргумента конструктора, который записывается в поле value.
+         */
+        private Integer valueArgumentIndex;
+
+        @NotNull
+        String getQualifiedName(){
+            return name.replace('/', '.');
+        }
+
+        boolean isEnum(){
+            return (access & Opcodes.ACC_ENUM) != 0;
+        }
+
+        @Nullable
+        AnnotationInfo findAnnotation(@NotNull CbsAnnotation cbsAnnotation){
+            return findAnnotation(annotations, cbsAnnotation);
+        }
+
+        @Nullable
+        static AnnotationInfo findAnnotation(@NotNull List<AnnotationInfo> annotations, @NotNull CbsAnnotation cbsAnnotation){
+            for (AnnotationInfo annotation : annotations) {
+                if (AnnotationUtils.isAnnotationOf(annotation.qualifiedName, cbsAnnotation)) return annotation;
+            }
+            return null;
+        }
+
+        @NotNull
+        ClassVisitor visitor(){
+            return new ClassVisitor(Opcodes.ASM9) {
+                @Override
+                public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                    ClassFileInfo.this.name = name;
+                    ClassFileInfo.this.superName = superName;
+                    ClassFileInfo.this.access = access;
+                }
+
+                @Override
+                public void visitInnerClass(String name, String outerName, String innerName, int access) {
+                    if (name.equals(ClassFileInfo.this.name)) isInner = true;
+                }
+
+                @Override
+                public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                    AnnotationInfo annotation = new AnnotationInfo(descriptor);
+                    annotations.add(annotation);
+                    return annotation.visitor();
+                }
+
+                @Override
+                public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                    FieldInfo field = new FieldInfo(name, signature, access);
+                    fields.add(field);
+                    return new FieldVisitor(Opcodes.ASM9) {
+                        @Override
+                        public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                            AnnotationInfo annotation = new AnnotationInfo(descriptor);
+                            field.annotations.add(annotation);
+                            return annotation.visitor();
+                        }
+                    };
+                }
+
+                @Override
+                public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                    if (!isEnum()) return null;
+                    if ("<clinit>".equals(name)) return new EnumInitializerVisitor();
+                    if ("<init>".equals(name)) return new EnumConstructorVisitor(descriptor);
+                    return null;
+                }
+            };
+        }
+
+        /**
+         * Разбор статического инициализатора перечисления. Каждая константа создается последовательностью<br>
+         * NEW Enum, DUP, [аргументы], INVOKESPECIAL Enum.&lt;init&gt;, PUTSTATIC Enum.CONSTANT<br>
+         * Аргументы-литералы запоминаются, любые другие инструкции делают аргументы неизвестными.
+         */
+        private final class EnumInitializerVisitor extends MethodVisitor {
+
+            private String constructedType;
+            private List<Object> arguments;
+            private boolean isComplex;
+            private List<Object> completedArguments;
+
+            private EnumInitializerVisitor() {
+                super(Opcodes.ASM9);
+            }
+
+            private void push(Object value){
+                if (arguments != null) arguments.add(value);
+            }
+
+            private void complex(){
+                if (arguments != null) isComplex = true;
+                completedArguments = null;
+            }
+
+            @Override
+            public void visitTypeInsn(int opcode, String type) {
+                // Константа с телом создается как анонимный наследник (Enum$1)
+                String enumName = ClassFileInfo.this.name;
+                if (opcode == Opcodes.NEW && arguments == null && (type.equals(enumName) || type.startsWith(enumName + "$"))){
+                    constructedType = type;
+                    arguments = new ArrayList<>();
+                    isComplex = false;
+                    completedArguments = null;
+                    return;
+                }
+                complex();
+            }
+
+            @Override
+            public void visitInsn(int opcode) {
+                if (opcode == Opcodes.DUP && arguments != null && arguments.isEmpty()) return;
+                if (opcode >= Opcodes.ICONST_M1 && opcode <= Opcodes.ICONST_5) push(opcode - Opcodes.ICONST_0);
+                else if (opcode == Opcodes.LCONST_0 || opcode == Opcodes.LCONST_1) push((long) (opcode - Opcodes.LCONST_0));
+                else if (opcode >= Opcodes.FCONST_0 && opcode <= Opcodes.FCONST_2) push((float) (opcode - Opcodes.FCONST_0));
+                else if (opcode == Opcodes.DCONST_0 || opcode == Opcodes.DCONST_1) push((double) (opcode - Opcodes.DCONST_0));
+                else if (opcode == Opcodes.ACONST_NULL) push(null);
+                else complex();
+            }
+
+            @Override
+            public void visitIntInsn(int opcode, int operand) {
+                if (opcode == Opcodes.BIPUSH || opcode == Opcodes.SIPUSH) push(operand);
+                else complex();
+            }
+
+            @Override
+            public void visitLdcInsn(Object value) {
+                if (value instanceof String || value instanceof Number || value instanceof Character) push(value);
+                else complex();
+            }
+
+            @Override
+            public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+                if (opcode == Opcodes.INVOKESPECIAL && "<init>".equals(name) && owner.equals(constructedType) && arguments != null){
+                    completedArguments = isComplex ? null : arguments;
+                    arguments = null;
+                    constructedType = null;
+                    return;
+                }
+                complex();
+            }
+
+            @Override
+            public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+                if (opcode == Opcodes.PUTSTATIC && owner.equals(ClassFileInfo.this.name) && completedArguments != null){
+                    constantArguments.put(name, completedArguments);
+                    completedArguments = null;
+                    return;
+                }
+                complex();
+            }
+
+            @Override
+            public void visitVarInsn(int opcode, int varIndex) {
+                complex();
+            }
+
+            @Override
+            public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+                complex();
+            }
+
+            @Override
+            public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+                complex();
+            }
+        }
+
+        /**
+         * Разбор конструктора перечисления: какой параметр записывается в поле value (ALOAD 0, xLOAD n, PUTFIELD value).
+         */
+        private final class EnumConstructorVisitor extends MethodVisitor {
+
+            private final Type[] argumentTypes;
+            private int lastLoadedVar = -1;
+
+            private EnumConstructorVisitor(@NotNull String descriptor) {
+                super(Opcodes.ASM9);
+                this.argumentTypes = Type.getArgumentTypes(descriptor);
+            }
+
+            @Override
+            public void visitVarInsn(int opcode, int varIndex) {
+                lastLoadedVar = varIndex;
+            }
+
+            @Override
+            public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+                if (opcode == Opcodes.PUTFIELD && owner.equals(ClassFileInfo.this.name) && "value".equals(name) && valueArgumentIndex == null){
+                    // Слот 0 - this, далее аргументы по порядку (long и double занимают по два слота)
+                    int slot = 1;
+                    for (int i = 0; i < argumentTypes.length; i++) {
+                        if (slot == lastLoadedVar){
+                            valueArgumentIndex = i;
+                            break;
+                        }
+                        slot += argumentTypes[i].getSize();
+                    }
+                }
+                lastLoadedVar = -1;
+            }
+
+            @Override
+            public void visitInsn(int opcode) {
+                lastLoadedVar = -1;
+            }
+
+            @Override
+            public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+                lastLoadedVar = -1;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package me.rubix327.liquibasehelper.inspection;
+
+import com.google.common.collect.Lists;
+import com.intellij.concurrency.SensitiveProgressWrapper;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import me.rubix327.liquibasehelper.Utils;
+import me.rubix327.liquibasehelper.inspection.cache.RulesSnapshotEntry;
+import me.rubix327.liquibasehelper.inspection.cache.RulesSnapshotStorage;
+import me.rubix327.liquibasehelper.inspection.model.HandleClassesResponse;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Параллельный сбор правил для набора классов.<br>
+ * Классы делятся на части по числу рабочих потоков, каждый поток собирает правила своей части
+ * через {@link RulesManager#extractRules(PsiClass, String, RulesMemoSession)} небольшими порциями. Каждая порция - отдельный неблокирующий
+ * read action: при ожидающей записи (набор текста, рефакторинг) он прерывается и после записи повторяется,
+ * поэтому регистрация не задерживает действия пользователя. Классы хранятся через умные указатели, так как между порциями PSI может меняться.<br>
+ * Реестры {@link RulesManager} при этом не изменяются - собранные ответы регистрирует вызывающий код.
+ */
+public class ParallelRulesExtractor {
+
+    private static final int MAX_WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final ExecutorService EXECUTOR = AppExecutorUtil.createBoundedApplicationPoolExecutor("LiquibaseHelper Rules Extraction", MAX_WORKERS);
+    /**
+     * Количество классов в одном read action
+     */
+    private static final int CHUNK_SIZE = 8;
+
+    /**
+     * Собрать правила указанных классов.<br>
+     * Если для класса есть актуальная запись в снимке правил, то она используется вместо повторного сбора.<br>
+     * Не должен вызываться внутри read action (рабочим потокам нужны собственные read action-ы).
+     * @param rulesManager Менеджер правил проекта
+     * @param classes Классы
+     * @param source Источник вызова (для логов)
+     * @param indicator Индикатор фоновой задачи (отмена останавливает все потоки)
+     * @return Ответы по всем классам в исходном порядке
+     */
+    @NotNull
+    public static List<HandleClassesResponse> extract(@NotNull RulesManager rulesManager, @NotNull Collection<PsiClass> classes,
+                                                      @NotNull String source, @NotNull ProgressIndicator indicator){
+        Project project = rulesManager.getProject();
+        List<SmartPsiElementPointer<PsiClass>> pointers = ReadAction.compute(() -> {
+            SmartPointerManager pointerManager = SmartPointerManager.getInstance(project);
+            List<SmartPsiElementPointer<PsiClass>> result = new ArrayList<>(classes.size());
+            for (PsiClass psiClass : classes) {
+                if (psiClass.isValid()) result.add(pointerManager.createSmartPsiElementPointer(psiClass));
+            }
+            return result;
+        });
+        List<List<SmartPsiElementPointer<PsiClass>>> partitions = partition(pointers, MAX_WORKERS);
+        // Хэши .jar считаются заранее: внутри read action читать .jar целиком нельзя
+        RulesSnapshotStorage.getInstance(project).computeJarHashes(indicator);
+
+        indicator.setIndeterminate(false);
+        indicator.setFraction(0);
+        Progress progress = new Progress(indicator, pointers.size());
+
+        List<Future<List<HandleClassesResponse>>> futures = new ArrayList<>();
+        for (List<SmartPsiElementPointer<PsiClass>> partition : partitions) {
+            ProgressIndicator workerIndicator = new SensitiveProgressWrapper(indicator);
+            futures.add(EXECUTOR.submit(() -> ProgressManager.getInstance().runProcess(
+                    () -> extractPartition(rulesManager, partition, source, workerIndicator, progress), workerIndicator)));
+        }
+
+        List<HandleClassesResponse> result = new ArrayList<>(pointers.size());
+        try {
+            for (Future<List<HandleClassesResponse>> future : futures) {
+                result.addAll(await(future, indicator));
+            }
+        } finally {
+            // Рабочие потоки останавливаются через свои индикаторы, прерывание потока не нужно
+            futures.forEach(f -> f.cancel(false));
+        }
+        return result;
+    }
+
+    @NotNull
+    private static List<HandleClassesResponse> extractPartition(@NotNull RulesManager rulesManager, @NotNull List<SmartPsiElementPointer<PsiClass>> partition,
+                                                                @NotNull String source, @NotNull ProgressIndicator indicator, @NotNull Progress progress){
+        Project project = rulesManager.getProject();
+        RulesSnapshotStorage snapshotStorage = RulesSnapshotStorage.getInstance(project);
+        List<HandleClassesResponse> result = new ArrayList<>(partition.size());
+        for (List<SmartPsiElementPointer<PsiClass>> chunk : Lists.partition(partition, CHUNK_SIZE)) {
+            // При перезапуске порция собирается заново целиком, поэтому ответы и запомненные правила копятся внутри вычисления
+            ChunkResult chunkResult = Utils.computeNonBlocking(project, indicator, () -> {
+                RulesMemoSession memoSession = new RulesMemoSession();
+                List<HandleClassesResponse> responses = new ArrayList<>(chunk.size());
+                for (SmartPsiElementPointer<PsiClass> pointer : chunk) {
+                    ProgressManager.checkCanceled();
+                    PsiClass psiClass = pointer.getElement();
+                    if (psiClass == null || !psiClass.isValid()) continue;
+
+                    RulesSnapshotEntry freshEntry = snapshotStorage.findFreshEntry(psiClass);
+                    responses.add(freshEntry != null
+                            ? rulesManager.extractRulesFromSnapshot(psiClass, freshEntry)
+                            : rulesManager.extractRules(psiClass, source, memoSession));
+                }
+                return new ChunkResult(responses, memoSession);
+            });
+            rulesManager.commitMemo(chunkResult.memoSession());
+            result.addAll(chunkResult.responses());
+            progress.advance(chunk.size());
+        }
+        return result;
+    }
+
+    private record ChunkResult(@NotNull List<HandleClassesResponse> responses, @NotNull RulesMemoSession memoSession) {}
+
+    /**
+     * Общий для всех рабочих потоков прогресс одного вызова {@link #extract}.
+     */
+    private static final class Progress {
+
+        private final ProgressIndicator indicator;
+        private final int total;
+        private final AtomicInteger done = new AtomicInteger();
+
+        private Progress(@NotNull ProgressIndicator indicator, int total) {
+            this.indicator = indicator;
+            this.total = total;
+        }
+
+        void advance(int count){
+            if (total == 0) return;
+            indicator.setFraction((double) done.addAndGet(count) / total);
+        }
+
+    }
+
+    // Ожидание результата с проверкой отмены основной задачи
+    static <T> T await(@NotNull Future<T> future, @NotNull ProgressIndicator indicator){
+        while (true){
+            indicator.checkCanceled();
+            try {
+                return future.get(50, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ignored) {
+            } catch (InterruptedException e) {
+                throw new ProcessCanceledException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof ProcessCanceledException pce) throw pce;
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    @NotNull
+    static <T> List<List<T>> partition(@NotNull List<T> list, int partsCount){
+        List<List<T>> result = new ArrayList<>();
+        if (list.isEmpty()) return result;
+
+        int partSize = (list.size() + partsCount - 1) / partsCount;
+        for (int i = 0; i < list.size(); i += partSize) {
+            result.add(list.subList(i, Math.min(i + partSize, list.size())));
+        }
+        return result;
+    }
+
+}
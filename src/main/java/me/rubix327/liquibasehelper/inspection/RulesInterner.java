@@ -0,0 +1,92 @@
+package me.rubix327.liquibasehelper.inspection;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import me.rubix327.liquibasehelper.inspection.model.AvailableValue;
+import me.rubix327.liquibasehelper.inspection.model.TagRule;
+import me.rubix327.liquibasehelper.inspection.model.TagRulesContainer;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Пул одинаковых значений в правилах проекта.<br>
+ * Пути классов, подсказки и списки значений перечислений повторяются в сотнях правил
+ * (одно перечисление может использоваться во многих полях), поэтому в правилах хранится по одному общему экземпляру.<br>
+ * Списки возможных значений из пула неизменяемы. Ссылки слабые: значение уходит из пула, когда на него не ссылается ни одно правило.
+ */
+final class RulesInterner {
+
+    private final Interner<String> strings = Interners.newWeakInterner();
+    private final Interner<AvailableValue> availableValues = Interners.newWeakInterner();
+    private final Interner<List<AvailableValue>> availableValueLists = Interners.newWeakInterner();
+
+    @Nullable
+    @Contract("null -> null; !null -> !null")
+    String intern(@Nullable String s){
+        return s == null ? null : strings.intern(s);
+    }
+
+    @NotNull
+    AvailableValue intern(@NotNull AvailableValue value){
+        return availableValues.intern(new AvailableValue(intern(value.getValue()), intern(value.getComment())));
+    }
+
+    /**
+     * @return Общий неизменяемый список с такими же значениями
+     */
+    @Nullable
+    @Contract("null -> null; !null -> !null")
+    List<AvailableValue> intern(@Nullable List<AvailableValue> values){
+        if (values == null) return null;
+        if (values.isEmpty()) return List.of();
+
+        List<AvailableValue> interned = new ArrayList<>(values.size());
+        for (AvailableValue value : values) {
+            interned.add(intern(value));
+        }
+        return availableValueLists.intern(List.copyOf(interned));
+    }
+
+    /**
+     * Получить копию правила, значения которой заменены общими экземплярами.<br>
+     * Само правило не изменяется: оно может быть уже опубликовано или использоваться в другом проекте.
+     */
+    @NotNull
+    TagRule intern(@NotNull TagRule rule){
+        TagRule copy = rule.copy();
+        copy.setType(intern(rule.getType()));
+        copy.setAvailableValues(intern(rule.getAvailableValues()));
+        copy.setTagTooltip(intern(rule.getTagTooltip()));
+        copy.setTagDescription(intern(rule.getTagDescription()));
+        copy.setMetaClassPath(intern(rule.getMetaClassPath()));
+        copy.setListLinkToBaseClass(intern(rule.getListLinkToBaseClass()));
+        return copy;
+    }
+
+    /**
+     * Получить копию контейнера (вместе с копиями всех его правил), значения которой заменены общими экземплярами.<br>
+     * Сам контейнер не изменяется (см. {@link #intern(TagRule)}).
+     */
+    @NotNull
+    TagRulesContainer intern(@NotNull TagRulesContainer container){
+        List<TagRule> rules = null;
+        if (container.getTagRules() != null){
+            rules = new ArrayList<>(container.getTagRules().size());
+            for (TagRule rule : container.getTagRules()) {
+                rules.add(intern(rule));
+            }
+        }
+        return new TagRulesContainer()
+                .setParentTagName(intern(container.getParentTagName()))
+                .setParentTagTooltip(intern(container.getParentTagTooltip()))
+                .setParentTagDescription(intern(container.getParentTagDescription()))
+                .setClassPath(intern(container.getMetaClassPath()))
+                .setClassNameOffset(container.getMetaClassNameOffset())
+                .setTagRules(rules);
+    }
+
+}
@@ -1,16 +1,24 @@
 package me.rubix327.liquibasehelper.inspection;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
 import com.intellij.psi.util.PsiUtil;
 import me.rubix327.liquibasehelper.AnnotationUtils;
 import me.rubix327.liquibasehelper.Utils;
+import me.rubix327.liquibasehelper.inspection.cache.RulesSnapshotEntry;
+import me.rubix327.liquibasehelper.inspection.cache.ValidationResultsCache;
 import me.rubix327.liquibasehelper.inspection.model.*;
+import me.rubix327.liquibasehelper.listener.RulesReloadScheduler;
 import me.rubix327.liquibasehelper.log.MainLogger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import static me.rubix327.liquibasehelper.inspection.model.HandleClassesResponse.ErrorReason;
 import static me.rubix327.liquibasehelper.inspection.model.HandleClassesResponse.makeErrorResponse;
@@ -21,34 +29,46 @@ public class RulesManager {
     /**
      * Экземпляры RulesManager. На каждый проект - свой экземпляр.
      */
-    private static final Map<String, RulesManager> instances = new HashMap<>();
+    private static final Map<String, RulesManager> instances = new ConcurrentHashMap<>();
     /**
-     * Реестр правил, привязанных к datamodelName.<br>
-     * Нужен для быстрого нахождения списка правил определенного тега во время парсинга xml-файла.
+     * Текущий снимок реестров правил (см. {@link RulesRegistry}):<ul>
+     *     <li>datamodelName -> правила - для быстрого нахождения списка правил определенного тега во время парсинга xml-файла</li>
+     *     <li>перечисление -> классы, которые его используют - для обновления правил после изменения enum-а</li>
+     *     <li>qualifiedName -> datamodelName - для удаления мусорных правил во время изменения tag у @CbsDatamodelClass</li>
+     * </ul>
+     * Читатели берут снимок без блокировок. Запись идет через {@link #update(Consumer)}: копия - изменение - публикация.
      */
-    private final Map<String, Set<TagRulesContainer>> parentToTagRulesContainer = new HashMap<>(); // "accIntentionTreeMeta" -> TagRulesContainer
+    private volatile RulesRegistry registry = RulesRegistry.EMPTY;
     /**
-     * Реестр классов-перечислений к классам @CbsDatamodelClass, которые их используют.<br>
-     * Нужен для обновления правил после изменения enum-а.
+     * Версия правил: увеличивается при каждой публикации реестра.<br>
+     * По ней кэши результатов проверок (см. {@link ValidationResultsCache}) определяют, что правила изменились.
      */
-    private final Map<PsiClass, Set<PsiClass>> enumsToClassesUsingThem = new HashMap<>(); // changed class -> classes to update
+    private final AtomicLong rulesVersion = new AtomicLong();
     /**
-     * Реестр qualifiedName -> datamodelName.<br>
-     * Нужен для удаления мусорных правил во время изменения tag у @CbsDatamodelClass
+     * Изменения реестра, опубликованные после начала полной регистрации (см. {@link #startFullRegistration()}).<br>
+     * Полная регистрация собирает реестр с нуля, поэтому эти изменения применяются повторно поверх ее результата.
+     * null - полная регистрация не выполняется. Доступ только под блокировкой this.
      */
-    private final Map<String, String> classToDatamodelValueRegistry = new HashMap<>(); // "me.rubix327.AccIntentionTreeMeta" -> "accIntentionTreeMeta"
+    private List<Consumer<RulesRegistry.Builder>> updatesDuringRegistration;
+    /**
+     * Запомненные правила полей и цепочки правил классов (см. {@link RulesMemo}).
+     */
+    private final RulesMemo rulesMemo;
+    /**
+     * Общие экземпляры строк и списков возможных значений в правилах (см. {@link RulesInterner}).
+     */
+    private final RulesInterner interner = new RulesInterner();
 
     @NotNull
     private final Project project;
 
     private RulesManager(@NotNull Project project) {
         this.project = project;
-        instances.put(project.getBasePath(), this);
+        this.rulesMemo = new RulesMemo(project);
     }
 
     public static RulesManager getInstance(Project project){
-        RulesManager existingInstance = instances.get(project.getBasePath());
-        return Objects.requireNonNullElseGet(existingInstance, () -> new RulesManager(project));
+        return instances.computeIfAbsent(project.getBasePath(), k -> new RulesManager(project));
     }
 
     public static Collection<RulesManager> getAllInstances(){
@@ -61,10 +81,9 @@ public class RulesManager {
     }
 
     public static void removeInstance(Project project){
-        RulesManager instance = getInstance(project);
+        RulesManager instance = instances.remove(project.getBasePath());
         if (instance != null){
             instance.resetAll();
-            instances.remove(project.getBasePath());
         }
     }
 
@@ -72,118 +91,536 @@ public class RulesManager {
      * Сбросить все правила для этого проекта.
      */
     public void resetAll(){
-        parentToTagRulesContainer.clear();
-        enumsToClassesUsingThem.clear();
-        classToDatamodelValueRegistry.clear();
+        registry = RulesRegistry.EMPTY;
+        rulesVersion.incrementAndGet();
+    }
+
+    @TestOnly
+    @NotNull
+    RulesRegistry getRegistry(){
+        return registry;
+    }
+
+    /**
+     * @return Текущая версия правил (растет при каждом изменении реестра)
+     */
+    public long getRulesVersion(){
+        return rulesVersion.get();
+    }
+
+    /**
+     * Изменить реестры: изменения применяются к копии текущего снимка, и затем копия публикуется целиком.<br>
+     * Писатели выполняются по очереди, читатели не блокируются и не видят частично измененного состояния.
+     */
+    private synchronized void update(@NotNull Consumer<RulesRegistry.Builder> action){
+        RulesRegistry.Builder builder = registry.toBuilder();
+        action.accept(builder);
+        registry = builder.build();
+        rulesVersion.incrementAndGet();
+        if (updatesDuringRegistration != null){
+            updatesDuringRegistration.add(action);
+        }
+    }
+
+    /**
+     * Начать полную регистрацию: с этого момента изменения реестра запоминаются,
+     * чтобы {@link #replaceAllRules(Collection, long)} не потерял их при публикации.
+     * @return Версия правил на момент начала регистрации
+     */
+    public synchronized long startFullRegistration(){
+        updatesDuringRegistration = new ArrayList<>();
+        return rulesVersion.get();
     }
 
-    private HandleClassesResponse makeErrorResponseAndRemoveRules(@NotNull PsiClass psiClass, @NotNull String source, @NotNull ErrorReason errorReason, Object... args){
-        removeRulesOfClass(psiClass, source, errorReason.getMessage());
-        return makeErrorResponse(psiClass, errorReason, args);
+    /**
+     * Завершить полную регистрацию (в том числе прерванную) и перестать запоминать изменения реестра.
+     */
+    public synchronized void finishFullRegistration(){
+        updatesDuringRegistration = null;
     }
 
     /**
-     * Обновить все правила для указанного класса и его родителей.
+     * Обновить все правила для указанного класса и его родителей.<br>
+     * Если класс не подходит для регистрации правил, то его старые правила удаляются.
      */
     public HandleClassesResponse handleClassAndSuperClasses(@NotNull PsiClass psiClass, @NotNull String source) {
+        HandleClassesResponse response = extractRules(psiClass, source);
+        if (response.isSuccess()){
+            applyExtractedRules(response);
+        } else {
+            removeRulesOfClass(psiClass, source, response.getErrorReason().getMessage());
+        }
+        return response;
+    }
+
+    /**
+     * Собрать новые правила измененного класса и всех его наследников (по графу наследования), не изменяя реестры.<br>
+     * Если у класса изменился tag в @CbsDatamodelClass, то правила под старым тегом помечаются на удаление.
+     * @param psiClass Измененный класс
+     * @param source Источник вызова (для логов)
+     * @param update Куда собираются изменения (применяются через {@link #applyUpdate(RulesUpdate)})
+     */
+    public void collectClassAndInheritorsUpdate(@NotNull PsiClass psiClass, @NotNull String source, @NotNull RulesUpdate update){
+        String thisClassQualifiedName = psiClass.getQualifiedName();
+        if (thisClassQualifiedName != null){
+            // Удаляем мусорные правила в процессе изменения tag у аннотации @CbsDatamodelClass
+            String currentDatamodelName = getDatamodelTagOfClass(psiClass);
+            String savedDatamodelName = getDatamodelValueFromRegistry(thisClassQualifiedName);
+            if (savedDatamodelName != null && !savedDatamodelName.equals(currentDatamodelName)){
+                update.removeRules(thisClassQualifiedName, savedDatamodelName, true, source, "Datamodel tag has changed");
+            }
+        }
+
+        // Собираем правила для класса и его родителей
+        collectClassUpdate(psiClass, source + ": exact class", update);
+
+        // Обновляем правила наследников, в случае если были изменены правила в родителе
+        for (PsiClass inheritor : getInheritors(psiClass)) {
+            collectClassUpdate(inheritor, source + ": inheritor", update);
+        }
+    }
+
+    /**
+     * Собрать новые правила классов, которые используют указанное перечисление (и их наследников), не изменяя реестры.
+     * @param enumClass Измененное перечисление
+     * @param source Источник вызова (для логов)
+     * @param update Куда собираются изменения (применяются через {@link #applyUpdate(RulesUpdate)})
+     */
+    public void collectClassesUsingEnumUpdate(@NotNull PsiClass enumClass, @NotNull String source, @NotNull RulesUpdate update){
+        if (enumClass.getQualifiedName() == null) return;
+        Set<String> classesToUpdate = getClassesUsingThisEnum(enumClass.getQualifiedName());
+        if (classesToUpdate.isEmpty()) return;
+
+        MainLogger.info(project, "Updating classes using enum %s: %s", enumClass.getName(), classesToUpdate);
+        for (String classToUpdate : classesToUpdate) {
+            PsiClass psiClass = Utils.findPsiClassByQualifiedName(project, classToUpdate);
+            if (psiClass == null || !psiClass.isValid()) continue;
+            collectClassAndInheritorsUpdate(psiClass, source, update);
+        }
+    }
+
+    /**
+     * Собрать правила класса и его родителей, не изменяя реестры.<br>
+     * Если класс не подходит для регистрации правил, то его старые правила помечаются на удаление.
+     */
+    public void collectClassUpdate(@NotNull PsiClass psiClass, @NotNull String source, @NotNull RulesUpdate update){
+        HandleClassesResponse response = extractRules(psiClass, source, update.getMemoSession());
+        if (response.isSuccess()){
+            update.addRules(response);
+        } else {
+            collectRemoval(psiClass, source, response.getErrorReason().getMessage(), update);
+        }
+    }
+
+    /**
+     * Пометить правила класса (под его текущим тегом) на удаление, не изменяя реестры.
+     */
+    public void collectRemoval(@NotNull PsiClass psiClass, @NotNull String source, @NotNull String reason, @NotNull RulesUpdate update){
+        String datamodelTag = getDatamodelTagOfClass(psiClass);
+        String qualifiedName = psiClass.getQualifiedName();
+        if (datamodelTag == null || qualifiedName == null) return;
+        update.removeRules(qualifiedName, datamodelTag, false, source, reason);
+    }
+
+    /**
+     * Применить изменения, собранные через collect-методы, одной операцией.<br>
+     * Сначала удаляются помеченные правила, затем регистрируются новые.
+     */
+    public void applyUpdate(@NotNull RulesUpdate rulesUpdate){
+        commitMemo(rulesUpdate.getMemoSession());
+        if (rulesUpdate.isEmpty()) return;
+
+        List<RulesUpdate.Removal> removed = new ArrayList<>();
+        update(builder -> {
+            removed.clear(); // Действие может повторно примениться при полной регистрации
+            for (RulesUpdate.Removal removal : rulesUpdate.getRemovals()) {
+                String qualifiedName = removal.classQualifiedName();
+                // Удаляем контейнер с правилами только если совпадают datamodelName и путь к классу
+                if (builder.removeRules(removal.datamodelName(), c -> qualifiedName.equals(c.getMetaClassPath()))){
+                    removed.add(removal);
+                }
+                if (removal.forgetDatamodelValue()){
+                    builder.removeDatamodelValue(qualifiedName);
+                }
+            }
+            for (HandleClassesResponse response : rulesUpdate.getResponses()) {
+                applyExtractedRules(builder, response);
+            }
+        });
+
+        for (RulesUpdate.Removal removal : removed) {
+            MainLogger.info(project, "Removed rules for tag %s (class: %s). Reason: %s. Source: %s",
+                    removal.datamodelName(), removal.classQualifiedName(), removal.reason(), removal.source());
+        }
+    }
+
+    /**
+     * Найти наследников класса @CbsDatamodelClass (прямых и непрямых, от ближних к дальним).<br>
+     * Наследники берутся из графа наследования, а не через поиск по всему проекту.
+     */
+    @NotNull
+    public List<PsiClass> getInheritors(@NotNull PsiClass psiClass){
+        if (psiClass.getQualifiedName() == null) return List.of();
+
+        List<PsiClass> result = new ArrayList<>();
+        for (String inheritor : getInheritorsOfClass(psiClass.getQualifiedName())) {
+            PsiClass inheritorClass = Utils.findPsiClassByQualifiedName(project, inheritor);
+            if (inheritorClass != null){
+                result.add(inheritorClass);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Собрать правила указанного класса и его родителей, не изменяя реестры.<br>
+     * Запомненные по пути правила сразу переносятся в {@link RulesMemo}, поэтому метод не подходит для прерываемого read action
+     * (для него - {@link #extractRules(PsiClass, String, RulesMemoSession)}).
+     * Собранные правила регистрируются через {@link #applyExtractedRules(HandleClassesResponse)}.
+     * @param psiClass Класс
+     * @param source Источник вызова (для логов)
+     * @return Успешный ответ с контейнером правил и используемыми перечислениями, либо ответ с причиной отказа
+     */
+    public HandleClassesResponse extractRules(@NotNull PsiClass psiClass, @NotNull String source) {
+        RulesMemoSession session = new RulesMemoSession();
+        HandleClassesResponse response = extractRules(psiClass, source, session);
+        commitMemo(session);
+        return response;
+    }
+
+    /**
+     * Собрать правила указанного класса и его родителей, не изменяя ни реестры, ни {@link RulesMemo}.<br>
+     * Запомненные по пути правила копятся в сессии, поэтому метод можно вызывать внутри прерываемого read action
+     * (см. {@link Utils#computeNonBlocking}). После успешного завершения read action сессия переносится через {@link #commitMemo(RulesMemoSession)}.
+     * @param session Сессия текущего read action
+     */
+    public HandleClassesResponse extractRules(@NotNull PsiClass psiClass, @NotNull String source, @NotNull RulesMemoSession session) {
         // Если класс == null или у него нет аннотации @CbsDatamodelClass
         DatamodelClassCheckResponse checkResponse = AnnotationUtils.checkIsDatamodelClass(psiClass);
         if (!checkResponse.isDatamodelClass()){
-            return makeErrorResponseAndRemoveRules(psiClass, source, ErrorReason.CLASS_IS_NOT_DATAMODEL, checkResponse.getMessage());
+            return makeErrorResponse(psiClass, ErrorReason.CLASS_IS_NOT_DATAMODEL, checkResponse.getMessage());
         }
         // Если класс mapped, то пропускаем (такой класс только встраивает свои правила внутрь дочерних)
-        // Регистрация правил из mapped классов происходит ниже, через метод #getRulesFromSuperClasses.
+        // Регистрация правил из mapped классов происходит ниже, через метод #getRulesChainMemoized.
         // Если от mapped класса не наследуется ни один другой класс, то правила этого класса никогда не будут зарегистрированы.
         if (AnnotationUtils.isDatamodelMappedClass(psiClass)){
-            return makeErrorResponseAndRemoveRules(psiClass, source, ErrorReason.CLASS_IS_MAPPED);
+            return makeErrorResponse(psiClass, ErrorReason.CLASS_IS_MAPPED);
         }
         // Если класс вложенный
         if (Utils.isClassAndFileNamesNotMatch(psiClass)) {
-            return makeErrorResponseAndRemoveRules(psiClass, source, ErrorReason.CLASS_IS_INNER);
+            return makeErrorResponse(psiClass, ErrorReason.CLASS_IS_INNER);
         }
         // Если класс это enum
         if (psiClass.isEnum()){
-            return makeErrorResponseAndRemoveRules(psiClass, source, ErrorReason.CLASS_IS_ENUM);
+            return makeErrorResponse(psiClass, ErrorReason.CLASS_IS_ENUM);
         }
 
         String thisClassQualifiedName = psiClass.getQualifiedName();
         String datamodelNameOfClass = getDatamodelTagOfClass(psiClass);
 
         if (thisClassQualifiedName == null){
-            return makeErrorResponseAndRemoveRules(psiClass, source, ErrorReason.CANNOT_GET_QUALIFIED_NAME);
+            return makeErrorResponse(psiClass, ErrorReason.CANNOT_GET_QUALIFIED_NAME);
         }
         if (datamodelNameOfClass == null){
-            return makeErrorResponseAndRemoveRules(psiClass, source, ErrorReason.CANNOT_GET_DATAMODEL_TAG);
+            return makeErrorResponse(psiClass, ErrorReason.CANNOT_GET_DATAMODEL_TAG);
         }
 
-        List<TagRule> rulesFromClass = getRulesFromFields(psiClass);
-        assert rulesFromClass != null; // Все проверки уже проведены выше, поэтому метод getRulesFromFields не может вернуть null
+        RulesMemo.FieldRules ownRules = getFieldRulesMemoized(psiClass, session);
+        assert ownRules != null; // Все проверки уже проведены выше, поэтому метод getRulesFromFields не может вернуть null
 
-        List<TagRule> rulesFromClassAndSuperClasses = getRulesFromSuperClasses(psiClass, rulesFromClass);
+        RulesMemo.ChainRules chain = getRulesChainMemoized(psiClass, ownRules, session);
+        List<TagRule> rulesFromClass = ownRules.rules();
+        List<TagRule> rulesFromClassAndSuperClasses = chain.rules();
 
-        putDatamodelValueToRegistry(thisClassQualifiedName, datamodelNameOfClass);
         TagRulesContainer container = new TagRulesContainer()
-                .setParentTagName(datamodelNameOfClass)
+                .setParentTagName(interner.intern(datamodelNameOfClass))
                 .setTagRules(rulesFromClassAndSuperClasses)
-                .setParentTagTooltip(AnnotationUtils.getCbsDatamodelClassAnnotationFieldStringValue(psiClass, CbsDatamodelClass.Fields.COMMENT))
-                .setParentTagDescription(AnnotationUtils.getCbsDatamodelClassAnnotationFieldStringValue(psiClass, CbsDatamodelClass.Fields.DESCRIPTION))
-                .setClassPath(thisClassQualifiedName)
+                .setParentTagTooltip(interner.intern(AnnotationUtils.getCbsDatamodelClassAnnotationFieldStringValue(psiClass, CbsDatamodelClass.Fields.COMMENT)))
+                .setParentTagDescription(interner.intern(AnnotationUtils.getCbsDatamodelClassAnnotationFieldStringValue(psiClass, CbsDatamodelClass.Fields.DESCRIPTION)))
+                .setClassPath(interner.intern(thisClassQualifiedName))
                 .setClassNameOffset(psiClass.getTextOffset());
 
-        addRules(datamodelNameOfClass, container);
-
         return new HandleClassesResponse(psiClass).setSuccess(true)
+                .setContainer(container)
+                .setUsedEnums(chain.usedEnums())
+                .setSuperClasses(chain.parts().stream().skip(1).map(RulesMemo.FieldRules::qualifiedName).toList())
                 .setMessage("- {class} (%s): %s (base: %s, super: %s) (source: %s)",
                         datamodelNameOfClass,
                         rulesFromClassAndSuperClasses.size(), rulesFromClass.size(),
                         rulesFromClassAndSuperClasses.size() - rulesFromClass.size(), source);
     }
 
-    private void addRules(@NotNull String datamodelName, @NotNull TagRulesContainer rules){
-        Set<TagRulesContainer> rulesFromClass = parentToTagRulesContainer.get(datamodelName);
-        if (rulesFromClass == null){
-            Set<TagRulesContainer> rulesSet = new HashSet<>(Set.of(rules));
-            parentToTagRulesContainer.put(datamodelName, rulesSet);
-        } else {
-            rulesFromClass.remove(rules);
-            rulesFromClass.add(rules);
+    /**
+     * Собрать ответ из актуальной записи снимка, не извлекая правила заново из PSI.<br>
+     * Как и {@link #extractRules(PsiClass, String)}, не изменяет реестры.
+     * @param psiClass Класс, для которого найдена запись
+     * @param entry Актуальная запись снимка
+     */
+    public HandleClassesResponse extractRulesFromSnapshot(@NotNull PsiClass psiClass, @NotNull RulesSnapshotEntry entry){
+        Set<String> usedEnums = Set.copyOf(entry.getUsedEnums());
+
+        // Цепочка родителей для графа наследования (разрешение родителей идет через стабы, без разбора полей)
+        List<String> superClasses = new ArrayList<>();
+        Set<PsiClass> visited = new HashSet<>(Set.of(psiClass));
+        for (PsiClass superClass = psiClass.getSuperClass(); superClass != null && visited.add(superClass); superClass = superClass.getSuperClass()) {
+            if (AnnotationUtils.isNotDatamodelClass(superClass) || superClass.getQualifiedName() == null) break;
+            superClasses.add(superClass.getQualifiedName());
+        }
+
+        // Запись снимка не изменяется: в ответ идет копия с общими значениями
+        TagRulesContainer container = interner.intern(entry.getContainer());
+        return new HandleClassesResponse(psiClass).setSuccess(true)
+                .setContainer(container)
+                .setUsedEnums(usedEnums)
+                .setSuperClasses(superClasses)
+                .setMessage("- {class} (%s): %s (source: snapshot)", container.getParentTagName(), container.getTagRules().size());
+    }
+
+    /**
+     * Собрать ответ из правил, собранных без PSI (см. {@link PrecomputedClassRules}).<br>
+     * Как и {@link #extractRules(PsiClass, String)}, не изменяет реестры.
+     * @param psiClass Класс, для которого собраны правила
+     * @param classRules Правила класса
+     * @param source Откуда взяты правила (для логов)
+     */
+    public HandleClassesResponse extractPrecomputedRules(@NotNull PsiClass psiClass, @NotNull PrecomputedClassRules classRules, @NotNull String source){
+        TagRulesContainer container = interner.intern(classRules.container());
+        return new HandleClassesResponse(psiClass).setSuccess(true)
+                .setContainer(container)
+                .setUsedEnums(classRules.usedEnums())
+                .setSuperClasses(classRules.superClasses())
+                .setMessage("- {class} (%s): %s (source: %s)", container.getParentTagName(), container.getTagRules().size(), source);
+    }
+
+    /**
+     * Зарегистрировать правила, собранные через {@link #extractRules(PsiClass, String)}.<br>
+     * Неуспешные ответы игнорируются.
+     */
+    public void applyExtractedRules(@NotNull HandleClassesResponse response){
+        if (!response.isSuccess() || response.getContainer() == null) return;
+        update(builder -> applyExtractedRules(builder, response));
+    }
+
+    /**
+     * Заменить все правила проекта правилами из указанных ответов.<br>
+     * Новый реестр собирается целиком и публикуется одной операцией, поэтому во время полной регистрации
+     * читатели продолжают видеть прежние правила, а не пустой или наполовину заполненный реестр.<br>
+     * Изменения, опубликованные после начала регистрации (н-р, из RulesUpdateService), применяются повторно
+     * поверх нового реестра. Если их не удалось восстановить, запрашивается повторная регистрация.
+     * @param startVersion Версия правил на момент начала регистрации (см. {@link #startFullRegistration()})
+     */
+    public void replaceAllRules(@NotNull Collection<HandleClassesResponse> responses, long startVersion){
+        RulesRegistry.Builder builder = RulesRegistry.EMPTY.toBuilder();
+        for (HandleClassesResponse response : responses) {
+            applyExtractedRules(builder, response);
+        }
+        RulesRegistry newRegistry = builder.build();
+        boolean reloadRequired = false;
+        synchronized (this){
+            long currentVersion = rulesVersion.get();
+            if (currentVersion != startVersion){
+                if (updatesDuringRegistration != null){
+                    RulesRegistry.Builder replayBuilder = newRegistry.toBuilder();
+                    for (Consumer<RulesRegistry.Builder> update : updatesDuringRegistration) {
+                        update.accept(replayBuilder);
+                    }
+                    newRegistry = replayBuilder.build();
+                    MainLogger.info(project, "Rules changed during full registration (version %s -> %s), re-applied %s updates",
+                            startVersion, currentVersion, updatesDuringRegistration.size());
+                } else {
+                    reloadRequired = true;
+                }
+            }
+            registry = newRegistry;
+            rulesVersion.incrementAndGet();
+            updatesDuringRegistration = null;
+        }
+        if (reloadRequired){
+            // Изменения не запомнены (н-р, правила были сброшены): результат мог устареть
+            MainLogger.warn(project, "Rules changed during full registration (version %s), scheduling another run", startVersion);
+            RulesReloadScheduler.getInstance(project).schedule("rules changed during full registration");
         }
     }
 
     /**
-     * Получить правила из родителей указанного класса.<br>
-     * Если правило уже существует в списке, то от следующего родителя оно добавлено не будет.<br><br>
-     * <b>Рекурсивный метод.</b>
-     * @param baseClass Класс
-     * @param existingRules Уже сформированные правила
-     * @return Список правил от всех родителей
+     * Заменить правила части классов (н-р, классов обновленной зависимости) одной операцией.<br>
+     * Сначала удаляются правила и все связи указанных классов, затем регистрируются правила из ответов.
+     * @param removedClasses Классы, правила которых нужно удалить (qualifiedName -> тег)
+     * @param responses Новые правила
+     */
+    public void replaceRulesOfClasses(@NotNull Map<String, String> removedClasses, @NotNull Collection<HandleClassesResponse> responses){
+        removedClasses.keySet().forEach(rulesMemo::invalidate);
+        update(builder -> {
+            for (Map.Entry<String, String> removedClass : removedClasses.entrySet()) {
+                String qualifiedName = removedClass.getKey();
+                builder.removeRules(removedClass.getValue(), c -> qualifiedName.equals(c.getMetaClassPath()));
+                builder.removeClassReferencesFromEnums(qualifiedName);
+                builder.removeDatamodelValue(qualifiedName);
+                builder.removeFromHierarchy(qualifiedName);
+            }
+            for (HandleClassesResponse response : responses) {
+                applyExtractedRules(builder, response);
+            }
+        });
+    }
+
+    private void applyExtractedRules(@NotNull RulesRegistry.Builder builder, @NotNull HandleClassesResponse response){
+        TagRulesContainer container = response.getContainer();
+        if (!response.isSuccess() || container == null) return;
+
+        builder.putDatamodelValue(container.getMetaClassPath(), container.getParentTagName());
+        builder.addRules(container.getParentTagName(), container);
+        builder.setSuperClasses(container.getMetaClassPath(), response.getSuperClasses());
+
+        // Класс, в котором используется енум, нужно обновлять в случае обновления самого енума
+        builder.setUsedEnums(container.getMetaClassPath(), response.getUsedEnums());
+    }
+
+    /**
+     * Зарегистрировать контейнеры правил, прочитанные из снимка (без обращения к PSI).
+     */
+    public void restoreRulesFromSnapshot(@NotNull Collection<TagRulesContainer> containers){
+        List<TagRulesContainer> interned = new ArrayList<>(containers.size());
+        for (TagRulesContainer container : containers) {
+            if (container.getParentTagName() == null || container.getMetaClassPath() == null) continue;
+            interned.add(interner.intern(container));
+        }
+        update(builder -> {
+            for (TagRulesContainer container : interned) {
+                builder.putDatamodelValue(container.getMetaClassPath(), container.getParentTagName());
+                builder.addRules(container.getParentTagName(), container);
+            }
+        });
+    }
+
+    /**
+     * Перенести правила, запомненные во время read action, в общую память.
+     * Вызывается вне прерываемого read action, после его успешного завершения.
+     */
+    public void commitMemo(@NotNull RulesMemoSession session){
+        rulesMemo.commit(session);
+    }
+
+    /**
+     * Сбросить запомненные правила класса (и тем самым цепочки правил всех его наследников).<br>
+     * Вызывается при изменении или удалении класса.
+     */
+    public void invalidateRulesOfClass(@Nullable String classQualifiedName){
+        if (classQualifiedName != null){
+            rulesMemo.invalidate(classQualifiedName);
+        }
+    }
+
+    /**
+     * Сбросить все запомненные правила классов. Вызывается перед полной перерегистрацией правил.
+     */
+    public void invalidateAllRulesOfClasses(){
+        rulesMemo.clear();
+    }
+
+    /**
+     * Получить правила из полей указанного класса, по возможности из {@link RulesMemo}.
+     * @return Правила или null, если класс не подходит (см. {@link #getRulesFromFields(PsiClass, Set)})
+     */
+    @Nullable
+    private RulesMemo.FieldRules getFieldRulesMemoized(@Nullable PsiClass psiClass, @NotNull RulesMemoSession session){
+        if (psiClass == null) return null;
+        String qualifiedName = psiClass.getQualifiedName();
+        if (qualifiedName != null){
+            RulesMemo.FieldRules cached = rulesMemo.getFieldRules(psiClass, qualifiedName, session);
+            if (cached != null) return cached;
+        }
+
+        long javaStamp = rulesMemo.getJavaStamp();
+        Set<PsiClass> usedEnums = new HashSet<>();
+        List<TagRule> rules = getRulesFromFields(psiClass, usedEnums);
+        if (rules == null || qualifiedName == null) return null;
+
+        Set<String> usedEnumNames = new HashSet<>();
+        for (PsiClass usedEnum : usedEnums) {
+            if (usedEnum.getQualifiedName() != null){
+                usedEnumNames.add(usedEnum.getQualifiedName());
+            }
+        }
+
+        // Правила зависят от файла самого класса и от файлов используемых перечислений
+        List<PsiClass> dependencies = new ArrayList<>(List.of(psiClass));
+        dependencies.addAll(usedEnums);
+        Map<VirtualFile, Long> fileStamps = RulesMemo.collectFileStamps(dependencies);
+        if (fileStamps == null){
+            // Класс без файла на диске - правила не запоминаем
+            return new RulesMemo.FieldRules(qualifiedName, null, List.copyOf(rules), Set.copyOf(usedEnumNames), Map.of(), javaStamp);
+        }
+
+        RulesMemo.FieldRules fieldRules = new RulesMemo.FieldRules(qualifiedName, psiClass.getContainingFile().getVirtualFile(),
+                List.copyOf(rules), Set.copyOf(usedEnumNames), fileStamps, javaStamp);
+        rulesMemo.putFieldRules(fieldRules, session);
+        return fieldRules;
+    }
+
+    /**
+     * Получить правила класса вместе с правилами его родителей.<br>
+     * Если правило уже существует в списке, то от следующего родителя оно добавлено не будет.<br>
+     * Правила полей каждого родителя берутся из {@link RulesMemo}, поэтому общий родитель разбирается один раз.
+     * @param psiClass Класс
+     * @param ownRules Правила из полей самого класса
      */
     @NotNull
-    private List<TagRule> getRulesFromSuperClasses(@NotNull PsiClass baseClass, @NotNull List<TagRule> existingRules) {
-        PsiClass superClass = baseClass.getSuperClass();
-        List<TagRule> rulesFromSuper = getRulesFromFields(superClass);
+    private RulesMemo.ChainRules getRulesChainMemoized(@NotNull PsiClass psiClass, @NotNull RulesMemo.FieldRules ownRules, @NotNull RulesMemoSession session){
+        RulesMemo.ChainRules cached = rulesMemo.getChain(ownRules, session);
+        if (cached != null) return cached;
+
+        List<RulesMemo.FieldRules> parts = new ArrayList<>(List.of(ownRules));
+        List<TagRule> mergedRules = ownRules.rules();
+        Set<String> usedEnums = new HashSet<>(ownRules.usedEnums());
+        Set<PsiClass> visited = new HashSet<>(Set.of(psiClass)); // Защита от циклического наследования в некорректном коде
+        PsiClass chainEnd = null;
+
+        for (PsiClass superClass = psiClass.getSuperClass(); superClass != null && visited.add(superClass); superClass = superClass.getSuperClass()) {
+            // Если родительский класс не подходит, то цепочка закончена
+            RulesMemo.FieldRules rulesFromSuper = getFieldRulesMemoized(superClass, session);
+            if (rulesFromSuper == null){
+                chainEnd = superClass;
+                break;
+            }
 
-        // Если родительский класс не подходит, то возвращаем сформированные правила (конец рекурсии)
-        if (rulesFromSuper == null){
-            return existingRules;
+            parts.add(rulesFromSuper);
+            mergedRules = mergeRules(mergedRules, rulesFromSuper.rules());
+            usedEnums.addAll(rulesFromSuper.usedEnums());
         }
 
-        List<TagRule> mergedRules = mergeRules(existingRules, rulesFromSuper);
-        assert baseClass.getSuperClass() != null;
-        return getRulesFromSuperClasses(baseClass.getSuperClass(), mergedRules);
+        // Если родитель, на котором закончилась цепочка, получит @CbsDatamodelClass, то цепочка удлинится
+        Map<VirtualFile, Long> endStamps = chainEnd == null ? Map.of() : RulesMemo.collectFileStamps(List.of(chainEnd));
+        RulesMemo.ChainRules chain = new RulesMemo.ChainRules(List.copyOf(mergedRules), Set.copyOf(usedEnums), List.copyOf(parts),
+                endStamps == null ? Map.of() : endStamps);
+        if (endStamps != null){
+            rulesMemo.putChain(chain, session);
+        }
+        return chain;
     }
 
+    /**
+     * Объединить правила класса с правилами его родителя.
+     * @param rulesFromBase Правила класса (вместе с уже добавленными правилами ближних родителей)
+     * @param rulesFromSuper Правила из полей следующего родителя
+     */
     @NotNull
-    private List<TagRule> mergeRules(@NotNull List<TagRule> rulesFromBase, @NotNull List<TagRule> rulesFromSuper) {
-        List<TagRule> mergedRules = new ArrayList<>(rulesFromBase);
-        for (TagRule ruleFromSuper : rulesFromSuper) {
-            // Если в правилах дочерних классов уже есть этот тег, то из родителя его не добавляем
-            if (rulesFromBase.stream().anyMatch(e -> e.getTagName().equals(ruleFromSuper.getTagName()))) {
-                continue;
+    static List<TagRule> mergeRules(@NotNull List<TagRule> rulesFromBase, @NotNull List<TagRule> rulesFromSuper) {
+        Set<String> baseTagNames = new HashSet<>();
+        for (TagRule ruleFromBase : rulesFromBase) {
+            baseTagNames.add(ruleFromBase.getTagName());
+        }
+
+        List<TagRule> mergedRules = new ArrayList<>(rulesFromBase.size() + rulesFromSuper.size());
+        // Правила из родителя идут в начале (в обратном порядке, как и прежде), чтобы в документации они были спереди.
+        // Если в правилах дочерних классов уже есть этот тег, то из родителя его не добавляем.
+        for (int i = rulesFromSuper.size() - 1; i >= 0; i--) {
+            TagRule ruleFromSuper = rulesFromSuper.get(i);
+            if (!baseTagNames.contains(ruleFromSuper.getTagName())){
+                mergedRules.add(ruleFromSuper);
             }
-            // Правила из родителя вставляем в начало, чтобы в документации они были спереди
-            mergedRules.add(0, ruleFromSuper);
         }
+        mergedRules.addAll(rulesFromBase);
         return mergedRules;
     }
 
@@ -215,9 +652,10 @@ public class RulesManager {
     /**
      * Получить все правила из полей указанного класса.
      * @param psiClass Класс
+     * @param usedEnums Сюда добавляются перечисления, используемые в правилах
      * @return Правила из полей
      */
-    private List<TagRule> getRulesFromFields(@Nullable PsiClass psiClass) {
+    private List<TagRule> getRulesFromFields(@Nullable PsiClass psiClass, @NotNull Set<PsiClass> usedEnums) {
         if (AnnotationUtils.isNotDatamodelClass(psiClass)) {
             return null;
         }
@@ -269,7 +707,7 @@ public class RulesManager {
 
             // Если тип Boolean, то заполнять возможные значения не требуется
             if (Boolean.class.getTypeName().equals(tagRule.getType())){
-                resultRules.add(tagRule);
+                resultRules.add(interner.intern(tagRule));
                 continue;
             }
 
@@ -311,7 +749,7 @@ public class RulesManager {
             }
 
             // Возможные значения из availableValuesEnum
-            List<AvailableValue> availableValuesFromEnum = getAvailableValuesFromAnnotationEnum(availableValuesEnum, psiClass);
+            List<AvailableValue> availableValuesFromEnum = getAvailableValuesFromAnnotationEnum(availableValuesEnum, usedEnums);
             if (availableValuesFromEnum != null && !availableValuesFromEnum.isEmpty()){
                 tagRule.setAvailableValues(availableValuesFromEnum);
             }
@@ -320,14 +758,14 @@ public class RulesManager {
             if (availableValuesEnumPath instanceof PsiLiteralExpression availableValuesEnumPathLiteral){
                 if (availableValuesEnumPathLiteral.getValue() instanceof String availableValuesEnumPathLiteralString){
                     PsiClass enumClass = Utils.findPsiClassByQualifiedName(project, availableValuesEnumPathLiteralString);
-                    List<AvailableValue> availableValuesFromEnumPath = getAvailableValuesFromEnum(enumClass, psiClass);
+                    List<AvailableValue> availableValuesFromEnumPath = getAvailableValuesFromEnum(enumClass, usedEnums);
                     if (availableValuesFromEnumPath != null){
                         tagRule.setAvailableValues(availableValuesFromEnumPath);
                     }
                 }
             }
 
-            resultRules.add(tagRule);
+            resultRules.add(interner.intern(tagRule));
         }
 
         return resultRules;
@@ -337,25 +775,24 @@ public class RulesManager {
      * Получить значения из класса перечислимого типа.
      * Приоритет получения см. в {@link #getEnumValue(PsiEnumConstant, PsiClass)}.
      * @param annotationMemberValue Перечислимый тип
-     * @param psiClass Класс
+     * @param usedEnums Сюда добавляется найденное перечисление
      * @return Список значений перечислимого типа
      * @see #getEnumValue(PsiEnumConstant, PsiClass)
      */
-    private List<AvailableValue> getAvailableValuesFromAnnotationEnum(PsiAnnotationMemberValue annotationMemberValue, PsiClass psiClass){
+    private List<AvailableValue> getAvailableValuesFromAnnotationEnum(PsiAnnotationMemberValue annotationMemberValue, @NotNull Set<PsiClass> usedEnums){
         if (annotationMemberValue instanceof PsiClassObjectAccessExpression annotationMember){
             PsiType type = annotationMember.getOperand().getType();
             PsiClass enumClass = PsiUtil.resolveClassInType(type);
-            return getAvailableValuesFromEnum(enumClass, psiClass);
+            return getAvailableValuesFromEnum(enumClass, usedEnums);
         }
         return null;
     }
 
     @Nullable
-    private List<AvailableValue> getAvailableValuesFromEnum(PsiClass enumClass, @NotNull PsiClass searchingFromClass){
+    private List<AvailableValue> getAvailableValuesFromEnum(PsiClass enumClass, @NotNull Set<PsiClass> usedEnums){
         List<AvailableValue> result = null;
         if (enumClass != null && enumClass.isEnum()) {
-            // Класс, в котором используется этот енум, нужно обновлять в случае обновления самого енума
-            addEnumToClassesUsingIt(enumClass, searchingFromClass);
+            usedEnums.add(enumClass);
 
             result = new ArrayList<>();
             for (PsiField field : enumClass.getFields()) {
@@ -366,24 +803,12 @@ public class RulesManager {
                 String comment = Utils.getFirstMeaningfulLineFromDocComment(field);
                 result.add(new AvailableValue(value, comment));
             }
+            // Поля, использующие одно перечисление, получат один общий список
+            result = interner.intern(result);
         }
         return result;
     }
 
-    /**
-     * Добавить класс перечислимого типа в регистр {@link #enumsToClassesUsingThem}.
-     * @param changedClass Перечислимый тип
-     * @param classToUpdate Класс, использующий этот ПТ
-     */
-    private void addEnumToClassesUsingIt(@NotNull PsiClass changedClass, @NotNull PsiClass classToUpdate){
-        Set<PsiClass> existingClassesToUpdate = enumsToClassesUsingThem.get(changedClass);
-        if (existingClassesToUpdate == null){
-            enumsToClassesUsingThem.put(changedClass, new HashSet<>(Collections.singletonList(classToUpdate)));
-        } else {
-            existingClassesToUpdate.add(classToUpdate);
-        }
-    }
-
     /**
      * Получить значение поля перечислимого типа в следующем приоритете:<ol>
      *   <li>Значение value из @CbsDatamodelValue(value)</li>
@@ -458,53 +883,50 @@ public class RulesManager {
     public void removeRulesOfClass(@NotNull PsiClass psiClass, @NotNull String source, @NotNull String reason){
         String datamodelTag = getDatamodelTagOfClass(psiClass);
         if (datamodelTag == null) return;
-
-        Set<TagRulesContainer> containers = parentToTagRulesContainer.get(datamodelTag);
-        if (containers == null) return;
+        String qualifiedName = psiClass.getQualifiedName();
 
         // Удаляем контейнер с правилами только если совпадают datamodelName и путь к классу
-        if (containers.removeIf(c -> c.getMetaClassPath().equals(psiClass.getQualifiedName()))){
+        boolean[] removed = new boolean[1];
+        update(builder -> removed[0] = builder.removeRules(datamodelTag, c -> c.getMetaClassPath().equals(qualifiedName)));
+        if (removed[0]){
             MainLogger.info(psiClass.getProject(), "Removed rules for tag %s (class: %s). Reason: %s. Source: %s",
-                    datamodelTag, (psiClass.getQualifiedName() != null ? psiClass.getQualifiedName() : datamodelTag), reason, source);
-        }
-        // Удаляем тег, если внутри больше нет контейнеров правил
-        if (parentToTagRulesContainer.get(datamodelTag) == null || parentToTagRulesContainer.get(datamodelTag).isEmpty()){
-            parentToTagRulesContainer.remove(datamodelTag);
+                    datamodelTag, (qualifiedName != null ? qualifiedName : datamodelTag), reason, source);
         }
     }
 
     public void removeRulesByTagNameAndClass(String classQualifiedName, String tagName){
-        Set<TagRulesContainer> tagContainers = new HashSet<>(parentToTagRulesContainer.getOrDefault(tagName, new HashSet<>()));
-        for (TagRulesContainer tagContainer : tagContainers) {
-            if (classQualifiedName.equals(tagContainer.getMetaClassPath())){
-                if (parentToTagRulesContainer.get(tagName).size() == 1){
-                    // Удаляем весь маппинг, чтобы не оставалось пустых
-                    parentToTagRulesContainer.remove(tagName);
-                } else {
-                    // Удаляем только ту привязку, которую надо удалить
-                    parentToTagRulesContainer.get(tagName).remove(tagContainer);
-                }
-            }
-        }
+        if (classQualifiedName == null || tagName == null) return;
+        update(builder -> builder.removeRules(tagName, c -> classQualifiedName.equals(c.getMetaClassPath())));
     }
 
     public List<TagRulesContainer> getRulesContainerListByTagName(String tagName){
-        return new ArrayList<>(parentToTagRulesContainer.getOrDefault(tagName, new HashSet<>()));
+        return new ArrayList<>(registry.parentToTagRulesContainer.getOrDefault(tagName, Set.of()));
     }
 
     public TagRulesContainer getRulesContainerByTagName(String tagName){
-        Set<TagRulesContainer> tagRules = parentToTagRulesContainer.get(tagName);
-        if (tagRules == null || tagRules.size() > 1){
+        Set<TagRulesContainer> tagRules = registry.parentToTagRulesContainer.get(tagName);
+        if (tagRules == null || tagRules.size() != 1){
             return null;
         }
-        return new ArrayList<>(tagRules).get(0);
+        return tagRules.iterator().next();
     }
 
     public Collection<TagRulesContainer> getAllRulesContainers(){
         Collection<TagRulesContainer> result = new ArrayList<>();
-        for (Set<TagRulesContainer> value : parentToTagRulesContainer.values()) {
-            if (value == null || value.size() > 1) continue;
-            result.add(new ArrayList<>(value).get(0));
+        for (Set<TagRulesContainer> value : registry.parentToTagRulesContainer.values()) {
+            if (value.size() != 1) continue;
+            result.add(value.iterator().next());
+        }
+        return result;
+    }
+
+    /**
+     * Получить все зарегистрированные контейнеры правил, включая теги, на которые претендуют несколько классов.
+     */
+    public Collection<TagRulesContainer> getAllRegisteredRulesContainers(){
+        Collection<TagRulesContainer> result = new ArrayList<>();
+        for (Set<TagRulesContainer> value : registry.parentToTagRulesContainer.values()) {
+            result.addAll(value);
         }
         return result;
     }
@@ -512,45 +934,72 @@ public class RulesManager {
     @SuppressWarnings("unused")
     public static void printAllProjectsRules(){
         MainLogger.info("---------- All Rules ----------");
-        instances.values().forEach(inst -> MainLogger.info("%s -> %s", inst.getProject().getName(), inst.parentToTagRulesContainer.values()));
+        instances.values().forEach(inst -> MainLogger.info("%s -> %s", inst.getProject().getName(), inst.registry.parentToTagRulesContainer.values()));
         MainLogger.info("--------------------------------");
     }
 
     @SuppressWarnings("unused")
     public void printAllRules(){
         MainLogger.info(project, "---------- Rules ----------");
-        for (Map.Entry<String, Set<TagRulesContainer>> stringListEntry : parentToTagRulesContainer.entrySet()) {
+        for (Map.Entry<String, Set<TagRulesContainer>> stringListEntry : registry.parentToTagRulesContainer.entrySet()) {
             MainLogger.info(project, "%s (count %s) -> %s", stringListEntry.getKey(), stringListEntry.getValue().size(), stringListEntry.getValue());
         }
         MainLogger.info(project, "---------------------------");
     }
 
-    public Set<PsiClass> getClassesUsingThisEnum(PsiClass usedEnum){
-        return enumsToClassesUsingThem.get(usedEnum);
+    /**
+     * Получить qualifiedName классов, которые используют перечисление с указанным qualifiedName.
+     */
+    @NotNull
+    public Set<String> getClassesUsingThisEnum(@NotNull String enumQualifiedName){
+        return registry.enumsToClassesUsingThem.getOrDefault(enumQualifiedName, Set.of());
     }
 
-    public void removeClassReferencesFromEnums(PsiClass removedClass){
-        for (Map.Entry<PsiClass, Set<PsiClass>> enumsToClasses : enumsToClassesUsingThem.entrySet()) {
-            enumsToClasses.getValue().remove(removedClass);
-        }
+    /**
+     * Получить qualifiedName перечислений, которые использует класс с указанным qualifiedName.
+     */
+    @NotNull
+    public Set<String> getEnumsUsedByClass(@NotNull String classQualifiedName){
+        return registry.classToUsedEnums.getOrDefault(classQualifiedName, Set.of());
+    }
+
+    public void removeClassReferencesFromEnums(@Nullable String removedClassQualifiedName){
+        if (removedClassQualifiedName == null) return;
+        update(builder -> builder.removeClassReferencesFromEnums(removedClassQualifiedName));
+    }
+
+    /**
+     * Получить qualifiedName всех наследников класса @CbsDatamodelClass (прямых и непрямых), от ближних к дальним.<br>
+     * Берется из графа наследования, который поддерживается при сборе правил, без поиска по индексам.
+     */
+    public List<String> getInheritorsOfClass(@NotNull String classQualifiedName){
+        return registry.getAllInheritors(classQualifiedName);
+    }
+
+    /**
+     * Убрать удаленный класс из графа наследования.
+     */
+    public void removeClassFromHierarchy(@Nullable String classQualifiedName){
+        if (classQualifiedName == null) return;
+        update(builder -> builder.removeFromHierarchy(classQualifiedName));
     }
 
     public String getDatamodelValueFromRegistry(String classQualifiedName){
-        return classToDatamodelValueRegistry.get(classQualifiedName);
+        return registry.classToDatamodelValueRegistry.get(classQualifiedName);
     }
 
     public void removeDatamodelValueFromRegistry(String classQualifiedName){
-        classToDatamodelValueRegistry.remove(classQualifiedName);
+        update(builder -> builder.removeDatamodelValue(classQualifiedName));
     }
 
     public void putDatamodelValueToRegistry(@NotNull String classQualifiedName, @NotNull String datamodelName){
-        classToDatamodelValueRegistry.put(classQualifiedName, datamodelName);
+        update(builder -> builder.putDatamodelValue(classQualifiedName, datamodelName));
     }
 
     @SuppressWarnings("unused")
     public void printAllClassesToDatamodelRegistry(){
         MainLogger.info(project, "------- Datamodel Registry ------");
-        for (Map.Entry<String, String> stringStringEntry : classToDatamodelValueRegistry.entrySet()) {
+        for (Map.Entry<String, String> stringStringEntry : registry.classToDatamodelValueRegistry.entrySet()) {
             MainLogger.info(project, "%s -> %s", stringStringEntry.getKey(), stringStringEntry.getValue());
         }
         MainLogger.info(project, "---------------------------------");
@@ -558,7 +1007,7 @@ public class RulesManager {
 
     public List<String> getClassesByDatamodelName(@NotNull String datamodelName){
         List<String> classes = new ArrayList<>();
-        for (Map.Entry<String, String> stringStringEntry : classToDatamodelValueRegistry.entrySet()) {
+        for (Map.Entry<String, String> stringStringEntry : registry.classToDatamodelValueRegistry.entrySet()) {
             if (stringStringEntry.getValue().equals(datamodelName)){
                 classes.add(stringStringEntry.getKey());
             }
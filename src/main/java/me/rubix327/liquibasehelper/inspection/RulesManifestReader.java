@@ -0,0 +1,149 @@
+package me.rubix327.liquibasehelper.inspection;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import me.rubix327.liquibasehelper.inspection.model.AvailableValue;
+import me.rubix327.liquibasehelper.inspection.model.PrecomputedClassRules;
+import me.rubix327.liquibasehelper.inspection.model.TagRule;
+import me.rubix327.liquibasehelper.inspection.model.TagRulesContainer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Чтение манифеста правил, который модуль rules-processor (процессор аннотаций) кладет в .jar во время сборки.<br>
+ * Манифест содержит уже объединенные правила классов (вместе с родителями и значениями перечислений),
+ * поэтому для .jar с манифестом правила не собираются ни через PSI, ни из байткода.<br>
+ * Манифест, который процессор пометил неполным (после инкрементальной компиляции), не используется.
+ */
+public class RulesManifestReader {
+
+    /**
+     * Путь к манифесту внутри .jar (должен совпадать с путем в RulesManifestProcessor)
+     */
+    public static final String MANIFEST_PATH = "META-INF/liquibasehelper/rules.json";
+    /**
+     * Поддерживаемая версия формата манифеста
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * Прочитать манифест из .jar.
+     * @param jarPath .jar файл
+     * @return Правила классов или null, если манифеста нет, его версия не поддерживается или он неполный
+     * @throws IOException Если .jar или манифест не удалось прочитать
+     */
+    @Nullable
+    public static List<PrecomputedClassRules> read(@NotNull Path jarPath) throws IOException {
+        try (ZipFile jar = new ZipFile(jarPath.toFile())) {
+            ZipEntry entry = jar.getEntry(MANIFEST_PATH);
+            if (entry == null) return null;
+
+            Manifest manifest;
+            try (Reader reader = new InputStreamReader(jar.getInputStream(entry), StandardCharsets.UTF_8)) {
+                manifest = new Gson().fromJson(reader, Manifest.class);
+            } catch (JsonParseException e) {
+                throw new IOException("Broken rules manifest: " + e.getMessage(), e);
+            }
+            if (manifest == null || manifest.version != FORMAT_VERSION || !manifest.complete || manifest.classes == null) return null;
+
+            List<PrecomputedClassRules> result = new ArrayList<>(manifest.classes.size());
+            for (ManifestClass manifestClass : manifest.classes) {
+                if (manifestClass.className == null || manifestClass.tag == null) continue;
+                result.add(toClassRules(manifestClass));
+            }
+            return result;
+        }
+    }
+
+    @NotNull
+    private static PrecomputedClassRules toClassRules(@NotNull ManifestClass manifestClass){
+        List<TagRule> rules = new ArrayList<>();
+        if (manifestClass.rules != null){
+            for (ManifestRule manifestRule : manifestClass.rules) {
+                if (manifestRule.tagName == null) continue;
+
+                TagRule rule = new TagRule(manifestRule.tagName);
+                rule.setType(manifestRule.type);
+                rule.setMaxLength(manifestRule.maxLength);
+                rule.setRequired(manifestRule.required);
+                rule.setTagTooltip(manifestRule.tooltip);
+                rule.setTagDescription(manifestRule.description);
+                rule.setMetaClassPath(manifestRule.metaClassPath);
+                rule.setListLinkToBaseClass(manifestRule.listLinkToBaseClass);
+
+                List<AvailableValue> availableValues = new ArrayList<>();
+                if (manifestRule.availableValues != null){
+                    for (ManifestValue manifestValue : manifestRule.availableValues) {
+                        availableValues.add(new AvailableValue(manifestValue.value, manifestValue.comment));
+                    }
+                }
+                rule.setAvailableValues(availableValues);
+                rules.add(rule);
+            }
+        }
+
+        TagRulesContainer container = new TagRulesContainer()
+                .setParentTagName(manifestClass.tag)
+                .setTagRules(rules)
+                .setParentTagTooltip(manifestClass.tooltip)
+                .setParentTagDescription(manifestClass.description)
+                .setClassPath(manifestClass.className);
+        return new PrecomputedClassRules(container,
+                manifestClass.usedEnums != null ? Set.copyOf(manifestClass.usedEnums) : Set.of(),
+                manifestClass.superClasses != null ? List.copyOf(manifestClass.superClasses) : List.of());
+    }
+
+    // Структура JSON-манифеста (заполняется Gson)
+
+    @SuppressWarnings("unused")
+    private static class Manifest {
+        private int version;
+        /**
+         * Все классы модуля попали в манифест (false или нет поля - правила .jar нужно собрать заново)
+         */
+        private boolean complete;
+        private List<ManifestClass> classes;
+    }
+
+    @SuppressWarnings("unused")
+    private static class ManifestClass {
+        private String className;
+        private String tag;
+        private String tooltip;
+        private String description;
+        private List<String> superClasses;
+        private List<String> usedEnums;
+        private List<ManifestRule> rules;
+    }
+
+    @SuppressWarnings("unused")
+    private static class ManifestRule {
+        private String tagName;
+        private String type;
+        private int maxLength;
+        private boolean required;
+        private String tooltip;
+        private String description;
+        private String metaClassPath;
+        private String listLinkToBaseClass;
+        private List<ManifestValue> availableValues;
+    }
+
+    @SuppressWarnings("unused")
+    private static class ManifestValue {
+        private String value;
+        private String comment;
+    }
+
+}
@@ -0,0 +1,166 @@
+package me.rubix327.liquibasehelper.inspection;
+
+import com.intellij.lang.java.JavaLanguage;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import me.rubix327.liquibasehelper.inspection.model.TagRule;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Запомненные правила классов @CbsDatamodelClass.<ul>
+ *     <li>Правила из полей одного класса - чтобы общий mapped-родитель разбирался один раз, а не для каждого наследника</li>
+ *     <li>Итоговая цепочка класса (его поля + поля всех родителей)</li>
+ * </ul>
+ * Цепочка ссылается на записи полей, из которых собрана, и считается устаревшей, как только любая из них заменена или удалена.
+ * Поэтому сброс класса ({@link #invalidate(String)}) автоматически сбрасывает и цепочки всех его наследников.
+ * Цепочка также помнит файл родителя, на котором она закончилась (родитель без @CbsDatamodelClass):
+ * если он получит аннотацию, цепочка станет длиннее.<br>
+ * Правила могут ссылаться на константы из других файлов, поэтому все записи привязаны к счетчику изменений Java-PSI
+ * и устаревают при любом изменении Java-кода проекта (в пределах одной перерегистрации он не меняется).<br>
+ * Записи хранят только названия и файлы, но не PSI, чтобы не удерживать деревья классов в памяти.
+ */
+final class RulesMemo {
+
+    /**
+     * Правила из полей одного класса.
+     * @param classFile Файл, в котором объявлен класс (null - класс без файла на диске, такая запись не запоминается)
+     * @param fileStamps Файлы, от которых зависят правила (сам класс и используемые перечисления) -> modificationStamp их PSI
+     * @param javaStamp Счетчик изменений Java-PSI на момент сбора правил (см. {@link #getJavaStamp()})
+     */
+    record FieldRules(@NotNull String qualifiedName, @Nullable VirtualFile classFile, @NotNull List<TagRule> rules,
+                      @NotNull Set<String> usedEnums, @NotNull Map<VirtualFile, Long> fileStamps, long javaStamp) {
+
+        boolean isUpToDate(@NotNull PsiManager psiManager, long currentJavaStamp){
+            return javaStamp == currentJavaStamp && isFilesUpToDate(psiManager, fileStamps);
+        }
+    }
+
+    /**
+     * Итоговые правила класса вместе с родителями.
+     * @param parts Записи полей, из которых собрана цепочка (первой идет запись самого класса)
+     * @param endStamps Файл родителя, на котором закончилась цепочка -> modificationStamp его PSI (пусто - родителей больше нет)
+     */
+    record ChainRules(@NotNull List<TagRule> rules, @NotNull Set<String> usedEnums, @NotNull List<FieldRules> parts,
+                      @NotNull Map<VirtualFile, Long> endStamps) {}
+
+    private final Map<String, FieldRules> fieldRules = new ConcurrentHashMap<>();
+    private final Map<String, ChainRules> chains = new ConcurrentHashMap<>();
+    private final Project project;
+
+    RulesMemo(@NotNull Project project) {
+        this.project = project;
+    }
+
+    /**
+     * Собрать отпечатки файлов, от которых зависят правила класса.
+     * @return Файл -> modificationStamp или null, если у какого-то класса нет файла на диске (такие правила не запоминаются)
+     */
+    @Nullable
+    static Map<VirtualFile, Long> collectFileStamps(@NotNull Collection<PsiClass> classes){
+        Map<VirtualFile, Long> fileStamps = new HashMap<>();
+        for (PsiClass psiClass : classes) {
+            PsiFile psiFile = psiClass.getContainingFile();
+            if (psiFile == null || psiFile.getVirtualFile() == null) return null;
+            fileStamps.put(psiFile.getVirtualFile(), psiFile.getModificationStamp());
+        }
+        return fileStamps;
+    }
+
+    private static boolean isFilesUpToDate(@NotNull PsiManager psiManager, @NotNull Map<VirtualFile, Long> fileStamps){
+        for (Map.Entry<VirtualFile, Long> fileStamp : fileStamps.entrySet()) {
+            if (!fileStamp.getKey().isValid()) return false;
+            PsiFile psiFile = psiManager.findFile(fileStamp.getKey());
+            if (psiFile == null || psiFile.getModificationStamp() != fileStamp.getValue()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return Текущий счетчик изменений Java-PSI проекта
+     */
+    long getJavaStamp(){
+        return PsiModificationTracker.getInstance(project).forLanguage(JavaLanguage.INSTANCE).getModificationCount();
+    }
+
+    /**
+     * Получить запомненные правила полей класса, если они еще актуальны.
+     */
+    @Nullable
+    FieldRules getFieldRules(@NotNull PsiClass psiClass, @NotNull String qualifiedName, @NotNull RulesMemoSession session){
+        // Записи сессии собраны в этом же read action, поэтому PSI с тех пор не менялся
+        FieldRules fromSession = session.fieldRules.get(qualifiedName);
+        if (fromSession != null) return fromSession;
+
+        FieldRules cached = fieldRules.get(qualifiedName);
+        if (cached == null) return null;
+        PsiFile psiFile = psiClass.getContainingFile();
+        if (psiFile == null || !Objects.equals(cached.classFile(), psiFile.getVirtualFile())
+                || !cached.isUpToDate(PsiManager.getInstance(project), getJavaStamp())){
+            // Устаревшая запись будет заменена при переносе сессии
+            return null;
+        }
+        return cached;
+    }
+
+    void putFieldRules(@NotNull FieldRules rules, @NotNull RulesMemoSession session){
+        session.fieldRules.put(rules.qualifiedName(), rules);
+    }
+
+    /**
+     * Получить запомненную цепочку, если все записи полей, из которых она собрана, и родитель, на котором она закончилась,
+     * все еще актуальны.
+     * @param own Актуальная запись полей самого класса
+     */
+    @Nullable
+    ChainRules getChain(@NotNull FieldRules own, @NotNull RulesMemoSession session){
+        ChainRules fromSession = session.chains.get(own.qualifiedName());
+        if (fromSession != null){
+            return fromSession.parts().get(0) == own ? fromSession : null;
+        }
+
+        ChainRules cached = chains.get(own.qualifiedName());
+        if (cached == null) return null;
+        PsiManager psiManager = PsiManager.getInstance(project);
+        long javaStamp = getJavaStamp();
+        if (!isFilesUpToDate(psiManager, cached.endStamps())) return null;
+        for (FieldRules part : cached.parts()) {
+            FieldRules current = session.fieldRules.getOrDefault(part.qualifiedName(), fieldRules.get(part.qualifiedName()));
+            if (current != part || !part.isUpToDate(psiManager, javaStamp)) return null;
+        }
+        return cached.parts().get(0) == own ? cached : null;
+    }
+
+    void putChain(@NotNull ChainRules chain, @NotNull RulesMemoSession session){
+        session.chains.put(chain.parts().get(0).qualifiedName(), chain);
+    }
+
+    /**
+     * Перенести записи сессии в общую память. Вызывается вне прерываемого read action, после его успешного завершения.
+     */
+    void commit(@NotNull RulesMemoSession session){
+        fieldRules.putAll(session.fieldRules);
+        chains.putAll(session.chains);
+    }
+
+    /**
+     * Сбросить правила класса. Цепочки наследников, собранные с участием этого класса, станут неактуальными.
+     */
+    void invalidate(@NotNull String qualifiedName){
+        fieldRules.remove(qualifiedName);
+        chains.remove(qualifiedName);
+    }
+
+    void clear(){
+        fieldRules.clear();
+        chains.clear();
+    }
+
+}
@@ -0,0 +1,17 @@
+package me.rubix327.liquibasehelper.inspection;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Правила классов, запомненные во время одного прерываемого read action.<br>
+ * Read action может быть прерван и перезапущен, поэтому внутри него {@link RulesMemo} не изменяется: новые записи копятся в сессии
+ * и переносятся в общую память через {@link RulesManager#commitMemo(RulesMemoSession)} уже после его успешного завершения.
+ * Сессия используется одним потоком.
+ */
+public final class RulesMemoSession {
+
+    final Map<String, RulesMemo.FieldRules> fieldRules = new HashMap<>();
+    final Map<String, RulesMemo.ChainRules> chains = new HashMap<>();
+
+}
@@ -0,0 +1,230 @@
+package me.rubix327.liquibasehelper.inspection;
+
+import me.rubix327.liquibasehelper.inspection.model.TagRulesContainer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Неизменяемый снимок реестров {@link RulesManager}.<br>
+ * Читатели (инспекции, документация, автодополнение) получают снимок целиком и работают с ним без блокировок.
+ * Изменения собираются в {@link Builder} и публикуются новым снимком.
+ */
+final class RulesRegistry {
+
+    static final RulesRegistry EMPTY = new RulesRegistry(Map.of(), Map.of(), Map.of(), Map.of(), Map.of(), Map.of());
+
+    /**
+     * datamodelName -> контейнеры правил ("accIntentionTreeMeta" -> TagRulesContainer)
+     */
+    final Map<String, Set<TagRulesContainer>> parentToTagRulesContainer;
+    /**
+     * qualifiedName перечисления -> qualifiedName классов @CbsDatamodelClass, которые его используют.<br>
+     * Хранятся названия, а не PSI, чтобы реестр не удерживал деревья файлов в памяти и не устаревал после их перестроения.
+     */
+    final Map<String, Set<String>> enumsToClassesUsingThem;
+    /**
+     * Обратная сторона: qualifiedName класса -> qualifiedName используемых им перечислений.
+     */
+    final Map<String, Set<String>> classToUsedEnums;
+    /**
+     * qualifiedName -> datamodelName ("me.rubix327.AccIntentionTreeMeta" -> "accIntentionTreeMeta")
+     */
+    final Map<String, String> classToDatamodelValueRegistry;
+    /**
+     * Граф наследования классов @CbsDatamodelClass: qualifiedName родителя -> qualifiedName прямых наследников.<br>
+     * Строится из цепочек родителей при сборе правил, поэтому содержит только datamodel-классы (включая mapped).
+     */
+    final Map<String, Set<String>> superToInheritors;
+    /**
+     * Обратная сторона графа: qualifiedName класса -> qualifiedName его прямого datamodel-родителя.
+     */
+    final Map<String, String> classToSuperClass;
+
+    private RulesRegistry(Map<String, Set<TagRulesContainer>> parentToTagRulesContainer,
+                          Map<String, Set<String>> enumsToClassesUsingThem,
+                          Map<String, Set<String>> classToUsedEnums,
+                          Map<String, String> classToDatamodelValueRegistry,
+                          Map<String, Set<String>> superToInheritors,
+                          Map<String, String> classToSuperClass) {
+        this.parentToTagRulesContainer = parentToTagRulesContainer;
+        this.enumsToClassesUsingThem = enumsToClassesUsingThem;
+        this.classToUsedEnums = classToUsedEnums;
+        this.classToDatamodelValueRegistry = classToDatamodelValueRegistry;
+        this.superToInheritors = superToInheritors;
+        this.classToSuperClass = classToSuperClass;
+    }
+
+    /**
+     * Получить всех наследников класса (прямых и непрямых) обходом графа в ширину - от ближних к дальним.
+     */
+    @NotNull
+    List<String> getAllInheritors(@NotNull String classQualifiedName){
+        List<String> result = new ArrayList<>();
+        Set<String> visited = new HashSet<>(Set.of(classQualifiedName));
+        Deque<String> queue = new ArrayDeque<>(List.of(classQualifiedName));
+        while (!queue.isEmpty()){
+            for (String inheritor : superToInheritors.getOrDefault(queue.poll(), Set.of())) {
+                if (visited.add(inheritor)){
+                    result.add(inheritor);
+                    queue.add(inheritor);
+                }
+            }
+        }
+        return result;
+    }
+
+    @NotNull
+    Builder toBuilder(){
+        return new Builder(this);
+    }
+
+    /**
+     * Изменяемая копия снимка.<br>
+     * Копируются только верхние таблицы, вложенные множества неизменяемы и заменяются целиком при изменении,
+     * поэтому точечное обновление не копирует весь реестр.
+     */
+    static final class Builder {
+
+        private final Map<String, Set<TagRulesContainer>> parentToTagRulesContainer;
+        private final Map<String, Set<String>> enumsToClassesUsingThem;
+        private final Map<String, Set<String>> classToUsedEnums;
+        private final Map<String, String> classToDatamodelValueRegistry;
+        private final Map<String, Set<String>> superToInheritors;
+        private final Map<String, String> classToSuperClass;
+
+        private Builder(@NotNull RulesRegistry registry) {
+            this.parentToTagRulesContainer = new HashMap<>(registry.parentToTagRulesContainer);
+            this.enumsToClassesUsingThem = new HashMap<>(registry.enumsToClassesUsingThem);
+            this.classToUsedEnums = new HashMap<>(registry.classToUsedEnums);
+            this.classToDatamodelValueRegistry = new HashMap<>(registry.classToDatamodelValueRegistry);
+            this.superToInheritors = new HashMap<>(registry.superToInheritors);
+            this.classToSuperClass = new HashMap<>(registry.classToSuperClass);
+        }
+
+        void addRules(@NotNull String datamodelName, @NotNull TagRulesContainer container){
+            Set<TagRulesContainer> containers = new HashSet<>(parentToTagRulesContainer.getOrDefault(datamodelName, Set.of()));
+            containers.remove(container);
+            containers.add(container);
+            parentToTagRulesContainer.put(datamodelName, Set.copyOf(containers));
+        }
+
+        /**
+         * Удалить контейнеры тега, подходящие под условие. Тег без контейнеров удаляется целиком.
+         * @return true, если был удален хотя бы один контейнер
+         */
+        boolean removeRules(@NotNull String datamodelName, @NotNull Predicate<TagRulesContainer> condition){
+            Set<TagRulesContainer> existing = parentToTagRulesContainer.get(datamodelName);
+            if (existing == null) return false;
+
+            Set<TagRulesContainer> containers = new HashSet<>(existing);
+            boolean removed = containers.removeIf(condition);
+            if (containers.isEmpty()){
+                parentToTagRulesContainer.remove(datamodelName);
+            } else if (removed){
+                parentToTagRulesContainer.put(datamodelName, Set.copyOf(containers));
+            }
+            return removed;
+        }
+
+        /**
+         * Заменить набор перечислений, используемых классом. Старые связи класса удаляются.
+         */
+        void setUsedEnums(@NotNull String usingClass, @NotNull Set<String> usedEnums){
+            removeClassReferencesFromEnums(usingClass);
+            if (usedEnums.isEmpty()) return;
+
+            for (String usedEnum : usedEnums) {
+                Set<String> classes = new HashSet<>(enumsToClassesUsingThem.getOrDefault(usedEnum, Set.of()));
+                classes.add(usingClass);
+                enumsToClassesUsingThem.put(usedEnum, Set.copyOf(classes));
+            }
+            classToUsedEnums.put(usingClass, Set.copyOf(usedEnums));
+        }
+
+        /**
+         * Удалить все связи класса с перечислениями. Затрагиваются только перечисления этого класса (через обратную таблицу).
+         */
+        void removeClassReferencesFromEnums(@NotNull String usingClass){
+            Set<String> usedEnums = classToUsedEnums.remove(usingClass);
+            if (usedEnums == null) return;
+
+            for (String usedEnum : usedEnums) {
+                Set<String> classes = new HashSet<>(enumsToClassesUsingThem.getOrDefault(usedEnum, Set.of()));
+                classes.remove(usingClass);
+                if (classes.isEmpty()){
+                    enumsToClassesUsingThem.remove(usedEnum);
+                } else {
+                    enumsToClassesUsingThem.put(usedEnum, Set.copyOf(classes));
+                }
+            }
+        }
+
+        void putDatamodelValue(@NotNull String classQualifiedName, @NotNull String datamodelName){
+            classToDatamodelValueRegistry.put(classQualifiedName, datamodelName);
+        }
+
+        void removeDatamodelValue(@NotNull String classQualifiedName){
+            classToDatamodelValueRegistry.remove(classQualifiedName);
+        }
+
+        /**
+         * Записать цепочку datamodel-родителей класса в граф наследования.
+         * @param classQualifiedName Класс
+         * @param superClasses Его datamodel-родители, начиная с ближайшего
+         */
+        void setSuperClasses(@NotNull String classQualifiedName, @NotNull List<String> superClasses){
+            String child = classQualifiedName;
+            for (String superClass : superClasses) {
+                setSuperClass(child, superClass);
+                child = superClass;
+            }
+            // У последнего в цепочке нет datamodel-родителя
+            setSuperClass(child, null);
+        }
+
+        /**
+         * Убрать класс из графа наследования как наследника. Его собственные наследники остаются до их пересборки.
+         */
+        void removeFromHierarchy(@NotNull String classQualifiedName){
+            setSuperClass(classQualifiedName, null);
+        }
+
+        private void setSuperClass(@NotNull String classQualifiedName, String superClass){
+            String oldSuperClass = classToSuperClass.get(classQualifiedName);
+            if (Objects.equals(oldSuperClass, superClass)) return;
+
+            if (oldSuperClass != null){
+                Set<String> inheritors = new HashSet<>(superToInheritors.getOrDefault(oldSuperClass, Set.of()));
+                inheritors.remove(classQualifiedName);
+                if (inheritors.isEmpty()){
+                    superToInheritors.remove(oldSuperClass);
+                } else {
+                    superToInheritors.put(oldSuperClass, Set.copyOf(inheritors));
+                }
+                classToSuperClass.remove(classQualifiedName);
+            }
+            if (superClass != null){
+                Set<String> inheritors = new HashSet<>(superToInheritors.getOrDefault(superClass, Set.of()));
+                inheritors.add(classQualifiedName);
+                superToInheritors.put(superClass, Set.copyOf(inheritors));
+                classToSuperClass.put(classQualifiedName, superClass);
+            }
+        }
+
+        @NotNull
+        RulesRegistry build(){
+            return new RulesRegistry(
+                    Collections.unmodifiableMap(new HashMap<>(parentToTagRulesContainer)),
+                    Collections.unmodifiableMap(new HashMap<>(enumsToClassesUsingThem)),
+                    Collections.unmodifiableMap(new HashMap<>(classToUsedEnums)),
+                    Collections.unmodifiableMap(new HashMap<>(classToDatamodelValueRegistry)),
+                    Collections.unmodifiableMap(new HashMap<>(superToInheritors)),
+                    Collections.unmodifiableMap(new HashMap<>(classToSuperClass))
+            );
+        }
+
+    }
+
+}
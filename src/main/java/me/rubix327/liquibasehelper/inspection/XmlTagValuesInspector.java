@@ -2,12 +2,16 @@ package me.rubix327.liquibasehelper.inspection;
 
 import com.intellij.codeInspection.LocalInspectionTool;
 import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.DumbAware;
 import com.intellij.psi.PsiElementVisitor;
 import com.intellij.psi.XmlElementVisitor;
+import com.intellij.psi.XmlRecursiveElementWalkingVisitor;
 import com.intellij.psi.xml.XmlAttribute;
 import com.intellij.psi.xml.XmlFile;
 import com.intellij.psi.xml.XmlTag;
 import me.rubix327.liquibasehelper.Utils;
+import me.rubix327.liquibasehelper.inspection.cache.ValidationResultsCache;
 import me.rubix327.liquibasehelper.inspection.custom.InspectionStorage;
 import me.rubix327.liquibasehelper.inspection.model.*;
 import me.rubix327.liquibasehelper.locale.DeclinationHelper;
@@ -16,29 +20,41 @@ import me.rubix327.liquibasehelper.settings.StaticSettings;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
-public class XmlTagValuesInspector extends LocalInspectionTool {
+/**
+ * Проверка значений тегов и атрибутов datamodel-файлов.<br>
+ * Работает и во время индексации по последнему опубликованному реестру правил (или восстановленному снимку).
+ */
+public class XmlTagValuesInspector extends LocalInspectionTool implements DumbAware {
 
     public static final List<AttributeRule> attributeRules = new ArrayList<>(){{
-        add(new AttributeRule("id").setMustParentName("changeSet").setMaxLength(255).setAttributeTooltip("Идентификатор ченджсета. Должен быть уникальным в разрезе этого файла."));
-        add(new AttributeRule("author").setMustParentName("changeSet").setMaxLength(255).setAttributeTooltip("Автор этого ченджсета."));
-        add(new AttributeRule("constraintName").setMustGrandParentName("changeSet").setMaxLength(30).setAttributeTooltip("Название ограничения"));
-        add(new AttributeRule("columnName").setMustGrandParentName("changeSet").setMaxLength(30).setAttributeTooltip("Название колонки"));
-        add(new AttributeRule("tableName").setMustGrandParentName("changeSet").setMaxLength(30).setAttributeTooltip("Название таблицы"));
-        add(new AttributeRule("tablespace").setMustGrandParentName("changeSet").setMaxLength(30));
-        add(new AttributeRule("baseTableName").setMustGrandParentName("changeSet").setMaxLength(30));
-        add(new AttributeRule("indexName").setMustGrandParentName("changeSet").setMaxLength(30).setAttributeTooltip("Название индекса"));
-        add(new AttributeRule("oldTableName").setMustGrandParentName("changeSet").setMaxLength(30).setAttributeTooltip("Старое название таблицы"));
-        add(new AttributeRule("newTableName").setMustGrandParentName("changeSet").setMaxLength(30).setAttributeTooltip("Новое название таблицы"));
-        add(new AttributeRule("oldColumnName").setMustGrandParentName("changeSet").setMaxLength(30).setAttributeTooltip("Старое название колонки"));
-        add(new AttributeRule("newColumnName").setMustGrandParentName("changeSet").setMaxLength(30).setAttributeTooltip("Новое название колонки"));
-        add(new AttributeRule("name").setMustParentName("column").setMaxLength(30).setAttributeTooltip("Название колонки"));
+        add(new AttributeRule("id").setMustTagName("changeSet").setMaxLength(255).setAttributeTooltip("Идентификатор ченджсета. Должен быть уникальным в разрезе этого файла."));
+        add(new AttributeRule("author").setMustTagName("changeSet").setMaxLength(255).setAttributeTooltip("Автор этого ченджсета."));
+        add(new AttributeRule("constraintName").setMustParentName("changeSet").setMaxLength(30).setAttributeTooltip("Название ограничения"));
+        add(new AttributeRule("columnName").setMustParentName("changeSet").setMaxLength(30).setAttributeTooltip("Название колонки"));
+        add(new AttributeRule("tableName").setMustParentName("changeSet").setMaxLength(30).setAttributeTooltip("Название таблицы"));
+        add(new AttributeRule("tablespace").setMustParentName("changeSet").setMaxLength(30));
+        add(new AttributeRule("baseTableName").setMustParentName("changeSet").setMaxLength(30));
+        add(new AttributeRule("indexName").setMustParentName("changeSet").setMaxLength(30).setAttributeTooltip("Название индекса"));
+        add(new AttributeRule("oldTableName").setMustParentName("changeSet").setMaxLength(30).setAttributeTooltip("Старое название таблицы"));
+        add(new AttributeRule("newTableName").setMustParentName("changeSet").setMaxLength(30).setAttributeTooltip("Новое название таблицы"));
+        add(new AttributeRule("oldColumnName").setMustParentName("changeSet").setMaxLength(30).setAttributeTooltip("Старое название колонки"));
+        add(new AttributeRule("newColumnName").setMustParentName("changeSet").setMaxLength(30).setAttributeTooltip("Новое название колонки"));
+        add(new AttributeRule("name").setMustTagName("column").setMaxLength(30).setAttributeTooltip("Название колонки"));
     }};
 
+    /**
+     * Правила атрибутов, сгруппированные по названию атрибута (строятся один раз из {@link #attributeRules})
+     */
+    public static final AttributeRulesIndex attributeRulesIndex = AttributeRulesIndex.of(attributeRules);
+
     @Override
     public @NotNull PsiElementVisitor buildVisitor(@NotNull ProblemsHolder holder, boolean isOnTheFly) {
+        if (!isOnTheFly){
+            return buildBatchVisitor(holder);
+        }
+
         return new XmlElementVisitor() {
 
             @Override
@@ -60,9 +76,7 @@ public class XmlTagValuesInspector extends LocalInspectionTool {
 
                 super.visitXmlTag(tag);
 
-                checkForTagConstraints(tag, holder);
-                checkForRequiredTags(tag, holder);
-                InspectionStorage.getXmlTagInspections().forEach(e -> e.checkForTagConstraints(tag, holder));
+                checkTag(tag, holder);
             }
 
             @Override
@@ -78,12 +92,76 @@ public class XmlTagValuesInspector extends LocalInspectionTool {
         };
     }
 
+    /**
+     * Визитор для пакетной проверки (Inspect Code): файл проверяется целиком за один обход,
+     * и если ни файл, ни правила, ни Java-классы не менялись, проблемы берутся из {@link ValidationResultsCache}.
+     */
+    private @NotNull PsiElementVisitor buildBatchVisitor(@NotNull ProblemsHolder holder){
+        return new XmlElementVisitor() {
+
+            @Override
+            public void visitXmlFile(@NotNull XmlFile file) {
+                if (!StaticSettings.ENABLE_INSPECTIONS){
+                    return;
+                }
+
+                ValidationResultsCache cache = ValidationResultsCache.getInstance(file.getProject());
+                if (cache.replay(file, holder)){
+                    return;
+                }
+
+                long rulesVersion = RulesManager.getInstance(file.getProject()).getRulesVersion();
+                long javaStamp = cache.getJavaStamp();
+                int problemsBefore = holder.getResultCount();
+                boolean hasRulesContainer = checkFile(file, holder);
+                // Файлы без тегов с правилами (не datamodel) не кэшируются
+                if (hasRulesContainer){
+                    cache.store(file, rulesVersion, javaStamp, holder.getResults().subList(problemsBefore, holder.getResultCount()));
+                }
+            }
+        };
+    }
+
+    /**
+     * Проверить все теги и атрибуты файла.
+     * @return Есть ли в файле теги, для которых зарегистрированы правила
+     */
+    private boolean checkFile(@NotNull XmlFile file, @NotNull ProblemsHolder holder){
+        RulesManager rulesManager = RulesManager.getInstance(file.getProject());
+        boolean[] hasRulesContainer = new boolean[1];
+        file.accept(new XmlRecursiveElementWalkingVisitor() {
+            @Override
+            public void visitXmlTag(@NotNull XmlTag tag) {
+                ProgressManager.checkCanceled();
+
+                checkTag(tag, holder);
+                if (!hasRulesContainer[0]){
+                    hasRulesContainer[0] = rulesManager.getRulesContainerByTagName(tag.getName()) != null;
+                }
+
+                super.visitXmlTag(tag);
+            }
+
+            @Override
+            public void visitXmlAttribute(@NotNull XmlAttribute attribute) {
+                checkForAttributeConstraints(attribute, holder);
+            }
+        });
+        return hasRulesContainer[0];
+    }
+
+    private void checkTag(@NotNull XmlTag tag, @NotNull ProblemsHolder holder){
+        checkForTagConstraints(tag, holder);
+        checkForRequiredTags(tag, holder);
+        InspectionStorage.getXmlTagInspections().forEach(e -> e.checkForTagConstraints(tag, holder));
+    }
+
     private void checkForAttributeConstraints(@NotNull XmlAttribute attribute, @NotNull ProblemsHolder holder){
         if (attribute.getParent() == null || attribute.getParent().getParentTag() == null) return;
         XmlTag parent = attribute.getParent();
         if (parent == null) return;
 
-        AttributeRule rule = AttributeRule.getSuitableAttributeRule(attributeRules, attribute);
+        AttributeRule rule = attributeRulesIndex.getSuitableRule(attribute);
         if (rule == null) return;
 
         String attributeText = attribute.getValue();
@@ -97,19 +175,6 @@ public class XmlTagValuesInspector extends LocalInspectionTool {
         }
     }
 
-    public static boolean isTagSuitableByNeighbours(@NotNull XmlTag tag, @NotNull List<AttributeNeighbour> neighbours){
-        for (AttributeNeighbour neighbour : neighbours) {
-            if (neighbour.attributeName == null) continue; // Если не заполнено название соседа, то подходит
-
-            XmlAttribute attribute = tag.getAttribute(neighbour.attributeName);
-            if (attribute == null) return false; // Если у соседа есть название, но его нет в теге, то не подходит
-            if (neighbour.attributeValue == null) continue; // Если значение не заполнено, то подходит
-
-            if (attribute.getValue() == null) return false;
-        }
-        return true;
-    }
-
     /**
      * Проверки на ограничения тегов.
      */
@@ -119,58 +184,33 @@ public class XmlTagValuesInspector extends LocalInspectionTool {
         TagRulesContainer containerOfThisParent = RulesManager.getInstance(tag.getProject()).getRulesContainerByTagName(tag.getParentTag().getName());
         if (containerOfThisParent == null || Utils.isEmpty(containerOfThisParent.getTagRules())) return;
 
-        TagRule rule = TagRule.getSuitableTagRule(containerOfThisParent.getTagRules(), tag);
-        if (rule == null) return;
+        TagRuleValidator validator = containerOfThisParent.getTagValidator(tag.getName());
+        if (validator == null) return;
 
         String tagText = tag.getValue().getText();
 
         // Проверка на максимальную длину
-        if (rule.getMaxLength() > 0 && tagText.length() > rule.getMaxLength()){
-            Utils.registerErrorOnValueOrTag(holder, tag, DeclinationHelper.CHARACTER_NOMINATIVE_TAG.message(rule.getMaxLength()));
+        if (validator.isTooLong(tagText)){
+            Utils.registerErrorOnValueOrTag(holder, tag, DeclinationHelper.CHARACTER_NOMINATIVE_TAG.message(validator.getMaxLength()));
         }
 
         // Проверка на обязательность
-        if (tagText.isEmpty() && rule.isRequired()){
-            Utils.registerErrorOnValueOrTag(holder, tag, Localization.message("tag.warn.required"));
+        if (tagText.isEmpty()){
+            if (validator.isRequired()){
+                Utils.registerErrorOnValueOrTag(holder, tag, Localization.message("tag.warn.required"));
+            }
             return;
         }
 
-        if (tagText.isEmpty()) return;
-
-        // Проверка на целое число
-        if (Long.class.getTypeName().equals(rule.getType())){
-            try{
-                Long.parseLong(tagText);
-            } catch (NumberFormatException e){
-                Utils.registerErrorOnValueOrTag(holder, tag, Localization.message("tag.warn.must-be-integer"));
-            }
-        }
-        // Проверка на число с плавающей точкой
-        else if (Double.class.getTypeName().equals(rule.getType())){
-            try{
-                Double.parseDouble(tagText);
-            } catch (NumberFormatException e){
-                Utils.registerErrorOnValueOrTag(holder, tag, Localization.message("tag.warn.must-be-double"));
-            }
-        }
-        // Проверка на 0, 1
-        else if (Boolean.class.getTypeName().equals(rule.getType())){
-            if (!List.of("0", "1").contains(tagText)){
-                Utils.registerErrorOnValueOrTag(holder, tag, Localization.message("tag.warn.must-be-boolean"));
-            }
-        }
-        // Проверка на дату
-        else if (Date.class.getTypeName().equals(rule.getType())){
-            if (!Utils.isDate(tagText)){
-                Utils.registerErrorOnValueOrTag(holder, tag, Localization.message("tag.warn.must-be-date"));
-            }
+        // Проверка на тип (целое число, число с плавающей точкой, 0/1, дата)
+        if (validator.isTypeMismatch(tagText)){
+            Utils.registerErrorOnValueOrTag(holder, tag, Localization.message(validator.getValueType().getMessageKey()));
         }
 
         // Проверка на допустимые значения
         // Не заполняются при type=Boolean
-        List<String> availableValuesStrings = rule.getAvailableValues().stream().map(AvailableValue::getValue).toList();
-        if (Utils.isNotEmpty(rule.getAvailableValues()) && !availableValuesStrings.contains(tagText)){
-            Utils.registerErrorOnValueOrTag(holder, tag, Localization.message("tag.warn.must-be-following", availableValuesStrings));
+        if (validator.isNotAvailable(tagText)){
+            Utils.registerErrorOnValueOrTag(holder, tag, Localization.message("tag.warn.must-be-following", validator.getAvailableValuesList()));
         }
 
     }
@@ -183,15 +223,11 @@ public class XmlTagValuesInspector extends LocalInspectionTool {
         if (parentTag.getParentTag() == null) return;
 
         TagRulesContainer containerOfThisParent = RulesManager.getInstance(parentTag.getProject()).getRulesContainerByTagName(parentTag.getName());
-        if (containerOfThisParent == null || containerOfThisParent.getTagRules() == null || containerOfThisParent.getTagRules().isEmpty()) return;
-
-        List<String> requiredTags = new ArrayList<>(containerOfThisParent.getTagRules().stream().filter(TagRule::isRequired).map(TagRule::getTagName).toList());
-
-        List<String> childrenTags = Utils.getXmlTagsFromPsiElements(parentTag.getChildren()).stream().map(XmlTag::getName).toList();
-        requiredTags.removeAll(childrenTags);
+        if (containerOfThisParent == null) return;
 
-        if (!requiredTags.isEmpty()){
-            Utils.registerErrorOnElement(holder, parentTag, Localization.message("tag.warn.must-include-required-tags", requiredTags));
+        List<String> missingTags = containerOfThisParent.getMissingRequiredTags(parentTag.getSubTags());
+        if (!missingTags.isEmpty()){
+            Utils.registerErrorOnElement(holder, parentTag, Localization.message("tag.warn.must-include-required-tags", missingTags));
         }
     }
 
@@ -0,0 +1,154 @@
+package me.rubix327.liquibasehelper.inspection.cache;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import me.rubix327.liquibasehelper.inspection.model.HandleClassesResponse;
+import me.rubix327.liquibasehelper.inspection.model.TagRulesContainer;
+import me.rubix327.liquibasehelper.log.MainLogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Общий для всех проектов кэш правил из .jar зависимостей Maven.<br>
+ * Проекты не делят между собой экземпляры правил: в кэш кладутся и из кэша выдаются копии.<br>
+ * Содержимое .jar неизменно в рамках одной версии артефакта, поэтому правила, собранные из его пакетов, хранятся
+ * по хэшу содержимого .jar (см. {@link FileStampUtils#getJarHash}) и переиспользуются всеми проектами с этой версией
+ * и при каждом переимпорте Maven, без повторного разбора декомпилированных классов.<br>
+ * Кэш хранится в памяти и на диске (в системной папке IDE), поэтому переживает и перезапуск IDE.
+ */
+@Service(Service.Level.APP)
+public final class DependencyRulesCache {
+
+    private static final String CACHE_DIR = "dependencies";
+
+    /**
+     * Ключ (хэш .jar + пакеты) -> записи правил классов
+     */
+    private final Map<String, List<RulesSnapshotEntry>> entries = new ConcurrentHashMap<>();
+
+    public static DependencyRulesCache getInstance(){
+        return ApplicationManager.getApplication().getService(DependencyRulesCache.class);
+    }
+
+    /**
+     * Ключ кэша: хэш .jar и SHA-256 отсортированного списка пакетов
+     * (ключ - это и название файла на диске, поэтому сами пакеты в него не входят).
+     */
+    @NotNull
+    private static String makeKey(@NotNull String jarHash, @NotNull Collection<String> packages){
+        List<String> sortedPackages = new ArrayList<>(packages);
+        Collections.sort(sortedPackages);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] packagesHash = digest.digest(String.join(";", sortedPackages).getBytes(StandardCharsets.UTF_8));
+            return jarHash + "-" + HexFormat.of().formatHex(packagesHash);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 обязан поддерживаться любой JVM
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @NotNull
+    private static Path getCachePath(@NotNull String key){
+        return PathManager.getSystemDir().resolve(RulesSnapshotStorage.SNAPSHOT_DIR).resolve(CACHE_DIR).resolve(key + ".bin");
+    }
+
+    /**
+     * Получить сохраненные правила пакетов .jar.<br>
+     * Должен вызываться внутри read action.
+     * @param jarHash Хэш содержимого .jar
+     * @param packages Пакеты, из которых собирались правила
+     * @return Копии записей правил или null, если правила еще не собирались или устарели
+     * (например, изменился .jar, в котором лежит родитель или перечисление)
+     */
+    @Nullable
+    public List<RulesSnapshotEntry> get(@NotNull String jarHash, @NotNull Collection<String> packages){
+        String key = makeKey(jarHash, packages);
+        List<RulesSnapshotEntry> cached = entries.get(key);
+        if (cached == null){
+            cached = load(key);
+            if (cached == null) return null;
+            entries.putIfAbsent(key, cached);
+        }
+
+        for (RulesSnapshotEntry entry : cached) {
+            if (!RulesSnapshotStorage.isUpToDate(entry)){
+                entries.remove(key, cached);
+                return null;
+            }
+        }
+        return copyEntries(cached);
+    }
+
+    @NotNull
+    private static List<RulesSnapshotEntry> copyEntries(@NotNull List<RulesSnapshotEntry> entries){
+        List<RulesSnapshotEntry> result = new ArrayList<>(entries.size());
+        for (RulesSnapshotEntry entry : entries) {
+            result.add(new RulesSnapshotEntry(entry.getContainer().copy(), entry.getFileStamps(), entry.getUsedEnums()));
+        }
+        return result;
+    }
+
+    @Nullable
+    private List<RulesSnapshotEntry> load(@NotNull String key){
+        Path path = getCachePath(key);
+        if (!Files.exists(path)) return null;
+        try {
+            return List.copyOf(RulesSnapshotStorage.readEntries(path));
+        } catch (IOException | RuntimeException e) {
+            MainLogger.warn("Could not read dependency rules cache %s: %s", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Сохранить правила, собранные из пакетов .jar.<br>
+     * Вызывается вне read action: классы ищутся порциями в прерываемых read action-ах, а хэши и запись на диск - вне их.<br>
+     * Если запись не удалось собрать хотя бы для одного класса, то правила не сохраняются, чтобы не отдавать их потом неполными.
+     * @param project Проект, в котором собирались правила
+     * @param jarHash Хэш содержимого .jar
+     * @param packages Пакеты, из которых собирались правила
+     * @param responses Успешные ответы по классам этих пакетов
+     */
+    public void put(@NotNull Project project, @NotNull String jarHash, @NotNull Collection<String> packages,
+                    @NotNull Collection<HandleClassesResponse> responses, @NotNull ProgressIndicator indicator){
+        Map<TagRulesContainer, Collection<String>> usedEnums = new IdentityHashMap<>();
+        List<TagRulesContainer> containers = new ArrayList<>(responses.size());
+        for (HandleClassesResponse response : responses) {
+            if (!response.isSuccess() || response.getContainer() == null) continue;
+            // Контейнер ответа публикуется в реестре проекта, поэтому в кэш идет его копия
+            TagRulesContainer container = response.getContainer().copy();
+            containers.add(container);
+            usedEnums.put(container, response.getUsedEnums());
+        }
+
+        List<RulesSnapshotEntry> collected = RulesSnapshotStorage.createEntries(project, containers, usedEnums::get, indicator);
+        if (collected.contains(null)){
+            MainLogger.info(project, 1, "Rules of jar %s were not cached: some of the files could not be stamped.", jarHash);
+            return;
+        }
+
+        String key = makeKey(jarHash, packages);
+        entries.put(key, List.copyOf(collected));
+
+        Path path = getCachePath(key);
+        try {
+            RulesSnapshotStorage.writeEntries(path, collected);
+        } catch (IOException e) {
+            MainLogger.warn(project, "Could not save dependency rules cache %s: %s", path, e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package me.rubix327.liquibasehelper.inspection.cache;
+
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.vfs.JarFileSystem;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Отпечатки файлов, по которым определяется актуальность сохраненных правил.<ul>
+ *     <li>Файл внутри .jar - хэш содержимого всего .jar (зависимости неизменяемы в рамках одной версии)</li>
+ *     <li>Обычный файл - время изменения на диске и размер</li>
+ * </ul>
+ */
+public class FileStampUtils {
+
+    private static final String JAR_PREFIX = "jar:";
+    private static final String LOCAL_PREFIX = "local:";
+
+    /**
+     * Кэш хэшей .jar файлов: путь -> (время изменения, размер, хэш).<br>
+     * Хэш пересчитывается только если .jar изменился на диске.
+     */
+    private static final Map<String, JarHash> jarHashes = new ConcurrentHashMap<>();
+
+    private record JarHash(long timeStamp, long length, String hash) {}
+
+    /**
+     * Получить отпечаток файла.
+     * @param file Файл (класс из исходников или из .jar)
+     * @return Отпечаток или null, если файл не удалось прочитать или в нем есть несохраненные изменения
+     */
+    @Nullable
+    public static String getStamp(@NotNull VirtualFile file){
+        return getStamp(file, true);
+    }
+
+    /**
+     * Получить отпечаток файла, не читая .jar: для файла из .jar используется только уже посчитанный хэш.<br>
+     * Подходит для read action, где чтение всего .jar недопустимо (хэши считаются заранее через {@link #computeJarHash(VirtualFile)}).
+     * @return Отпечаток или null, если его нельзя получить (в том числе если хэш .jar еще не посчитан или устарел)
+     */
+    @Nullable
+    public static String getCachedStamp(@NotNull VirtualFile file){
+        return getStamp(file, false);
+    }
+
+    /**
+     * Посчитать хэш .jar, в котором лежит файл (если файл лежит в .jar), чтобы затем получать отпечаток через {@link #getCachedStamp(VirtualFile)}.<br>
+     * Вызывается вне read action.
+     */
+    public static void computeJarHash(@NotNull VirtualFile file){
+        if (!file.isValid() || !(file.getFileSystem() instanceof JarFileSystem)) return;
+        VirtualFile jarFile = VfsUtilCore.getVirtualFileForJar(file);
+        if (jarFile != null){
+            getJarHash(jarFile);
+        }
+    }
+
+    @Nullable
+    private static String getStamp(@NotNull VirtualFile file, boolean computeJarHash){
+        if (!file.isValid()) return null;
+
+        if (file.getFileSystem() instanceof JarFileSystem){
+            VirtualFile jarFile = VfsUtilCore.getVirtualFileForJar(file);
+            if (jarFile == null) return null;
+            String jarHash = computeJarHash ? getJarHash(jarFile) : getCachedJarHash(jarFile);
+            return jarHash == null ? null : JAR_PREFIX + jarHash;
+        }
+
+        // Несохраненный документ отличается от содержимого на диске, доверять отпечатку с диска нельзя
+        if (FileDocumentManager.getInstance().isFileModified(file)) return null;
+
+        return LOCAL_PREFIX + file.getTimeStamp() + ":" + file.getLength();
+    }
+
+    /**
+     * Получить SHA-256 хэш содержимого .jar файла.
+     * @param jarFile Локальный .jar файл
+     * @return Хэш в hex-представлении или null, если файл не удалось прочитать
+     */
+    @Nullable
+    public static String getJarHash(@NotNull VirtualFile jarFile){
+        long timeStamp = jarFile.getTimeStamp();
+        long length = jarFile.getLength();
+
+        String cached = getCachedJarHash(jarFile);
+        if (cached != null) return cached;
+
+        try (InputStream inputStream = jarFile.getInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1){
+                digest.update(buffer, 0, read);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            jarHashes.put(jarFile.getPath(), new JarHash(timeStamp, length, hash));
+            return hash;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return Посчитанный ранее хэш .jar или null, если он еще не считался или .jar с тех пор изменился
+     */
+    @Nullable
+    private static String getCachedJarHash(@NotNull VirtualFile jarFile){
+        JarHash cached = jarHashes.get(jarFile.getPath());
+        if (cached != null && cached.timeStamp() == jarFile.getTimeStamp() && cached.length() == jarFile.getLength()){
+            return cached.hash();
+        }
+        return null;
+    }
+
+}
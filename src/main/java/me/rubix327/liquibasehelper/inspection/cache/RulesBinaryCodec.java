@@ -0,0 +1,185 @@
+package me.rubix327.liquibasehelper.inspection.cache;
+
+import me.rubix327.liquibasehelper.inspection.model.AvailableValue;
+import me.rubix327.liquibasehelper.inspection.model.TagRule;
+import me.rubix327.liquibasehelper.inspection.model.TagRulesContainer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Компактная бинарная сериализация правил ({@link TagRulesContainer}, {@link TagRule}, {@link AvailableValue}).<br>
+ * Все строки выносятся в общую таблицу в начале потока и дальше записываются индексами,
+ * поэтому повторяющиеся пути к классам, названия тегов и значения перечислений хранятся один раз.<br><br>
+ * Формат: MAGIC, VERSION, таблица строк, тело. При несовпадении MAGIC или VERSION чтение завершается {@link IOException}.
+ */
+public class RulesBinaryCodec {
+
+    private static final int MAGIC = 0x4C48_5253; // "LHRS"
+    /**
+     * Версия формата. Увеличивать при любом изменении структуры тела или моделей правил,
+     * а также при изменении того, как собираются сами правила (иначе снимки и кэш зависимостей отдадут старые правила).
+     */
+    public static final int VERSION = 3;
+
+    private static final int NULL_STRING = -1;
+
+    /**
+     * Запись правил. Тело копится в памяти, чтобы таблица строк могла быть записана перед ним.
+     */
+    public static class Writer {
+
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+        private final DataOutputStream body = new DataOutputStream(bodyBytes);
+
+        public void writeInt(int value) throws IOException {
+            body.writeInt(value);
+        }
+
+        public void writeString(@Nullable String s) throws IOException {
+            if (s == null){
+                body.writeInt(NULL_STRING);
+                return;
+            }
+            Integer id = stringIds.get(s);
+            if (id == null){
+                id = strings.size();
+                strings.add(s);
+                stringIds.put(s, id);
+            }
+            body.writeInt(id);
+        }
+
+        public void writeContainer(@NotNull TagRulesContainer container) throws IOException {
+            writeString(container.getParentTagName());
+            writeString(container.getParentTagTooltip());
+            writeString(container.getParentTagDescription());
+            writeString(container.getMetaClassPath());
+            body.writeInt(container.getMetaClassNameOffset());
+
+            List<TagRule> rules = container.getTagRules() != null ? container.getTagRules() : List.of();
+            body.writeInt(rules.size());
+            for (TagRule rule : rules) {
+                writeRule(rule);
+            }
+        }
+
+        private void writeRule(@NotNull TagRule rule) throws IOException {
+            writeString(rule.getTagName());
+            writeString(rule.getType());
+            body.writeInt(rule.getMaxLength());
+            body.writeBoolean(rule.isRequired());
+
+            List<AvailableValue> availableValues = rule.getAvailableValues() != null ? rule.getAvailableValues() : List.of();
+            body.writeInt(availableValues.size());
+            for (AvailableValue availableValue : availableValues) {
+                writeString(availableValue.getValue());
+                writeString(availableValue.getComment());
+            }
+
+            writeString(rule.getTagTooltip());
+            writeString(rule.getTagDescription());
+            body.writeBoolean(rule.isExtendedTooltipInfo());
+            writeString(rule.getMetaClassPath());
+            body.writeInt(rule.getMetaFieldOffset());
+            writeString(rule.getListLinkToBaseClass());
+        }
+
+        /**
+         * Записать заголовок, таблицу строк и накопленное тело в указанный поток.
+         */
+        public void finish(@NotNull OutputStream target) throws IOException {
+            body.flush();
+            DataOutputStream out = new DataOutputStream(target);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(strings.size());
+            for (String s : strings) {
+                out.writeUTF(s);
+            }
+            bodyBytes.writeTo(out);
+            out.flush();
+        }
+    }
+
+    /**
+     * Чтение правил, записанных через {@link Writer}.
+     */
+    public static class Reader {
+
+        private final String[] strings;
+        private final DataInputStream body;
+
+        public Reader(@NotNull InputStream source) throws IOException {
+            body = new DataInputStream(source);
+            if (body.readInt() != MAGIC) throw new IOException("Not a LiquibaseHelper rules stream");
+            int version = body.readInt();
+            if (version != VERSION) throw new IOException("Unsupported rules stream version: " + version);
+
+            strings = new String[body.readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = body.readUTF();
+            }
+        }
+
+        public int readInt() throws IOException {
+            return body.readInt();
+        }
+
+        @Nullable
+        public String readString() throws IOException {
+            int id = body.readInt();
+            if (id == NULL_STRING) return null;
+            if (id < 0 || id >= strings.length) throw new IOException("Broken string reference: " + id);
+            return strings[id];
+        }
+
+        @NotNull
+        public TagRulesContainer readContainer() throws IOException {
+            TagRulesContainer container = new TagRulesContainer()
+                    .setParentTagName(readString())
+                    .setParentTagTooltip(readString())
+                    .setParentTagDescription(readString())
+                    .setClassPath(readString())
+                    .setClassNameOffset(body.readInt());
+
+            int rulesCount = body.readInt();
+            List<TagRule> rules = new ArrayList<>(rulesCount);
+            for (int i = 0; i < rulesCount; i++) {
+                rules.add(readRule());
+            }
+            return container.setTagRules(rules);
+        }
+
+        @NotNull
+        private TagRule readRule() throws IOException {
+            TagRule rule = new TagRule(readString());
+            rule.setType(readString());
+            rule.setMaxLength(body.readInt());
+            rule.setRequired(body.readBoolean());
+
+            int availableValuesCount = body.readInt();
+            List<AvailableValue> availableValues = new ArrayList<>(availableValuesCount);
+            for (int i = 0; i < availableValuesCount; i++) {
+                availableValues.add(new AvailableValue(readString(), readString()));
+            }
+            rule.setAvailableValues(availableValues);
+
+            rule.setTagTooltip(readString());
+            rule.setTagDescription(readString());
+            rule.setExtendedTooltipInfo(body.readBoolean());
+            rule.setMetaClassPath(readString());
+            rule.setMetaFieldOffset(body.readInt());
+            rule.setListLinkToBaseClass(readString());
+            return rule;
+        }
+    }
+
+}
@@ -0,0 +1,39 @@
+package me.rubix327.liquibasehelper.inspection.cache;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import me.rubix327.liquibasehelper.inspection.model.TagRulesContainer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сохраненные правила одного класса @CbsDatamodelClass.
+ */
+@Getter
+@RequiredArgsConstructor
+public class RulesSnapshotEntry {
+
+    /**
+     * Правила класса (включая правила родителей).
+     */
+    private final @NotNull TagRulesContainer container;
+    /**
+     * URL файла -> отпечаток ({@link FileStampUtils#getStamp}).<br>
+     * Содержит файл самого класса, файлы его родителей с @CbsDatamodelClass, родителя в конце цепочки,
+     * констант из availableValues и используемых перечислений.
+     * Первым всегда идет файл самого класса.
+     */
+    private final @NotNull Map<String, String> fileStamps;
+    /**
+     * Названия перечислений, используемых в availableValuesEnum/availableValuesEnumPath.
+     */
+    private final @NotNull List<String> usedEnums;
+
+    @NotNull
+    public String getClassQualifiedName(){
+        return container.getMetaClassPath();
+    }
+
+}
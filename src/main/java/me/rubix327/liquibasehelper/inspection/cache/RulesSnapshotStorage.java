@@ -0,0 +1,342 @@
+package me.rubix327.liquibasehelper.inspection.cache;
+
+import com.google.common.collect.Lists;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.JarFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.psi.*;
+import me.rubix327.liquibasehelper.AnnotationUtils;
+import me.rubix327.liquibasehelper.Utils;
+import me.rubix327.liquibasehelper.inspection.RulesManager;
+import me.rubix327.liquibasehelper.inspection.model.TagRulesContainer;
+import me.rubix327.liquibasehelper.log.MainLogger;
+import me.rubix327.liquibasehelper.settings.CbsAnnotation.CbsDatamodelField;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Сохранение правил проекта на диск (в системную папку IDE) и их восстановление при следующем открытии проекта.<br>
+ * Сразу после открытия проекта сохраненные правила публикуются в {@link RulesManager}, чтобы инспекции и документация
+ * работали еще до полной регистрации. Во время регистрации правила класса берутся из снимка, если ни один из файлов,
+ * от которых они зависят, не изменился (см. {@link #findFreshEntry(PsiClass)}); заново собираются только устаревшие.
+ */
+@Service(Service.Level.PROJECT)
+public final class RulesSnapshotStorage {
+
+    static final String SNAPSHOT_DIR = "liquibasehelper";
+    private static final int CHUNK_SIZE = 8;
+
+    private final Project project;
+    /**
+     * Записи последнего прочитанного или сохраненного снимка: qualifiedName класса -> запись.
+     */
+    private volatile Map<String, RulesSnapshotEntry> entries = Map.of();
+
+    public RulesSnapshotStorage(@NotNull Project project) {
+        this.project = project;
+    }
+
+    public static RulesSnapshotStorage getInstance(@NotNull Project project){
+        return project.getService(RulesSnapshotStorage.class);
+    }
+
+    @NotNull
+    private Path getSnapshotPath(){
+        return PathManager.getSystemDir().resolve(SNAPSHOT_DIR).resolve("rules-" + project.getLocationHash() + ".bin");
+    }
+
+    /**
+     * Прочитать снимок с диска и опубликовать его правила в {@link RulesManager}.<br>
+     * Не требует индексов и PSI, поэтому может вызываться до окончания индексации.
+     */
+    public void restore(){
+        Path path = getSnapshotPath();
+        if (!Files.exists(path)){
+            MainLogger.info(project, "Rules snapshot was not found.");
+            return;
+        }
+
+        Map<String, RulesSnapshotEntry> restored = new LinkedHashMap<>();
+        try {
+            for (RulesSnapshotEntry entry : readEntries(path)) {
+                restored.put(entry.getClassQualifiedName(), entry);
+            }
+        } catch (IOException | RuntimeException e) {
+            MainLogger.warn(project, "Could not read rules snapshot %s: %s", path, e.getMessage());
+            return;
+        }
+
+        entries = restored;
+        RulesManager.getInstance(project).restoreRulesFromSnapshot(
+                restored.values().stream().map(RulesSnapshotEntry::getContainer).toList());
+        MainLogger.info(project, "Restored rules of %s classes from snapshot.", restored.size());
+    }
+
+    /**
+     * Найти запись снимка для указанного класса, если она все еще актуальна.<br>
+     * Запись актуальна, если класс лежит в том же файле и отпечатки всех файлов, от которых зависят правила, не изменились.
+     * @param psiClass Класс
+     * @return Актуальная запись или null, если правила нужно собрать заново
+     */
+    @Nullable
+    public RulesSnapshotEntry findFreshEntry(@NotNull PsiClass psiClass){
+        String qualifiedName = psiClass.getQualifiedName();
+        if (qualifiedName == null) return null;
+
+        RulesSnapshotEntry entry = entries.get(qualifiedName);
+        if (entry == null) return null;
+
+        VirtualFile classFile = psiClass.getContainingFile() != null ? psiClass.getContainingFile().getVirtualFile() : null;
+        if (classFile == null || !entry.getFileStamps().containsKey(classFile.getUrl())) return null;
+
+        return isUpToDate(entry) ? entry : null;
+    }
+
+    /**
+     * Посчитать хэши .jar, от которых зависят записи снимка, чтобы {@link #findFreshEntry(PsiClass)} не читал .jar внутри read action.<br>
+     * Вызывается вне read action, перед поиском записей.
+     */
+    public void computeJarHashes(@NotNull ProgressIndicator indicator){
+        Set<String> jarUrls = new HashSet<>();
+        for (RulesSnapshotEntry entry : entries.values()) {
+            for (String url : entry.getFileStamps().keySet()) {
+                // Все файлы одного .jar имеют общий хэш, поэтому достаточно одного файла на .jar
+                int separator = url.indexOf(JarFileSystem.JAR_SEPARATOR);
+                if (separator < 0 || !jarUrls.add(url.substring(0, separator))) continue;
+
+                indicator.checkCanceled();
+                VirtualFile file = VirtualFileManager.getInstance().findFileByUrl(url);
+                if (file != null){
+                    FileStampUtils.computeJarHash(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Проверить, что отпечатки всех файлов, от которых зависят правила записи, не изменились.<br>
+     * Сами .jar не читаются: если хэш .jar еще не посчитан (см. {@link FileStampUtils#computeJarHash(VirtualFile)}), то запись считается устаревшей.
+     */
+    static boolean isUpToDate(@NotNull RulesSnapshotEntry entry){
+        for (Map.Entry<String, String> fileStamp : entry.getFileStamps().entrySet()) {
+            VirtualFile file = VirtualFileManager.getInstance().findFileByUrl(fileStamp.getKey());
+            if (file == null) return false;
+            if (!fileStamp.getValue().equals(FileStampUtils.getCachedStamp(file))) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Сохранить все зарегистрированные правила проекта на диск.<br>
+     * Вызывается вне read action: классы ищутся порциями в прерываемых read action-ах (см. {@link #createEntries}).
+     */
+    public void save(@NotNull RulesManager rulesManager, @NotNull ProgressIndicator indicator){
+        List<TagRulesContainer> containers = new ArrayList<>(rulesManager.getAllRegisteredRulesContainers());
+        List<RulesSnapshotEntry> created = createEntries(project, containers,
+                container -> rulesManager.getEnumsUsedByClass(container.getMetaClassPath()), indicator);
+
+        Map<String, RulesSnapshotEntry> collected = new LinkedHashMap<>();
+        for (RulesSnapshotEntry entry : created) {
+            if (entry != null){
+                collected.put(entry.getClassQualifiedName(), entry);
+            }
+        }
+
+        Path path = getSnapshotPath();
+        try {
+            writeEntries(path, collected.values());
+        } catch (IOException e) {
+            MainLogger.warn(project, "Could not save rules snapshot %s: %s", path, e.getMessage());
+            return;
+        }
+
+        entries = collected;
+        MainLogger.info(project, "Saved rules of %s classes to snapshot.", collected.size());
+    }
+
+    /**
+     * Собрать записи снимка для контейнеров правил. Вызывается вне read action.<br>
+     * Файлы, от которых зависят правила, ищутся через PSI порциями по {@value #CHUNK_SIZE} контейнеров
+     * в прерываемых read action-ах (см. {@link Utils#computeNonBlocking}), а отпечатки файлов
+     * (в том числе хэши .jar) считаются уже вне read action.
+     * @param usedEnums Перечисления, используемые в правилах класса контейнера
+     * @return Записи в порядке контейнеров; null на месте контейнера, для которого запись не удалось собрать
+     */
+    @NotNull
+    static List<RulesSnapshotEntry> createEntries(@NotNull Project project, @NotNull List<TagRulesContainer> containers,
+                                                  @NotNull Function<TagRulesContainer, Collection<String>> usedEnums,
+                                                  @NotNull ProgressIndicator indicator){
+        List<RulesSnapshotEntry> result = new ArrayList<>(containers.size());
+        for (List<TagRulesContainer> chunk : Lists.partition(containers, CHUNK_SIZE)) {
+            // Порция может быть перезапущена, поэтому внутри только поиск файлов, без побочных эффектов
+            List<EntrySources> sources = Utils.computeNonBlocking(project, indicator, () -> {
+                List<EntrySources> chunkSources = new ArrayList<>(chunk.size());
+                for (TagRulesContainer container : chunk) {
+                    chunkSources.add(findEntrySources(project, container, usedEnums.apply(container)));
+                }
+                return chunkSources;
+            });
+
+            for (EntrySources entrySources : sources) {
+                indicator.checkCanceled();
+                result.add(entrySources == null ? null : entrySources.toEntry());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Файлы, от которых зависят правила контейнера (в порядке обхода: класс, его родители и их константы,
+     * родитель в конце цепочки, перечисления).
+     */
+    record EntrySources(@NotNull TagRulesContainer container, @NotNull List<VirtualFile> files, @NotNull List<String> usedEnums) {
+
+        /**
+         * @return Запись или null, если отпечаток какого-либо из файлов не удалось получить
+         */
+        @Nullable
+        RulesSnapshotEntry toEntry(){
+            Map<String, String> fileStamps = new LinkedHashMap<>();
+            for (VirtualFile file : files) {
+                String stamp = FileStampUtils.getStamp(file);
+                if (stamp == null) return null;
+                fileStamps.put(file.getUrl(), stamp);
+            }
+            return new RulesSnapshotEntry(container, fileStamps, usedEnums);
+        }
+    }
+
+    /**
+     * Найти файлы, от которых зависят правила контейнера.<br>
+     * Должен вызываться внутри read action.
+     * @return Файлы или null, если класс, родителя, константу или перечисление не удалось найти
+     */
+    @Nullable
+    static EntrySources findEntrySources(@NotNull Project project, @NotNull TagRulesContainer container, @NotNull Collection<String> usedEnums){
+        PsiClass psiClass = Utils.findPsiClassByQualifiedName(project, container.getMetaClassPath());
+        if (psiClass == null) return null;
+
+        // Файлы, от которых зависят правила: сам класс и его родители с @CbsDatamodelClass,
+        // а также файлы констант, на которые ссылаются availableValues в их полях
+        List<VirtualFile> files = new ArrayList<>();
+        Set<PsiClass> visited = new HashSet<>();
+        PsiClass current = psiClass;
+        for (; current != null && !AnnotationUtils.isNotDatamodelClass(current) && visited.add(current); current = current.getSuperClass()) {
+            if (!addFile(files, current) || !addConstantFiles(files, current)) return null;
+        }
+
+        // ...родитель, на котором закончилась цепочка (если он получит @CbsDatamodelClass, то цепочка удлинится)
+        if (current != null && !visited.contains(current) && !addFile(files, current)) return null;
+
+        // ...и используемые перечисления
+        for (String usedEnum : usedEnums) {
+            PsiClass enumClass = Utils.findPsiClassByQualifiedName(project, usedEnum);
+            if (enumClass == null || !addFile(files, enumClass)) return null;
+        }
+
+        return new EntrySources(container, files, new ArrayList<>(usedEnums));
+    }
+
+    /**
+     * Прочитать записи из файла, сохраненного через {@link #writeEntries(Path, Collection)}.
+     */
+    @NotNull
+    static List<RulesSnapshotEntry> readEntries(@NotNull Path path) throws IOException {
+        List<RulesSnapshotEntry> result = new ArrayList<>();
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(path))) {
+            RulesBinaryCodec.Reader reader = new RulesBinaryCodec.Reader(inputStream);
+            int entriesCount = reader.readInt();
+            for (int i = 0; i < entriesCount; i++) {
+                Map<String, String> fileStamps = new LinkedHashMap<>();
+                int stampsCount = reader.readInt();
+                for (int j = 0; j < stampsCount; j++) {
+                    fileStamps.put(reader.readString(), reader.readString());
+                }
+                List<String> usedEnums = new ArrayList<>();
+                int enumsCount = reader.readInt();
+                for (int j = 0; j < enumsCount; j++) {
+                    usedEnums.add(reader.readString());
+                }
+                result.add(new RulesSnapshotEntry(reader.readContainer(), fileStamps, usedEnums));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Записать записи в файл. Запись идет во временный файл, который затем заменяет прежний.
+     */
+    static void writeEntries(@NotNull Path path, @NotNull Collection<RulesSnapshotEntry> entries) throws IOException {
+        Files.createDirectories(path.getParent());
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(tempPath))) {
+            RulesBinaryCodec.Writer writer = new RulesBinaryCodec.Writer();
+            writer.writeInt(entries.size());
+            for (RulesSnapshotEntry entry : entries) {
+                writer.writeInt(entry.getFileStamps().size());
+                for (Map.Entry<String, String> fileStamp : entry.getFileStamps().entrySet()) {
+                    writer.writeString(fileStamp.getKey());
+                    writer.writeString(fileStamp.getValue());
+                }
+                writer.writeInt(entry.getUsedEnums().size());
+                for (String usedEnum : entry.getUsedEnums()) {
+                    writer.writeString(usedEnum);
+                }
+                writer.writeContainer(entry.getContainer());
+            }
+            writer.finish(outputStream);
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static boolean addFile(@NotNull List<VirtualFile> files, @NotNull PsiElement element){
+        if (element.getContainingFile() == null) return false;
+        VirtualFile file = element.getContainingFile().getVirtualFile();
+        if (file == null) return false;
+
+        files.add(file);
+        return true;
+    }
+
+    /**
+     * Добавить файлы констант, на которые ссылаются availableValues в @CbsDatamodelField полей класса
+     * (по той же цепочке ссылок, что и {@link AnnotationUtils#resolveStringValue(PsiExpression)}).
+     * @return false, если какую-либо ссылку не удалось разрешить (зависимости записи неизвестны)
+     */
+    private static boolean addConstantFiles(@NotNull List<VirtualFile> files, @NotNull PsiClass psiClass){
+        for (PsiField field : psiClass.getFields()) {
+            PsiAnnotation fieldAnnotation = AnnotationUtils.findAnnotation(field, CbsDatamodelField.INSTANCE);
+            if (fieldAnnotation == null) continue;
+
+            PsiAnnotationMemberValue availableValues = fieldAnnotation.findDeclaredAttributeValue(CbsDatamodelField.Fields.AVAILABLE_VALUES);
+            List<PsiAnnotationMemberValue> values = availableValues instanceof PsiArrayInitializerMemberValue array
+                    ? List.of(array.getInitializers())
+                    : availableValues == null ? List.of() : List.of(availableValues);
+            for (PsiAnnotationMemberValue value : values) {
+                if (value instanceof PsiReferenceExpression reference && !addReferenceFiles(files, reference, new HashSet<>())) return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean addReferenceFiles(@NotNull List<VirtualFile> files, @NotNull PsiReferenceExpression reference, @NotNull Set<PsiElement> visited){
+        if (!(reference.resolve() instanceof PsiVariable variable)) return false;
+        if (!visited.add(variable)) return true;
+        if (!addFile(files, variable)) return false;
+
+        // Константа может ссылаться на другую константу
+        return !(variable.getInitializer() instanceof PsiReferenceExpression next) || addReferenceFiles(files, next, visited);
+    }
+
+}
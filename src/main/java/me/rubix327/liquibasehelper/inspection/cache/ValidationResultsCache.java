@@ -0,0 +1,153 @@
+package me.rubix327.liquibasehelper.inspection.cache;
+
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.ProblemHighlightType;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.codeInspection.QuickFix;
+import com.intellij.lang.java.JavaLanguage;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.containers.ContainerUtil;
+import me.rubix327.liquibasehelper.inspection.RulesManager;
+import me.rubix327.liquibasehelper.locale.Locale;
+import me.rubix327.liquibasehelper.settings.StaticSettings;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш результатов пакетной проверки (Inspect Code) xml-файлов инспекцией {@link me.rubix327.liquibasehelper.inspection.XmlTagValuesInspector}.<br>
+ * Проблемы файла запоминаются вместе со штампом изменения файла, версией правил ({@link RulesManager#getRulesVersion()})
+ * и счетчиком изменений Java-PSI (проверки тегов могут сверяться с Java-классами проекта).
+ * Пока ничего из этого не изменилось, повторная проверка не обходит файл заново, а воспроизводит запомненные проблемы.<ul>
+ *     <li>Запоминаются только диапазоны, тексты и типы подсветки: описания проблем создаются заново и не держат PSI</li>
+ *     <li>Результаты, полученные во время индексации, не кэшируются (классы тогда не ищутся)</li>
+ *     <li>Результаты с быстрыми исправлениями не кэшируются: исправления нельзя воссоздать без PSI</li>
+ * </ul>
+ */
+@Service(Service.Level.PROJECT)
+public final class ValidationResultsCache implements Disposable {
+
+    /**
+     * @param range Диапазон проблемы в файле
+     */
+    private record CachedProblem(@NotNull TextRange range, @NotNull String message, @NotNull ProblemHighlightType highlightType) {}
+
+    private record Entry(long fileStamp, long rulesVersion, long javaStamp, @NotNull Locale locale,
+                         @NotNull List<CachedProblem> problems) {}
+
+    private final Project project;
+    private final Map<VirtualFile, Entry> entries = ContainerUtil.createConcurrentWeakMap();
+
+    private final AtomicLong hitsCount = new AtomicLong();
+    private final AtomicLong missesCount = new AtomicLong();
+
+    public ValidationResultsCache(@NotNull Project project) {
+        this.project = project;
+    }
+
+    public static ValidationResultsCache getInstance(@NotNull Project project){
+        return project.getService(ValidationResultsCache.class);
+    }
+
+    /**
+     * Воспроизвести запомненные проблемы файла, если они актуальны.
+     * @return true - проблемы воспроизведены, и файл проверять не нужно
+     */
+    public boolean replay(@NotNull PsiFile file, @NotNull ProblemsHolder holder){
+        VirtualFile virtualFile = file.getVirtualFile();
+        Entry entry = virtualFile == null ? null : entries.get(virtualFile);
+        if (entry == null || !isUpToDate(entry, file)){
+            missesCount.incrementAndGet();
+            return false;
+        }
+
+        InspectionManager manager = holder.getManager();
+        for (CachedProblem problem : entry.problems()) {
+            holder.registerProblem(manager.createProblemDescriptor(
+                    file, problem.range(), problem.message(), problem.highlightType(), holder.isOnTheFly()));
+        }
+        hitsCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Запомнить проблемы, найденные при проверке файла.
+     * @param rulesVersion Версия правил, взятая до начала проверки
+     * @param javaStamp Счетчик изменений Java-PSI, взятый до начала проверки (см. {@link #getJavaStamp()})
+     * @param problems Все проблемы, найденные в файле
+     */
+    public void store(@NotNull PsiFile file, long rulesVersion, long javaStamp, @NotNull List<ProblemDescriptor> problems){
+        VirtualFile virtualFile = file.getVirtualFile();
+        if (virtualFile == null) return;
+
+        List<CachedProblem> cachedProblems = DumbService.isDumb(project) ? null : toCachedProblems(problems);
+        if (cachedProblems == null){
+            entries.remove(virtualFile);
+            return;
+        }
+
+        entries.put(virtualFile, new Entry(file.getModificationStamp(), rulesVersion, javaStamp, StaticSettings.LOCALE, List.copyOf(cachedProblems)));
+    }
+
+    /**
+     * @return Проблемы без ссылок на PSI или null, если какую-то проблему нельзя воссоздать (есть быстрые исправления или нет элемента)
+     */
+    @Nullable
+    private static List<CachedProblem> toCachedProblems(@NotNull List<ProblemDescriptor> problems){
+        List<CachedProblem> result = new ArrayList<>(problems.size());
+        for (ProblemDescriptor problem : problems) {
+            QuickFix<?>[] fixes = problem.getFixes();
+            if (fixes != null && fixes.length > 0) return null;
+
+            PsiElement element = problem.getPsiElement();
+            if (element == null) return null;
+            TextRange elementRange = element.getTextRange();
+            TextRange rangeInElement = problem.getTextRangeInElement();
+            TextRange range = rangeInElement == null ? elementRange : rangeInElement.shiftRight(elementRange.getStartOffset());
+
+            result.add(new CachedProblem(range, problem.getDescriptionTemplate(), problem.getHighlightType()));
+        }
+        return result;
+    }
+
+    private boolean isUpToDate(@NotNull Entry entry, @NotNull PsiFile file){
+        return entry.fileStamp() == file.getModificationStamp()
+                && entry.rulesVersion() == RulesManager.getInstance(project).getRulesVersion()
+                && entry.locale() == StaticSettings.LOCALE
+                && entry.javaStamp() == getJavaStamp();
+    }
+
+    /**
+     * @return Текущий счетчик изменений Java-PSI проекта
+     */
+    public long getJavaStamp(){
+        return PsiModificationTracker.getInstance(project).forLanguage(JavaLanguage.INSTANCE).getModificationCount();
+    }
+
+    public long getHitsCount(){
+        return hitsCount.get();
+    }
+
+    public long getMissesCount(){
+        return missesCount.get();
+    }
+
+    @Override
+    public void dispose() {
+        entries.clear();
+    }
+
+}
@@ -1,6 +1,7 @@
 package me.rubix327.liquibasehelper.inspection.custom;
 
 import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.openapi.project.DumbService;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiMethod;
 import com.intellij.psi.xml.XmlTag;
@@ -43,6 +44,9 @@ public class ActionCodeInspection implements IXmlTagInspection {
                     String beanName = path.substring(0, lastDotIndex);
                     String methodName = path.substring(lastDotIndex + 1);
 
+                    // Поиск бина требует индексов - во время индексации проверяется только формат пути
+                    if (DumbService.isDumb(tag.getProject())) return;
+
                     PsiClass beanClass = Utils.findPsiClassByQualifiedName(tag.getProject(), beanName);
                     if (beanClass == null){
                         // Если по пути до бина ничего не найдено, пробуем найти по полному пути,
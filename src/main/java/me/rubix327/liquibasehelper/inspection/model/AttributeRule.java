@@ -1,10 +1,7 @@
 package me.rubix327.liquibasehelper.inspection.model;
 
 import com.google.common.base.Objects;
-import com.intellij.psi.xml.XmlAttribute;
 import lombok.Getter;
-import me.rubix327.liquibasehelper.inspection.XmlTagValuesInspector;
-import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -15,12 +12,16 @@ import java.util.Set;
 @SuppressWarnings("unused")
 public class AttributeRule {
 
-    // Definers
+    // Definers (проверяются в AttributeRulesIndex)
     private String attributeName;
     private List<AttributeNeighbour> mustNeighbours = new ArrayList<>();
+    /** Название тега, в котором объявлен атрибут */
     private String mustTagName;
+    /** Название родителя тега, в котором объявлен атрибут */
     private String mustParentName;
+    /** Название прародителя тега, в котором объявлен атрибут */
     private String mustGrandParentName;
+    /** Название корневого тега файла */
     private String mustRootTagName;
 
     // Constraints
@@ -34,24 +35,6 @@ public class AttributeRule {
         this.attributeName = attributeName;
     }
 
-    public static AttributeRule getSuitableAttributeRule(List<AttributeRule> allRules, @NotNull XmlAttribute attribute){
-        for (AttributeRule rule : allRules) {
-            if (!attribute.getName().equals(rule.attributeName)) continue;
-            if (rule.mustTagName != null){
-                if (attribute.getParent() == null) continue;
-                if (!rule.mustTagName.equals(attribute.getParent().getName())) continue;
-            }
-            if (rule.mustParentName != null){
-                if (attribute.getParent() == null) continue;
-                if (attribute.getParent().getParentTag() == null) continue;
-                if (!rule.mustParentName.equals(attribute.getParent().getParentTag().getName())) continue;
-            }
-            if (!XmlTagValuesInspector.isTagSuitableByNeighbours(attribute.getParent(), rule.mustNeighbours)) continue;
-            return rule;
-        }
-        return null;
-    }
-
     public AttributeRule setAttributeName(String attributeName) {
         this.attributeName = attributeName;
         return this;
@@ -0,0 +1,112 @@
+package me.rubix327.liquibasehelper.inspection.model;
+
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.xml.XmlAttribute;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.psi.xml.XmlTag;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Правила атрибутов, сгруппированные по названию атрибута.<br>
+ * Для каждого правила заранее строится путь предков, которые нужно сверить (тег, родитель, прародитель),
+ * поэтому поиск правила для атрибута - это один поиск в хэш-таблице и проверка не более трех предков.<br>
+ * При нескольких подходящих правилах побеждает объявленное первым.
+ */
+public final class AttributeRulesIndex {
+
+    private final Map<String, List<CompiledRule>> rulesByAttributeName;
+
+    private AttributeRulesIndex(Map<String, List<CompiledRule>> rulesByAttributeName) {
+        this.rulesByAttributeName = rulesByAttributeName;
+    }
+
+    /**
+     * Построить индекс. Последующие изменения правил и списка в индекс не попадают.
+     */
+    @NotNull
+    public static AttributeRulesIndex of(@NotNull List<AttributeRule> rules){
+        Map<String, List<CompiledRule>> index = new HashMap<>();
+        for (AttributeRule rule : rules) {
+            if (rule.getAttributeName() == null) continue;
+            index.computeIfAbsent(rule.getAttributeName(), k -> new ArrayList<>()).add(CompiledRule.of(rule));
+        }
+        index.replaceAll((name, compiled) -> List.copyOf(compiled));
+        return new AttributeRulesIndex(Map.copyOf(index));
+    }
+
+    /**
+     * Найти правило, подходящее атрибуту по названию и по всем определителям правила.
+     * @return Правило или null, если подходящего правила нет
+     */
+    @Nullable
+    public AttributeRule getSuitableRule(@NotNull XmlAttribute attribute){
+        List<CompiledRule> candidates = rulesByAttributeName.get(attribute.getName());
+        if (candidates == null) return null;
+
+        XmlTag tag = attribute.getParent();
+        if (tag == null) return null;
+
+        for (CompiledRule candidate : candidates) {
+            if (candidate.matches(tag)) return candidate.rule();
+        }
+        return null;
+    }
+
+    /**
+     * @param ancestorPath Ожидаемые названия: [0] - тег атрибута, [1] - его родитель, [2] - прародитель (null - любое).
+     *                     Путь обрезан по последнему заполненному названию
+     * @param rootTagName Ожидаемое название корневого тега файла (null - любое)
+     * @param neighbours Атрибуты, которые должны быть у этого же тега
+     */
+    private record CompiledRule(@NotNull AttributeRule rule, @NotNull String[] ancestorPath,
+                                @Nullable String rootTagName, @NotNull List<AttributeNeighbour> neighbours) {
+
+        static CompiledRule of(@NotNull AttributeRule rule){
+            String[] path = {rule.getMustTagName(), rule.getMustParentName(), rule.getMustGrandParentName()};
+            int length = path.length;
+            while (length > 0 && path[length - 1] == null) length--;
+
+            String[] ancestorPath = new String[length];
+            System.arraycopy(path, 0, ancestorPath, 0, length);
+
+            List<AttributeNeighbour> neighbours = new ArrayList<>();
+            if (rule.getMustNeighbours() != null){
+                for (AttributeNeighbour neighbour : rule.getMustNeighbours()) {
+                    // Сосед без названия подходит любому тегу
+                    if (neighbour.attributeName != null) neighbours.add(neighbour);
+                }
+            }
+            return new CompiledRule(rule, ancestorPath, rule.getMustRootTagName(), List.copyOf(neighbours));
+        }
+
+        boolean matches(@NotNull XmlTag tag){
+            XmlTag current = tag;
+            for (String expectedName : ancestorPath) {
+                if (current == null) return false;
+                if (expectedName != null && !expectedName.equals(current.getName())) return false;
+                current = current.getParentTag();
+            }
+
+            if (rootTagName != null){
+                PsiFile file = tag.getContainingFile();
+                XmlTag rootTag = file instanceof XmlFile xmlFile ? xmlFile.getRootTag() : null;
+                if (rootTag == null || !rootTagName.equals(rootTag.getName())) return false;
+            }
+
+            for (AttributeNeighbour neighbour : neighbours) {
+                XmlAttribute attribute = tag.getAttribute(neighbour.attributeName);
+                if (attribute == null) return false;
+                // Если у соседа задано значение, то оно должно совпадать
+                if (neighbour.attributeValue != null && !neighbour.attributeValue.equals(attribute.getValue())) return false;
+            }
+            return true;
+        }
+    }
+
+}
@@ -15,10 +15,10 @@ import java.util.Objects;
 public class AvailableValue {
 
     private final String value;
-    private String comment;
+    private final String comment;
 
     public AvailableValue(String value) {
-        this.value = value;
+        this(value, null);
     }
 
     public AvailableValue(String value, String comment) {
@@ -80,4 +80,17 @@ public class AvailableValue {
         return value;
     }
 
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) return true;
+        if (object == null || getClass() != object.getClass()) return false;
+        AvailableValue that = (AvailableValue) object;
+        return Objects.equals(value, that.value) && Objects.equals(comment, that.comment);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(value, comment);
+    }
+
 }
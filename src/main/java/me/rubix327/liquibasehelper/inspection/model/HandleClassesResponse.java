@@ -7,6 +7,9 @@ import lombok.Setter;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+import java.util.Set;
+
 @Getter
 @Setter
 public class HandleClassesResponse {
@@ -15,6 +18,18 @@ public class HandleClassesResponse {
     private boolean success;
     private String message;
     private ErrorReason errorReason;
+    /**
+     * Собранные правила (только у успешного ответа).
+     */
+    private TagRulesContainer container;
+    /**
+     * qualifiedName перечислений, используемых в собранных правилах.
+     */
+    private Set<String> usedEnums = Set.of();
+    /**
+     * qualifiedName datamodel-родителей класса, начиная с ближайшего (только у успешного ответа).
+     */
+    private List<String> superClasses = List.of();
 
     public HandleClassesResponse(@NotNull PsiClass baseClass) {
         this.baseClass = baseClass;
@@ -35,6 +50,21 @@ public class HandleClassesResponse {
         return this;
     }
 
+    public HandleClassesResponse setContainer(TagRulesContainer container){
+        this.container = container;
+        return this;
+    }
+
+    public HandleClassesResponse setUsedEnums(@NotNull Set<String> usedEnums){
+        this.usedEnums = usedEnums;
+        return this;
+    }
+
+    public HandleClassesResponse setSuperClasses(@NotNull List<String> superClasses){
+        this.superClasses = superClasses;
+        return this;
+    }
+
     public static HandleClassesResponse makeErrorResponse(@NotNull PsiClass psiClass, @NotNull ErrorReason errorReason, Object... args){
         return new HandleClassesResponse(psiClass).setSuccess(false).setMessage(errorReason.getMessage(args)).setErrorReason(errorReason);
     }
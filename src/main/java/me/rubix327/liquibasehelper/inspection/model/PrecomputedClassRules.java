@@ -0,0 +1,14 @@
+package me.rubix327.liquibasehelper.inspection.model;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Правила класса, собранные без PSI (из байткода или из готового манифеста в .jar).
+ * @param container Правила класса (включая правила родителей)
+ * @param usedEnums qualifiedName перечислений, используемых в правилах
+ * @param superClasses qualifiedName datamodel-родителей, начиная с ближайшего
+ */
+public record PrecomputedClassRules(@NotNull TagRulesContainer container, @NotNull Set<String> usedEnums, @NotNull List<String> superClasses) {}
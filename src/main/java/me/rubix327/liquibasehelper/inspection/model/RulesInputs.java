@@ -0,0 +1,31 @@
+package me.rubix327.liquibasehelper.inspection.model;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Входные данные правил проекта на момент последней полной регистрации.<br>
+ * По ним после перезагрузки Maven определяется, правила каких .jar и модулей нужно пересобрать.
+ * @param dependencyJars Путь .jar зависимости -> его состояние
+ * @param moduleSourceRoots Название модуля проекта -> URL его корней исходников
+ * @param moduleClasses Название модуля проекта -> классы с правилами из этого модуля (qualifiedName -> тег)
+ */
+public record RulesInputs(@NotNull Map<String, DependencyJar> dependencyJars,
+                          @NotNull Map<String, Set<String>> moduleSourceRoots,
+                          @NotNull Map<String, Map<String, String>> moduleClasses) {
+
+    /**
+     * Состояние .jar зависимости.
+     * @param moduleName Модуль зависимости из настроек (artifactId)
+     * @param packages Пакеты, из которых собирались правила
+     * @param jarHash Хэш содержимого .jar (null - .jar не удалось прочитать)
+     * @param classes Классы с правилами из этого .jar (qualifiedName -> тег)
+     */
+    public record DependencyJar(@NotNull String moduleName, @NotNull List<String> packages, @Nullable String jarHash,
+                                @NotNull Map<String, String> classes) {}
+
+}
@@ -0,0 +1,58 @@
+package me.rubix327.liquibasehelper.inspection.model;
+
+import lombok.Getter;
+import me.rubix327.liquibasehelper.inspection.RulesMemoSession;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Изменения правил, собранные без изменения реестров.<br>
+ * Собираются внутри прерываемого read action и применяются одной операцией
+ * ({@link me.rubix327.liquibasehelper.inspection.RulesManager#applyUpdate(RulesUpdate)}) уже после его завершения,
+ * поэтому прерванный и перезапущенный сбор не оставляет правила обновленными наполовину.
+ */
+@Getter
+public class RulesUpdate {
+
+    /**
+     * Удаляемые правила классов. Удаление выполняется до регистрации новых правил.
+     */
+    private final List<Removal> removals = new ArrayList<>();
+    /**
+     * Успешные ответы с новыми правилами, в порядке сбора.
+     */
+    private final List<HandleClassesResponse> responses = new ArrayList<>();
+    /**
+     * Правила классов, запомненные во время сбора (переносятся в общую память вместе с применением изменений).
+     */
+    private final RulesMemoSession memoSession = new RulesMemoSession();
+
+    /**
+     * Удалить правила класса, зарегистрированные под указанным тегом.
+     * @param forgetDatamodelValue Забыть и тег класса (н-р, если тег в @CbsDatamodelClass изменился)
+     */
+    public void removeRules(@NotNull String classQualifiedName, @NotNull String datamodelName, boolean forgetDatamodelValue,
+                            @NotNull String source, @NotNull String reason){
+        removals.add(new Removal(classQualifiedName, datamodelName, forgetDatamodelValue, source, reason));
+    }
+
+    public void addRules(@NotNull HandleClassesResponse response){
+        if (!response.isSuccess() || response.getContainer() == null) return;
+        responses.add(response);
+    }
+
+    public boolean isEmpty(){
+        return removals.isEmpty() && responses.isEmpty();
+    }
+
+    /**
+     * @param datamodelName Тег, под которым зарегистрированы удаляемые правила класса
+     * @param source Источник вызова (для логов)
+     * @param reason Причина удаления (для логов)
+     */
+    public record Removal(@NotNull String classQualifiedName, @NotNull String datamodelName, boolean forgetDatamodelValue,
+                          @NotNull String source, @NotNull String reason) {}
+
+}
@@ -32,25 +32,38 @@ public class TagRule {
 
     private String listLinkToBaseClass;
 
-    public static TagRule getSuitableTagRule(@NotNull List<TagRule> rules, @NotNull XmlTag tag){
-        for (TagRule rule : rules) {
-            if (rule.tagName.equals(tag.getName())) return rule;
-        }
-        return null;
+    public static TagRule getSuitableTagRule(@NotNull TagRulesContainer container, @NotNull XmlTag tag){
+        return container.getTagRule(tag.getName());
+    }
+
+    /**
+     * @return Копия правила со своим списком возможных значений
+     */
+    @NotNull
+    public TagRule copy(){
+        TagRule copy = new TagRule(tagName);
+        copy.type = type;
+        copy.maxLength = maxLength;
+        copy.isRequired = isRequired;
+        copy.availableValues = availableValues == null ? null : new ArrayList<>(availableValues);
+        copy.tagTooltip = tagTooltip;
+        copy.tagDescription = tagDescription;
+        copy.extendedTooltipInfo = extendedTooltipInfo;
+        copy.metaClassPath = metaClassPath;
+        copy.metaFieldOffset = metaFieldOffset;
+        copy.listLinkToBaseClass = listLinkToBaseClass;
+        return copy;
     }
 
     public String getLinkToMetaFieldWithOffset(){
         return metaClassPath + ":" + metaFieldOffset;
     }
 
+    /**
+     * Отсортировать правила: сначала обязательные. Сортировка устойчивая, поэтому внутри групп сохраняется исходный порядок.
+     */
     public static void sortByImportance(List<TagRule> tagRules){
-        tagRules.sort((o1, o2) -> {
-            if (o1.isRequired == o2.isRequired){
-                return Integer.compare(tagRules.indexOf(o1), tagRules.indexOf(o2));
-            }
-            if (o1.isRequired) return -1;
-            return 1;
-        });
+        tagRules.sort((o1, o2) -> Boolean.compare(o2.isRequired, o1.isRequired));
     }
 
     @Override
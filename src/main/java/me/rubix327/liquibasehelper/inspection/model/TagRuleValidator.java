@@ -0,0 +1,121 @@
+package me.rubix327.liquibasehelper.inspection.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import me.rubix327.liquibasehelper.ValueScanner;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Скомпилированное правило дочернего тега.<br>
+ * Тип, ограничение длины, обязательность и набор допустимых значений разбираются один раз при установке правил контейнера,
+ * поэтому проверка значения тега не сравнивает строки типов и ничего не выделяет в памяти.<br>
+ * Объект неизменяем и безопасно читается из потоков инспекций.
+ */
+@Getter
+public final class TagRuleValidator {
+
+    private final TagRule rule;
+    private final ValueType valueType;
+    private final int maxLength;
+    private final boolean required;
+    /**
+     * Допустимые значения для быстрой проверки (без null-значений)
+     */
+    @Getter(AccessLevel.NONE)
+    private final Set<String> availableValues;
+    /**
+     * Допустимые значения в исходном порядке (для текста ошибки; пустой список - значения не ограничены)
+     */
+    private final List<String> availableValuesList;
+
+    public TagRuleValidator(@NotNull TagRule rule) {
+        this.rule = rule;
+        this.valueType = ValueType.of(rule.getType());
+        this.maxLength = rule.getMaxLength();
+        this.required = rule.isRequired();
+
+        List<String> valuesList = new ArrayList<>();
+        Set<String> valuesSet = new HashSet<>();
+        if (rule.getAvailableValues() != null){
+            for (AvailableValue availableValue : rule.getAvailableValues()) {
+                valuesList.add(availableValue.getValue());
+                if (availableValue.getValue() != null){
+                    valuesSet.add(availableValue.getValue());
+                }
+            }
+        }
+        this.availableValuesList = Collections.unmodifiableList(valuesList);
+        this.availableValues = Set.copyOf(valuesSet);
+    }
+
+    /**
+     * @return Превышает ли значение максимальную длину
+     */
+    public boolean isTooLong(@NotNull String value){
+        return maxLength > 0 && value.length() > maxLength;
+    }
+
+    /**
+     * @return Не соответствует ли непустое значение типу поля
+     */
+    public boolean isTypeMismatch(@NotNull String value){
+        return !valueType.matches(value);
+    }
+
+    /**
+     * @return Не входит ли значение в список допустимых (если список задан)
+     */
+    public boolean isNotAvailable(@NotNull String value){
+        return !availableValuesList.isEmpty() && !availableValues.contains(value);
+    }
+
+    /**
+     * Тип значения тега, определенный по типу поля мета-класса.
+     */
+    @Getter
+    public enum ValueType {
+        STRING(null),
+        LONG("tag.warn.must-be-integer"),
+        DOUBLE("tag.warn.must-be-double"),
+        BOOLEAN("tag.warn.must-be-boolean"),
+        DATE("tag.warn.must-be-date");
+
+        /**
+         * Ключ сообщения об ошибке типа (null - тип не проверяется)
+         */
+        @Nullable
+        private final String messageKey;
+
+        ValueType(@Nullable String messageKey) {
+            this.messageKey = messageKey;
+        }
+
+        @NotNull
+        public static ValueType of(@Nullable String typeName){
+            if (Long.class.getTypeName().equals(typeName)) return LONG;
+            if (Double.class.getTypeName().equals(typeName)) return DOUBLE;
+            if (Boolean.class.getTypeName().equals(typeName)) return BOOLEAN;
+            if (Date.class.getTypeName().equals(typeName)) return DATE;
+            return STRING;
+        }
+
+        public boolean matches(@NotNull String value){
+            return switch (this){
+                case STRING -> true;
+                case LONG -> ValueScanner.isLong(value);
+                case DOUBLE -> ValueScanner.isDouble(value);
+                case BOOLEAN -> value.length() == 1 && (value.charAt(0) == '0' || value.charAt(0) == '1');
+                case DATE -> ValueScanner.isDate(value);
+            };
+        }
+    }
+
+}
@@ -1,10 +1,18 @@
 package me.rubix327.liquibasehelper.inspection.model;
 
 import com.google.common.base.Objects;
+import com.intellij.psi.xml.XmlTag;
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.Setter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Getter
 public class TagRulesContainer {
@@ -15,6 +23,26 @@ public class TagRulesContainer {
     private String metaClassPath;
     private int metaClassNameOffset = 0;
     private List<TagRule> tagRules;
+    /**
+     * Индекс tagName -> правило. Строится один раз при установке правил, чтобы не искать правило перебором для каждого тега.
+     */
+    @Getter(AccessLevel.NONE)
+    private Map<String, TagRule> tagRulesByName = Map.of();
+    /**
+     * Индекс tagName -> скомпилированное правило. Строится вместе с индексом правил.
+     */
+    @Getter(AccessLevel.NONE)
+    private Map<String, TagRuleValidator> tagValidatorsByName = Map.of();
+    /**
+     * Названия обязательных дочерних тегов в порядке правил. Позиция в списке - номер бита тега.
+     */
+    @Getter(AccessLevel.NONE)
+    private List<String> requiredTagNames = List.of();
+    /**
+     * Индекс tagName -> номер бита обязательного дочернего тега.
+     */
+    @Getter(AccessLevel.NONE)
+    private Map<String, Integer> requiredTagBits = Map.of();
 
     public String getLinkToMetaClassWithOffset(){
         return metaClassPath + ":" + metaClassNameOffset;
@@ -46,10 +74,116 @@ public class TagRulesContainer {
     }
 
     public TagRulesContainer setTagRules(List<TagRule> tagRules) {
-        this.tagRules = tagRules;
+        // Список фиксируется, чтобы индекс не разошелся с правилами
+        this.tagRules = tagRules == null ? null : Collections.unmodifiableList(new ArrayList<>(tagRules));
+
+        Map<String, TagRule> index = new HashMap<>();
+        Map<String, TagRuleValidator> validators = new HashMap<>();
+        List<String> requiredNames = new ArrayList<>();
+        Map<String, Integer> requiredBits = new HashMap<>();
+        if (tagRules != null){
+            for (TagRule tagRule : tagRules) {
+                // При совпадении названий побеждает первое правило (как и при поиске перебором)
+                if (index.putIfAbsent(tagRule.getTagName(), tagRule) == null){
+                    validators.put(tagRule.getTagName(), new TagRuleValidator(tagRule));
+                }
+                if (tagRule.isRequired() && tagRule.getTagName() != null && !requiredBits.containsKey(tagRule.getTagName())){
+                    requiredBits.put(tagRule.getTagName(), requiredNames.size());
+                    requiredNames.add(tagRule.getTagName());
+                }
+            }
+        }
+        this.tagRulesByName = index;
+        this.tagValidatorsByName = validators;
+        this.requiredTagNames = List.copyOf(requiredNames);
+        this.requiredTagBits = requiredBits;
         return this;
     }
 
+    /**
+     * @return Копия контейнера с копиями всех правил (см. {@link TagRule#copy()})
+     */
+    @NotNull
+    public TagRulesContainer copy(){
+        List<TagRule> rulesCopy = null;
+        if (tagRules != null){
+            rulesCopy = new ArrayList<>(tagRules.size());
+            for (TagRule tagRule : tagRules) {
+                rulesCopy.add(tagRule.copy());
+            }
+        }
+        return new TagRulesContainer()
+                .setParentTagName(parentTagName)
+                .setParentTagTooltip(parentTagTooltip)
+                .setParentTagDescription(parentTagDescription)
+                .setClassPath(metaClassPath)
+                .setClassNameOffset(metaClassNameOffset)
+                .setTagRules(rulesCopy);
+    }
+
+    /**
+     * Получить правило дочернего тега по его названию.
+     * @param tagName Название дочернего тега
+     * @return Правило или null, если для тега нет правила
+     */
+    @Nullable
+    public TagRule getTagRule(String tagName){
+        return tagName == null ? null : tagRulesByName.get(tagName);
+    }
+
+    /**
+     * Получить скомпилированное правило дочернего тега по его названию.
+     * @param tagName Название дочернего тега
+     * @return Скомпилированное правило или null, если для тега нет правила
+     */
+    @Nullable
+    public TagRuleValidator getTagValidator(String tagName){
+        return tagName == null ? null : tagValidatorsByName.get(tagName);
+    }
+
+    /**
+     * Найти обязательные дочерние теги, которых нет среди переданных.<br>
+     * Один проход по дочерним тегам с установкой битов и сравнение с маской обязательных тегов.
+     * @param subTags Дочерние теги родительского тега
+     * @return Отсутствующие обязательные теги в порядке правил (пустой список - все на месте)
+     */
+    @NotNull
+    public List<String> getMissingRequiredTags(@NotNull XmlTag[] subTags){
+        int requiredCount = requiredTagNames.size();
+        if (requiredCount == 0) return List.of();
+
+        // Обычный случай - до 64 обязательных тегов помещаются в один long
+        if (requiredCount <= Long.SIZE){
+            long requiredMask = requiredCount == Long.SIZE ? -1L : (1L << requiredCount) - 1;
+            long presentMask = 0;
+            for (XmlTag subTag : subTags) {
+                Integer bit = requiredTagBits.get(subTag.getName());
+                if (bit == null) continue;
+                presentMask |= 1L << bit;
+                if (presentMask == requiredMask) return List.of();
+            }
+
+            List<String> missing = new ArrayList<>();
+            for (long absent = requiredMask & ~presentMask; absent != 0; absent &= absent - 1){
+                missing.add(requiredTagNames.get(Long.numberOfTrailingZeros(absent)));
+            }
+            return missing;
+        }
+
+        BitSet present = new BitSet(requiredCount);
+        for (XmlTag subTag : subTags) {
+            Integer bit = requiredTagBits.get(subTag.getName());
+            if (bit != null) present.set(bit);
+        }
+        if (present.cardinality() == requiredCount) return List.of();
+
+        List<String> missing = new ArrayList<>();
+        for (int bit = present.nextClearBit(0); bit < requiredCount; bit = present.nextClearBit(bit + 1)){
+            missing.add(requiredTagNames.get(bit));
+        }
+        return missing;
+    }
+
     @Override
     public String toString() {
         return "parentTagTooltip='" + parentTagTooltip + '\'' +
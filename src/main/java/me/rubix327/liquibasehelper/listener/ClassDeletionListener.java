@@ -5,7 +5,6 @@ import com.intellij.openapi.project.Project;
 import com.intellij.psi.*;
 import com.intellij.psi.util.PsiTreeUtil;
 import me.rubix327.liquibasehelper.AnnotationUtils;
-import me.rubix327.liquibasehelper.StartProjectComponent;
 import me.rubix327.liquibasehelper.inspection.RulesManager;
 import me.rubix327.liquibasehelper.log.MainLogger;
 import me.rubix327.liquibasehelper.settings.CbsAnnotation;
@@ -19,9 +18,11 @@ public class ClassDeletionListener implements PsiTreeChangeListener {
         Project project = removedElement.getProject();
         RulesManager rulesManagerInstance = RulesManager.getInstance(project);
 
-        // Если индексация еще не завершена, регистрируем слушателя
+        // Если индексация еще не завершена, снимаем только правила удаленных классов из реестра,
+        // остальные правила продолжают работать до перерегистрации
         if (DumbService.getInstance(project).isDumb()){
-            StartProjectComponent.registerRulesForAllClassesAfterIndexingInBackground(project);
+            onClassesRemovedInDumbMode(rulesManagerInstance, removedElement);
+            RulesReloadScheduler.getInstance(project).schedule("class removed during indexing");
             return;
         }
 
@@ -54,16 +55,46 @@ public class ClassDeletionListener implements PsiTreeChangeListener {
             // Проверяем, что класс существует и что это не внутренний класс (поскольку над внутренними классами не может быть этой аннотации),
             // и что аннотацию удалили не над полем
             if (conClass != null && conClass.getContainingClass() == null && conField == null){
+                rulesManagerInstance.invalidateRulesOfClass(conClass.getQualifiedName());
                 rulesManagerInstance.removeRulesOfClass(conClass, "@CbsDatamodelClass annotation has been removed", "ClassDeletionListener: onSomethingRemoved");
                 MainLogger.info(rulesManagerInstance.getProject(), "Удалена аннотация %s в классе %s.", removedAnnotation.getQualifiedName(), conClass.getName());
             }
         }
     }
 
+    /**
+     * Удаление классов во время индексации.<br>
+     * Аннотации без индексов не читаются, поэтому тег класса берется из реестра (класс -> тег).
+     */
+    private void onClassesRemovedInDumbMode(RulesManager rulesManager, PsiElement removedElement){
+        PsiClass[] removedClasses;
+        if (removedElement instanceof PsiJavaFile removedJavaFile){
+            removedClasses = removedJavaFile.getClasses();
+        } else if (removedElement instanceof PsiClass removedClass){
+            removedClasses = new PsiClass[]{removedClass};
+        } else {
+            return;
+        }
+
+        for (PsiClass removedClass : removedClasses) {
+            String qualifiedName = removedClass.getQualifiedName();
+            if (qualifiedName == null) continue;
+            String datamodelTag = rulesManager.getDatamodelValueFromRegistry(qualifiedName);
+            if (datamodelTag == null) continue;
+
+            MainLogger.info(rulesManager.getProject(), "Удален класс %s (во время индексации).", qualifiedName);
+            rulesManager.invalidateRulesOfClass(qualifiedName);
+            rulesManager.removeRulesByTagNameAndClass(qualifiedName, datamodelTag);
+            rulesManager.removeDatamodelValueFromRegistry(qualifiedName);
+        }
+    }
+
     private void onClassRemoved(RulesManager rulesManager, PsiClass removedClass){
         if (AnnotationUtils.isNotDatamodelClass(removedClass)) return;
+        rulesManager.invalidateRulesOfClass(removedClass.getQualifiedName());
         rulesManager.removeRulesOfClass(removedClass, "Class has been removed", "ClassDeletionListener: onClassRemoved");
-        rulesManager.removeClassReferencesFromEnums(removedClass);
+        rulesManager.removeClassReferencesFromEnums(removedClass.getQualifiedName());
+        rulesManager.removeClassFromHierarchy(removedClass.getQualifiedName());
     }
 
     @Override
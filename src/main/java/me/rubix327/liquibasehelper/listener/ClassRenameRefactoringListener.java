@@ -4,10 +4,13 @@ import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiElement;
 import com.intellij.refactoring.listeners.RefactoringElementListener;
 import com.intellij.refactoring.listeners.RefactoringElementListenerProvider;
+import me.rubix327.liquibasehelper.Utils;
 import me.rubix327.liquibasehelper.inspection.RulesManager;
 import me.rubix327.liquibasehelper.log.MainLogger;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 public class ClassRenameRefactoringListener implements RefactoringElementListenerProvider {
 
     @Override
@@ -35,6 +38,8 @@ public class ClassRenameRefactoringListener implements RefactoringElementListene
                     RulesManager rulesManagerInstance = RulesManager.getInstance(newClass.getProject());
                     String newDatamodelName = RulesManager.getDatamodelTagOfClass(newClass);
 
+                    rulesManagerInstance.invalidateRulesOfClass(oldQualifiedName);
+
                     // Обновляем регистр qualifiedName -> datamodelName
                     rulesManagerInstance.removeDatamodelValueFromRegistry(oldQualifiedName);
                     if (newDatamodelName != null && newClass.getQualifiedName() != null){
@@ -45,6 +50,18 @@ public class ClassRenameRefactoringListener implements RefactoringElementListene
                     rulesManagerInstance.removeRulesByTagNameAndClass(oldQualifiedName, oldDatamodelName);
                     rulesManagerInstance.handleClassAndSuperClasses(newClass, "ClassRenameRefactoringListener: newClass"); // TODO что будет при рефакторинге во время индексации?
 
+                    // Наследники в графе наследования ссылаются на старое название - пересобираем их
+                    if (oldQualifiedName != null){
+                        List<String> inheritors = rulesManagerInstance.getInheritorsOfClass(oldQualifiedName);
+                        rulesManagerInstance.removeClassFromHierarchy(oldQualifiedName);
+                        for (String inheritor : inheritors) {
+                            PsiClass inheritorClass = Utils.findPsiClassByQualifiedName(newClass.getProject(), inheritor);
+                            if (inheritorClass != null){
+                                rulesManagerInstance.handleClassAndSuperClasses(inheritorClass, "ClassRenameRefactoringListener: inheritor");
+                            }
+                        }
+                    }
+
                     // Ссылки из енумов на изменившийся класс - обновляются автоматически
                 }
 
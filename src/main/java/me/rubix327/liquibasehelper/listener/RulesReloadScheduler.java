@@ -0,0 +1,236 @@
+package me.rubix327.liquibasehelper.listener;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import me.rubix327.liquibasehelper.StartProjectService;
+import me.rubix327.liquibasehelper.Utils;
+import me.rubix327.liquibasehelper.log.MainLogger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Планировщик перерегистрации правил проекта (полной или по разнице после перезагрузки Maven, см. {@link RunKind}).<ul>
+ *     <li>Одновременно выполняется не больше одной перерегистрации любого вида</li>
+ *     <li>Запрос во время перерегистрации отменяет ее и запускает новую после отмены, чтобы результат не был устаревшим</li>
+ *     <li>Все запросы, пришедшие до старта следующего запуска, объединяются в этот один запуск
+ *     (если среди них есть полная перерегистрация, то выполняется она)</li>
+ *     <li>Запуск откладывается до окончания индексации</li>
+ * </ul>
+ * Счетчики запросов и запусков доступны через геттеры и пишутся в лог после каждого запуска.
+ */
+@Service(Service.Level.PROJECT)
+public final class RulesReloadScheduler implements Disposable {
+
+    private static final String TASK_TITLE = "LiquibaseHelper: Loading rules";
+
+    /**
+     * Вид перерегистрации
+     */
+    public enum RunKind {
+        /**
+         * Обновление по разнице с последней полной регистрацией после перезагрузки Maven
+         * (см. {@link StartProjectService#refreshRulesAfterMavenImport(Project, ProgressIndicator)})
+         */
+        MAVEN_REFRESH,
+        /**
+         * Полная перерегистрация (см. {@link StartProjectService#registerRulesForAllClasses(Project, ProgressIndicator)})
+         */
+        FULL;
+
+        /**
+         * Вид запуска, который покрывает оба запроса: полная перерегистрация покрывает обновление по разнице.
+         */
+        @NotNull
+        RunKind merge(@Nullable RunKind other){
+            return other == null || compareTo(other) >= 0 ? this : other;
+        }
+    }
+
+    private final Project project;
+    private final Object lock = new Object();
+
+    /**
+     * Индикатор выполняющейся перерегистрации (null - перерегистрация не выполняется)
+     */
+    private ProgressIndicator runningIndicator;
+    /**
+     * Вид выполняющейся перерегистрации (null - перерегистрация не выполняется)
+     */
+    private RunKind runningKind;
+    /**
+     * Вид уже запланированного следующего запуска, который ожидает индексации или окончания текущего запуска
+     * (null - следующий запуск не запланирован)
+     */
+    private RunKind nextRunKind;
+    /**
+     * Запросы, которые будут учтены следующим запуском
+     */
+    private int queuedRequests;
+    private boolean disposed;
+
+    private final AtomicLong requestsCount = new AtomicLong();
+    private final AtomicLong runsCount = new AtomicLong();
+    private final AtomicLong cancelledRunsCount = new AtomicLong();
+    private final AtomicLong lastRunDurationMs = new AtomicLong();
+    private final AtomicLong totalRunsDurationMs = new AtomicLong();
+
+    public RulesReloadScheduler(@NotNull Project project) {
+        this.project = project;
+    }
+
+    public static RulesReloadScheduler getInstance(@NotNull Project project){
+        return project.getService(RulesReloadScheduler.class);
+    }
+
+    /**
+     * Запросить перерегистрацию всех правил проекта.
+     * @param reason Причина (для логов)
+     */
+    public void schedule(@NotNull String reason){
+        schedule(RunKind.FULL, reason);
+    }
+
+    /**
+     * Запросить перерегистрацию правил проекта.
+     * @param kind Вид перерегистрации
+     * @param reason Причина (для логов)
+     */
+    public void schedule(@NotNull RunKind kind, @NotNull String reason){
+        requestsCount.incrementAndGet();
+        boolean startNow;
+        synchronized (lock){
+            if (disposed) return;
+            queuedRequests++;
+
+            if (nextRunKind != null){
+                nextRunKind = kind.merge(nextRunKind);
+                MainLogger.info(project, "Rules reload requested (%s): merged into the scheduled reload (%s, queued requests: %s).", reason, nextRunKind, queuedRequests);
+                return;
+            }
+
+            if (runningIndicator != null){
+                // Входные данные текущего запуска устарели - отменяем его, следующий запуск стартует после отмены.
+                // Отмененный запуск не довел свою работу до конца, поэтому следующий должен покрыть и ее
+                nextRunKind = kind.merge(runningKind);
+                MainLogger.info(project, "Rules reload requested (%s): cancelling the running reload.", reason);
+                runningIndicator.cancel();
+                startNow = false;
+            } else {
+                nextRunKind = kind;
+                MainLogger.info(project, "Rules reload requested (%s).", reason);
+                startNow = true;
+            }
+        }
+        if (startNow){
+            startWhenSmart();
+        }
+    }
+
+    private void startWhenSmart(){
+        if (DumbService.getInstance(project).isDumb()){
+            MainLogger.info(project, "The project is in dumb mode. Rules will be registered later.");
+        }
+        DumbService.getInstance(project).runWhenSmart(() -> Utils.runInBackground(project, TASK_TITLE, this::run));
+    }
+
+    private void run(@NotNull ProgressIndicator indicator){
+        int requests;
+        RunKind kind;
+        synchronized (lock){
+            if (disposed || runningIndicator != null || nextRunKind == null) return;
+            requests = queuedRequests;
+            queuedRequests = 0;
+            kind = nextRunKind;
+            nextRunKind = null;
+            runningIndicator = indicator;
+            runningKind = kind;
+        }
+
+        long runNumber = runsCount.incrementAndGet();
+        long start = System.currentTimeMillis();
+        boolean cancelled = false;
+        try {
+            if (kind == RunKind.FULL){
+                StartProjectService.registerRulesForAllClasses(project, indicator);
+            } else {
+                StartProjectService.refreshRulesAfterMavenImport(project, indicator);
+            }
+        } catch (ProcessCanceledException e){
+            cancelled = true;
+            cancelledRunsCount.incrementAndGet();
+            throw e;
+        } finally {
+            long duration = System.currentTimeMillis() - start;
+            lastRunDurationMs.set(duration);
+            totalRunsDurationMs.addAndGet(duration);
+            MainLogger.info(project, "Rules reload #%s (%s) %s in %s ms (merged requests: %s, total requests: %s, cancelled runs: %s).",
+                    runNumber, kind, cancelled ? "was cancelled" : "finished", duration, requests, requestsCount.get(), cancelledRunsCount.get());
+
+            boolean restart;
+            synchronized (lock){
+                runningIndicator = null;
+                runningKind = null;
+                restart = nextRunKind != null && !disposed;
+            }
+            if (restart){
+                startWhenSmart();
+            }
+        }
+    }
+
+    /**
+     * @return Выполняется ли сейчас перерегистрация
+     */
+    public boolean isRunning(){
+        synchronized (lock){
+            return runningIndicator != null;
+        }
+    }
+
+    /**
+     * @return Количество запросов, которые ждут следующего запуска
+     */
+    public int getQueuedRequests(){
+        synchronized (lock){
+            return queuedRequests;
+        }
+    }
+
+    public long getRequestsCount(){
+        return requestsCount.get();
+    }
+
+    public long getRunsCount(){
+        return runsCount.get();
+    }
+
+    public long getCancelledRunsCount(){
+        return cancelledRunsCount.get();
+    }
+
+    public long getLastRunDurationMs(){
+        return lastRunDurationMs.get();
+    }
+
+    public long getAverageRunDurationMs(){
+        long runs = runsCount.get();
+        return runs == 0 ? 0 : totalRunsDurationMs.get() / runs;
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (lock){
+            disposed = true;
+            if (runningIndicator != null){
+                runningIndicator.cancel();
+            }
+        }
+    }
+
+}
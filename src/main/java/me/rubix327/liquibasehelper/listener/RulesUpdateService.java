@@ -0,0 +1,167 @@
+package me.rubix327.liquibasehelper.listener;
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import com.intellij.util.Alarm;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import me.rubix327.liquibasehelper.AnnotationUtils;
+import me.rubix327.liquibasehelper.inspection.RulesManager;
+import me.rubix327.liquibasehelper.inspection.model.RulesUpdate;
+import me.rubix327.liquibasehelper.log.MainLogger;
+import me.rubix327.liquibasehelper.settings.CbsAnnotation;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фоновое обновление правил после изменения java-классов.<br>
+ * Слушает изменения PSI в java-файлах, копит измененные файлы в течение {@link #DEBOUNCE_DELAY_MS} мс
+ * и затем одной отменяемой фоновой задачей пересобирает правила затронутых мета-классов (вместе с наследниками)
+ * и классов, использующих измененные перечисления. После пересборки перезапускается подсветка, чтобы xml-инспекции
+ * увидели новые правила.<br>
+ * Удаление классов обрабатывается отдельно, в {@link ClassDeletionListener}.
+ */
+@Service(Service.Level.PROJECT)
+public final class RulesUpdateService extends PsiTreeChangeAdapter implements Disposable {
+
+    private static final int DEBOUNCE_DELAY_MS = 300;
+    private static final String SOURCE = "RulesUpdateService";
+
+    private final Project project;
+    private final Alarm alarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, this);
+    /**
+     * Измененные файлы, еще не обработанные ни одной завершенной пересборкой: файл -> номер изменения.<br>
+     * Номер нужен, чтобы не потерять файл, измененный повторно во время пересборки.
+     */
+    private final Map<VirtualFile, Long> pendingFiles = new ConcurrentHashMap<>();
+    private final AtomicLong changeCounter = new AtomicLong();
+
+    public RulesUpdateService(@NotNull Project project) {
+        this.project = project;
+        PsiManager.getInstance(project).addPsiTreeChangeListener(this, this);
+    }
+
+    public static RulesUpdateService getInstance(@NotNull Project project){
+        return project.getService(RulesUpdateService.class);
+    }
+
+    @Override
+    public void childAdded(@NotNull PsiTreeChangeEvent event) {
+        onPsiChanged(event);
+    }
+
+    @Override
+    public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+        onPsiChanged(event);
+    }
+
+    @Override
+    public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+        onPsiChanged(event);
+    }
+
+    @Override
+    public void childMoved(@NotNull PsiTreeChangeEvent event) {
+        onPsiChanged(event);
+    }
+
+    @Override
+    public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+        onPsiChanged(event);
+    }
+
+    private void onPsiChanged(@NotNull PsiTreeChangeEvent event){
+        if (!(event.getFile() instanceof PsiJavaFile javaFile)) return;
+        VirtualFile file = javaFile.getVirtualFile();
+        if (file == null) return;
+
+        pendingFiles.put(file, changeCounter.incrementAndGet());
+        // Каждое новое изменение отодвигает пересборку, пока пользователь не сделает паузу
+        alarm.cancelAllRequests();
+        alarm.addRequest(this::scheduleUpdate, DEBOUNCE_DELAY_MS);
+    }
+
+    private void scheduleUpdate(){
+        if (project.isDisposed() || pendingFiles.isEmpty()) return;
+
+        // Read action отменяется при записи и перезапускается, а более новый запуск заменяет еще не завершенный,
+        // поэтому внутри него изменения только собираются, а применяются уже после успешного завершения
+        ReadAction.nonBlocking(this::collectUpdate)
+                .inSmartMode(project)
+                .expireWith(this)
+                .coalesceBy(this)
+                .submit(AppExecutorUtil.getAppExecutorService())
+                .onSuccess(batch -> {
+                    RulesManager.getInstance(project).applyUpdate(batch.update());
+                    MainLogger.info(project, "Updated rules after changes in %s java files.", batch.files().size());
+                    // Забываем только те файлы, которые не менялись после начала пересборки
+                    batch.files().forEach(pendingFiles::remove);
+                    if (!batch.files().isEmpty()){
+                        ApplicationManager.getApplication().invokeLater(
+                                () -> DaemonCodeAnalyzer.getInstance(project).restart(), project.getDisposed());
+                    }
+                });
+    }
+
+    /**
+     * Собрать новые правила по всем накопленным файлам, не изменяя реестры.
+     */
+    @NotNull
+    private UpdateBatch collectUpdate(){
+        Map<VirtualFile, Long> files = new HashMap<>(pendingFiles);
+        RulesManager rulesManager = RulesManager.getInstance(project);
+        PsiManager psiManager = PsiManager.getInstance(project);
+        RulesUpdate update = new RulesUpdate();
+
+        for (VirtualFile file : files.keySet()) {
+            if (!file.isValid()) continue;
+            if (!(psiManager.findFile(file) instanceof PsiJavaFile javaFile)) continue;
+
+            for (PsiClass psiClass : javaFile.getClasses()) {
+                collectClassUpdate(rulesManager, psiClass, update);
+            }
+        }
+        return new UpdateBatch(files, update);
+    }
+
+    private void collectClassUpdate(@NotNull RulesManager rulesManager, @NotNull PsiClass psiClass, @NotNull RulesUpdate update){
+        // Если обновляется enum, который используется в мета-классах, то нужно обновить правила в этих мета-классах
+        if (psiClass.isEnum()){
+            rulesManager.collectClassesUsingEnumUpdate(psiClass, SOURCE + ": enum", update);
+        }
+
+        // Класс пересобирается, если он размечен @CbsDatamodelClass сейчас или был известен раньше (аннотацию могли удалить)
+        String qualifiedName = psiClass.getQualifiedName();
+        boolean isAnnotated = AnnotationUtils.findAnnotation(psiClass, CbsAnnotation.CbsDatamodelClass.INSTANCE) != null;
+        boolean isKnown = qualifiedName != null
+                && (rulesManager.getDatamodelValueFromRegistry(qualifiedName) != null || !rulesManager.getInheritorsOfClass(qualifiedName).isEmpty());
+        if (!isAnnotated && !isKnown) return;
+
+        if (psiClass.isInterface()){
+            rulesManager.collectRemoval(psiClass, SOURCE, "Class is an interface", update);
+            return;
+        }
+        rulesManager.collectClassAndInheritorsUpdate(psiClass, SOURCE, update);
+    }
+
+    /**
+     * @param files Обработанные файлы с номерами изменений, которые были учтены
+     * @param update Собранные изменения правил
+     */
+    private record UpdateBatch(@NotNull Map<VirtualFile, Long> files, @NotNull RulesUpdate update) {}
+
+    @Override
+    public void dispose() {
+        pendingFiles.clear();
+    }
+
+}
@@ -11,6 +11,8 @@ import lombok.Setter;
 import me.rubix327.liquibasehelper.locale.Locale;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Objects;
+
 @Getter
 @Setter
 @State(name = "LiquibaseHelperUserSettings", storages = @Storage("LiquibaseHelperUserSettings.xml"))
@@ -25,6 +27,7 @@ public final class PersistentUserSettings implements PersistentStateComponent<Pe
     public boolean enableSettingsMenu = true;
     public boolean enableProcessVariablesCheck = true;
     public Locale locale = Locale.RU;
+    public String dependencyModules = StaticSettings.DEFAULT_DEPENDENCY_MODULES;
 
     public static PersistentUserSettings getInstance() {
         return ApplicationManager.getApplication().getService(PersistentUserSettings.class);
@@ -50,6 +53,7 @@ public final class PersistentUserSettings implements PersistentStateComponent<Pe
         StaticSettings.ENABLE_TAG_AUTO_COMPLETION = enableTagAutoCompletion;
         StaticSettings.ENABLE_SETTINGS_MENU = enableSettingsMenu;
         StaticSettings.ENABLE_PROCESS_VARIABLES_CHECK = enableProcessVariablesCheck;
+        StaticSettings.DEPENDENCY_MODULES = dependencyModules;
         changeLanguage(locale);
     }
 
@@ -67,6 +71,7 @@ public final class PersistentUserSettings implements PersistentStateComponent<Pe
                 enableTagAutoCompletion != StaticSettings.ENABLE_TAG_AUTO_COMPLETION ||
                 enableSettingsMenu != StaticSettings.ENABLE_SETTINGS_MENU ||
                 enableProcessVariablesCheck != StaticSettings.ENABLE_PROCESS_VARIABLES_CHECK ||
+                !Objects.equals(dependencyModules, StaticSettings.DEPENDENCY_MODULES) ||
                 locale != StaticSettings.LOCALE;
     }
 
@@ -79,6 +84,7 @@ public final class PersistentUserSettings implements PersistentStateComponent<Pe
         enableTagAutoCompletion = StaticSettings.ENABLE_TAG_AUTO_COMPLETION;
         enableSettingsMenu = StaticSettings.ENABLE_SETTINGS_MENU;
         enableProcessVariablesCheck = StaticSettings.ENABLE_PROCESS_VARIABLES_CHECK;
+        dependencyModules = StaticSettings.DEPENDENCY_MODULES;
         locale = StaticSettings.LOCALE;
     }
 
@@ -92,6 +98,7 @@ public final class PersistentUserSettings implements PersistentStateComponent<Pe
                 "\nenableTagAutoCompletion=" + enableTagAutoCompletion +
                 "\nenableSettingsMenu=" + enableSettingsMenu +
                 "\nenableProcessVariablesCheck=" + enableProcessVariablesCheck +
+                "\ndependencyModules=" + StaticSettings.parseDependencyModules(dependencyModules).keySet() +
                 "\nlocale=" + locale.getName();
     }
 }
@@ -4,6 +4,8 @@ import com.intellij.codeInspection.ProblemHighlightType;
 import me.rubix327.liquibasehelper.locale.Locale;
 import me.rubix327.liquibasehelper.locale.Localization;
 
+import java.util.*;
+
 public class StaticSettings {
 
     public static final String PLUGIN_NAME = "LiquibaseHelper";
@@ -20,8 +22,59 @@ public class StaticSettings {
     public static boolean SEARCH_ANNOTATION_BY_QUALIFIED_NAME = false;
     public static Locale LOCALE = Locale.RU;
 
+    /**
+     * Модули зависимостей, из которых собираются правила: по строке на модуль в формате "artifactId=пакет1, пакет2".
+     */
+    public static final String DEFAULT_DEPENDENCY_MODULES = String.join("\n",
+            "cbscoreservices-metaloader=" + String.join(", ",
+                    "ru.athena.cbs.base.metaloader.metaentity",
+                    "ru.athena.cbs.base.metaloader.metaentity.addtitionalattributes",
+                    "ru.athena.cbs.coreservices.metaloader.entitylabels.metaentity",
+                    "ru.athena.cbs.coreservices.metaloader.enumeration.metaentity",
+                    "ru.athena.cbs.coreservices.metaloader.externaldocid.metaentity",
+                    "ru.athena.cbs.coreservices.metaloader.metaentity",
+                    "ru.athena.cbs.coreservices.metaloader.registrykey.metaentity",
+                    "ru.athena.cbs.coreservices.metaloader.userkey.metaentity"),
+            "cbsdocengine-metaloader=ru.athena.cbs.docengine.metaloader.metaentity",
+            "cbsdocnumber-metaloader=ru.athena.cbs.cbsdocnumber.metaloader.metaentity"
+    );
+    public static String DEPENDENCY_MODULES = DEFAULT_DEPENDENCY_MODULES;
+
     public static String getPluginName(){
         return Localization.message("plugin.name");
     }
 
+    /**
+     * @return Пакеты по названию артефакта из текущей настройки модулей зависимостей
+     */
+    public static Map<String, List<String>> getDependencyModules(){
+        return parseDependencyModules(DEPENDENCY_MODULES);
+    }
+
+    /**
+     * Разобрать настройку модулей зависимостей.<br>
+     * Пустые строки и строки, начинающиеся с #, пропускаются. Если модуль указан в нескольких строках, его пакеты объединяются.
+     * @return Пакеты по названию артефакта (в порядке из настройки)
+     */
+    public static Map<String, List<String>> parseDependencyModules(String text){
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        if (text == null) return result;
+
+        for (String line : text.split("\n")) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            int separator = line.indexOf('=');
+            if (separator <= 0) continue;
+            String module = line.substring(0, separator).trim();
+            List<String> packages = result.computeIfAbsent(module, k -> new ArrayList<>());
+            for (String pack : line.substring(separator + 1).split(",")) {
+                pack = pack.trim();
+                if (!pack.isEmpty() && !packages.contains(pack)) packages.add(pack);
+            }
+        }
+        result.values().removeIf(List::isEmpty);
+        return result;
+    }
+
 }
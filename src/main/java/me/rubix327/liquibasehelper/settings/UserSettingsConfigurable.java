@@ -1,17 +1,26 @@
 package me.rubix327.liquibasehelper.settings;
 
 import com.intellij.openapi.options.Configurable;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
 import com.intellij.openapi.ui.ComboBox;
+import com.intellij.ui.DocumentAdapter;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.components.JBTextArea;
 import me.rubix327.liquibasehelper.form.LJBCheckBox;
+import me.rubix327.liquibasehelper.listener.RulesReloadScheduler;
 import me.rubix327.liquibasehelper.locale.Locale;
 import me.rubix327.liquibasehelper.locale.Localization;
 import me.rubix327.liquibasehelper.log.MainLogger;
 import org.jetbrains.annotations.Nls;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
 import java.awt.*;
 import java.util.Arrays;
+import java.util.Objects;
 
 public class UserSettingsConfigurable implements Configurable {
 
@@ -27,6 +36,8 @@ public class UserSettingsConfigurable implements Configurable {
     private JComboBox<String> languageComboBox;
     private JLabel languageLabel;
     private JLabel restartRequiredNotification;
+    private JLabel dependencyModulesLabel;
+    private JBTextArea dependencyModulesTextArea;
 
     public UserSettingsConfigurable() {
         this.settings = PersistentUserSettings.getInstance();
@@ -55,10 +66,19 @@ public class UserSettingsConfigurable implements Configurable {
     public void apply() {
         // Применяем изменения
         MainLogger.info("Updating settings:");
+        boolean dependencyModulesChanged = !Objects.equals(settings.dependencyModules, StaticSettings.DEPENDENCY_MODULES);
         settings.updateStaticSettings();
         for (String s : settings.toString().split("\n")) {
             MainLogger.info(1, s);
         }
+
+        // Правила из зависимостей собираются только при загрузке правил проекта, поэтому перезагружаем их сразу
+        if (dependencyModulesChanged){
+            for (Project project : ProjectManager.getInstance().getOpenProjects()) {
+                MainLogger.info(project, "Dependency modules changed: updating project-level rules...");
+                RulesReloadScheduler.getInstance(project).schedule("dependency modules changed");
+            }
+        }
     }
 
     @Override
@@ -73,6 +93,7 @@ public class UserSettingsConfigurable implements Configurable {
         enableTagAutoCompletionCheckbox.setSelected(StaticSettings.ENABLE_TAG_AUTO_COMPLETION);
         enableProcessVariablesCheckCheckbox.setSelected(StaticSettings.ENABLE_PROCESS_VARIABLES_CHECK);
         languageComboBox.setSelectedItem(StaticSettings.LOCALE.name());
+        dependencyModulesTextArea.setText(StaticSettings.DEPENDENCY_MODULES);
     }
 
     @Override
@@ -84,6 +105,7 @@ public class UserSettingsConfigurable implements Configurable {
         enableDocumentationCheckbox = null;
         enableTagAutoCompletionCheckbox = null;
         languageComboBox = null;
+        dependencyModulesTextArea = null;
     }
 
     protected JComponent createCenterPanel() {
@@ -172,8 +194,25 @@ public class UserSettingsConfigurable implements Configurable {
         panel.add(Box.createRigidArea(new Dimension(0, 2)));
         panel.add(notificationPanel);
 
+        // Модули зависимостей, из которых собираются правила
+        dependencyModulesLabel = new JLabel(Localization.message("settings.dependencyModules"));
+        dependencyModulesTextArea = new JBTextArea(StaticSettings.DEPENDENCY_MODULES, 6, 60);
+        dependencyModulesTextArea.getDocument().addDocumentListener(new DocumentAdapter() {
+            @Override
+            protected void textChanged(@NotNull DocumentEvent e) {
+                settings.setDependencyModules(dependencyModulesTextArea.getText());
+            }
+        });
+        JPanel dependencyModulesPanel = new JPanel(new BorderLayout(0, 3));
+        dependencyModulesPanel.add(dependencyModulesLabel, BorderLayout.NORTH);
+        dependencyModulesPanel.add(new JBScrollPane(dependencyModulesTextArea), BorderLayout.CENTER);
+
+        JPanel contentPanel = new JPanel(new BorderLayout(0, 6));
+        contentPanel.add(panel, BorderLayout.NORTH);
+        contentPanel.add(dependencyModulesPanel, BorderLayout.CENTER);
+
         JPanel outerPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
-        outerPanel.add(panel);
+        outerPanel.add(contentPanel);
         return outerPanel;
     }
 
@@ -186,6 +225,7 @@ public class UserSettingsConfigurable implements Configurable {
         enableTagAutoCompletionCheckbox.setText(Localization.message("settings.enableTagAutoCompletion", locale));
         enableProcessVariablesCheckCheckbox.setText(Localization.message("settings.enableProcessVariablesCheck", locale));
         languageLabel.setText(Localization.message("settings.language", locale));
+        dependencyModulesLabel.setText(Localization.message("settings.dependencyModules", locale));
         restartRequiredNotification.setText(settings.locale != StaticSettings.LOCALE ? Localization.message("settings.language.restart-required", locale) : "");
     }
 
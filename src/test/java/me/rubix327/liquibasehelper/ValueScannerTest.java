@@ -0,0 +1,166 @@
+package me.rubix327.liquibasehelper;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Сверка {@link ValueScanner} с разбором через {@link DateTimeFormatter}, {@link Long#parseLong(String)}
+ * и {@link Double#parseDouble(String)}, которые он заменяет.
+ */
+public class ValueScannerTest {
+
+    private static final long SEED = 20261017L;
+    private static final int MUTATIONS_PER_DATE = 2_000;
+    private static final String DATE_ALPHABET = "0123456789.-: TZ+x";
+    private static final String NUMBER_ALPHABET = "0123456789+-.eEpPxXfFdDaN Iy";
+
+    private static final List<DateTimeFormatter> DATE_TIME_FORMATTERS = formatters(Utils.DATE_TIME_PATTERNS);
+    private static final List<DateTimeFormatter> DATE_FORMATTERS = formatters(Utils.DATE_PATTERNS);
+
+    @Test
+    public void datesMatchFormatterLoop(){
+        List<String> samples = new ArrayList<>(List.of(
+                "", "2024-01-01", "01.01.2024", "31-12-1999", "2024.02.29", "2023-02-29", "2023-02-31", "2024-04-31",
+                "0000-01-01", "0001-01-01", "9999-12-31", "2024-13-01", "2024-00-10", "2024-01-00", "2024-01-32",
+                "2024-01-01 00:00:00", "2024-01-01T23:59:59", "2024-12-31 24:00:00", "2024-02-28T24:00:00",
+                "2024-01-01 24:00:01", "2024-01-01 25:00:00", "2024-01-01 12:60:00", "2024-01-01 12:00:60",
+                "2024-01-01 12:00:00Z", "2024-01-01T12:00:00+03:00", "2024-01-01T12:00:00-18:00", "2024-01-01T12:00:00+18:01",
+                "2024-01-01T12:00:00+19:00", "2024-01-01T12:00:00+03:60", "2024-01-01T12:00:00+0300", "2024-01-01T12:00:00z",
+                "2024-01-01 12:00", "2024-01-01x12:00:00", "2024.01-01", "01.01-2024", "2024-01-01 ", " 2024-01-01",
+                "+2024-01-01", "-2024-01-01", "24-01-01", "2024-1-01", "01.01.2024 12:00:00Z", "31.12.9999 24:00:00"));
+
+        Random random = new Random(SEED);
+        List<String> validDates = new ArrayList<>(List.of(
+                "2024-02-29 24:00:00+03:00", "31.01.2023T23:59:59Z", "28-02-2100 00:00:00", "2000.12.31", "15-06-1987"));
+        for (String validDate : validDates) {
+            samples.add(validDate);
+            for (int i = 0; i < MUTATIONS_PER_DATE; i++) {
+                samples.add(mutate(validDate, DATE_ALPHABET, random));
+            }
+        }
+
+        for (String sample : samples) {
+            assertEquals(sample, parseWithFormatters(sample), ValueScanner.parseDate(sample));
+            assertEquals(sample, parseWithFormatters(sample) != null, ValueScanner.isDate(sample));
+        }
+    }
+
+    @Test
+    public void longsMatchParseLong(){
+        List<String> samples = new ArrayList<>(List.of(
+                "", "0", "-0", "+0", "-", "+", "+-1", "--1", "1-", "007", " 1", "1 ", "1.0", "1e3", "0x10", "1L",
+                "9223372036854775807", "9223372036854775808", "-9223372036854775808", "-9223372036854775809",
+                "+9223372036854775807", "99999999999999999999", "١٢٣"));
+
+        Random random = new Random(SEED);
+        for (int i = 0; i < 20_000; i++) {
+            samples.add(randomString("0123456789+- .", 1 + random.nextInt(21), random));
+        }
+
+        for (String sample : samples) {
+            assertEquals(sample, isLongByParse(sample), ValueScanner.isLong(sample));
+        }
+    }
+
+    @Test
+    public void doublesMatchParseDouble(){
+        List<String> samples = new ArrayList<>(List.of(
+                "", " ", "0", "-0", ".5", "5.", ".", "-.", "1e", "1e+", "1e-5", "1E5", "1.5e+10d", "1f", "1F", "1d", "1D",
+                "1ff", "f", "NaN", "-NaN", "+Infinity", "-Infinity", "Infinity", "infinity", "nan", "NaNd", "Infinityf",
+                " 1.5 ", "\t1\n", "1 .5", "0x1p3", "0X1.8P-2", "0x.8p1", "0x1", "0x1.0", "0xp1", "0x1pf", "0x1p1f", "0x1e1",
+                "1e1.5", "1.e5", "1_000", "1,5", "1e400", "4.9e-325", "+-1", "١"));
+
+        Random random = new Random(SEED);
+        for (int i = 0; i < 50_000; i++) {
+            samples.add(randomString(NUMBER_ALPHABET, 1 + random.nextInt(10), random));
+        }
+
+        for (String sample : samples) {
+            assertEquals(sample, isDoubleByParse(sample), ValueScanner.isDouble(sample));
+        }
+    }
+
+    /**
+     * Разбор даты так же, как до появления {@link ValueScanner}: перебор форматов через исключения.
+     */
+    private static LocalDateTime parseWithFormatters(String s){
+        for (DateTimeFormatter formatter : DATE_TIME_FORMATTERS) {
+            try {
+                return LocalDateTime.parse(s, formatter);
+            } catch (DateTimeParseException ignored) {}
+        }
+        for (DateTimeFormatter formatter : DATE_FORMATTERS) {
+            try {
+                return LocalDateTime.of(LocalDate.parse(s, formatter), LocalTime.of(0, 0, 0));
+            } catch (DateTimeParseException ignored) {}
+        }
+        return null;
+    }
+
+    private static boolean isLongByParse(String s){
+        try {
+            Long.parseLong(s);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean isDoubleByParse(String s){
+        try {
+            Double.parseDouble(s);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Заменить, вставить или удалить от одного до трех символов.
+     */
+    private static String mutate(String s, String alphabet, Random random){
+        StringBuilder sb = new StringBuilder(s);
+        int count = 1 + random.nextInt(3);
+        for (int i = 0; i < count; i++) {
+            int position = random.nextInt(sb.length() + 1);
+            char c = alphabet.charAt(random.nextInt(alphabet.length()));
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    if (position < sb.length()) sb.setCharAt(position, c);
+                }
+                case 1 -> sb.insert(position, c);
+                default -> {
+                    if (position < sb.length()) sb.deleteCharAt(position);
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String randomString(String alphabet, int length, Random random){
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+
+    private static List<DateTimeFormatter> formatters(List<String> patterns){
+        List<DateTimeFormatter> result = new ArrayList<>();
+        for (String pattern : patterns) {
+            result.add(DateTimeFormatter.ofPattern(pattern));
+        }
+        return result;
+    }
+
+}
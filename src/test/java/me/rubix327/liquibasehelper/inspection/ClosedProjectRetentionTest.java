@@ -0,0 +1,63 @@
+package me.rubix327.liquibasehelper.inspection;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ex.ProjectManagerEx;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.testFramework.HeavyPlatformTestCase;
+import com.intellij.testFramework.LeakHunter;
+import com.intellij.testFramework.OpenProjectTaskBuilderKt;
+import me.rubix327.liquibasehelper.StartProjectService;
+import me.rubix327.liquibasehelper.inspection.model.TagRule;
+import me.rubix327.liquibasehelper.inspection.model.TagRulesContainer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * После закрытия проекта его правила освобождаются: {@link StartProjectService#dispose()} удаляет {@link RulesManager} проекта,
+ * и ни менеджер, ни реестр правил не остаются достижимыми из закрытого проекта.
+ */
+public class ClosedProjectRetentionTest extends HeavyPlatformTestCase {
+
+    private static final int CYCLES = 3;
+    private static final int CLASSES_PER_PROJECT = 50;
+
+    public void testClosedProjectsDoNotRetainRules() throws Exception {
+        for (int cycle = 0; cycle < CYCLES; cycle++) {
+            Project project = ProjectManagerEx.getInstanceEx().openProject(
+                    FileUtil.createTempDirectory("rules-retention", null).toPath(), OpenProjectTaskBuilderKt.createTestOpenProjectOptions());
+            assertNotNull(project);
+
+            // Сервис, который при закрытии проекта освобождает его правила
+            StartProjectService.getInstance(project);
+            RulesManager rulesManager = RulesManager.getInstance(project);
+            rulesManager.restoreRulesFromSnapshot(createContainers(cycle));
+            assertEquals(CLASSES_PER_PROJECT, rulesManager.getAllRulesContainers().size());
+
+            assertTrue(ProjectManagerEx.getInstanceEx().closeAndDispose(project));
+
+            for (RulesManager instance : RulesManager.getAllInstances()) {
+                assertNotSame(project, instance.getProject());
+            }
+            assertEmpty(rulesManager.getAllRulesContainers());
+            LeakHunter.checkLeak(project, RulesManager.class);
+            LeakHunter.checkLeak(project, RulesRegistry.class);
+        }
+    }
+
+    @NotNull
+    private static List<TagRulesContainer> createContainers(int cycle){
+        List<TagRulesContainer> containers = new ArrayList<>(CLASSES_PER_PROJECT);
+        for (int i = 0; i < CLASSES_PER_PROJECT; i++) {
+            TagRule rule = new TagRule("code");
+            rule.setMaxLength(cycle + 1);
+            containers.add(new TagRulesContainer()
+                    .setParentTagName("entity" + i)
+                    .setClassPath("com.example.metaloader.Entity" + i)
+                    .setTagRules(List.of(rule)));
+        }
+        return containers;
+    }
+
+}
@@ -0,0 +1,111 @@
+package me.rubix327.liquibasehelper.inspection;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.psi.JavaPsiFacade;
+import com.intellij.psi.PsiAnnotation;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiField;
+import me.rubix327.liquibasehelper.inspection.model.AvailableValue;
+import me.rubix327.liquibasehelper.inspection.model.HandleClassesResponse;
+import me.rubix327.liquibasehelper.inspection.model.TagRule;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Одинаковые значения в правилах разных классов хранятся одним экземпляром (см. {@link RulesInterner}),
+ * а правила неизмененных классов берутся из памяти (см. {@link RulesMemo}).
+ */
+public class RulesInterningTest extends RulesTestCase {
+
+    private static final int CLASSES_COUNT = 40;
+
+    public void testEqualValuesAreDeduplicatedBetweenClasses(){
+        addCurrencyEnum();
+        List<PsiClass> classes = new ArrayList<>();
+        for (int i = 0; i < CLASSES_COUNT; i++) {
+            classes.add(addDatamodelClass("Entity" + i,
+                    "@CbsDatamodelField(comment = \"Валюта операции\", availableValuesEnum = com.example.Currency.class) private String currency;"));
+        }
+
+        List<TagRule> rules = new ArrayList<>();
+        for (PsiClass psiClass : classes) {
+            rules.add(getRule(extract(psiClass), "currency"));
+        }
+
+        TagRule first = rules.get(0);
+        assertEquals(List.of("RUB", "USD", "EUR"), first.getAvailableValues().stream().map(AvailableValue::getValue).toList());
+        for (TagRule rule : rules) {
+            assertSame(first.getAvailableValues(), rule.getAvailableValues());
+            assertSame(first.getTagTooltip(), rule.getTagTooltip());
+        }
+
+        // Дедупликация: ссылок на значения много, а различных экземпляров - по одному на значение
+        int references = 0;
+        Set<Object> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (TagRule rule : rules) {
+            List<Object> objects = new ArrayList<>(List.of(rule.getAvailableValues(), rule.getTagTooltip()));
+            for (AvailableValue value : rule.getAvailableValues()) {
+                objects.add(value);
+                objects.add(value.getValue());
+            }
+            references += objects.size();
+            distinct.addAll(objects);
+        }
+        assertEquals(1 + 1 + 3 + 3, distinct.size());
+        assertEquals(CLASSES_COUNT * distinct.size(), references);
+    }
+
+    public void testSharedValueListsAreImmutable(){
+        addCurrencyEnum();
+        PsiClass account = addDatamodelClass("Account", "@CbsDatamodelField(availableValuesEnum = com.example.Currency.class) private String currency;");
+        List<AvailableValue> values = getRule(extract(account), "currency").getAvailableValues();
+
+        try {
+            values.add(new AvailableValue("GBP"));
+            fail("Shared list of available values must be immutable");
+        } catch (UnsupportedOperationException ignored) {}
+    }
+
+    public void testRulesOfUnchangedClassesAreReused(){
+        PsiClass base = addDatamodelClass("BaseEntity", "@CbsDatamodelClass(mapped = true)", null,
+                "@CbsDatamodelField(maxLength = 10) private String code;");
+        PsiClass account = addDatamodelClass("Account", "@CbsDatamodelClass", "BaseEntity",
+                "@CbsDatamodelField(maxLength = 30) private String number;");
+        PsiClass client = addDatamodelClass("Client", "@CbsDatamodelClass", "BaseEntity",
+                "@CbsDatamodelField(maxLength = 100) private String name;");
+
+        HandleClassesResponse accountResponse = extract(account);
+        HandleClassesResponse clientResponse = extract(client);
+        // Правила общего родителя разобраны один раз
+        assertSame(getRule(accountResponse, "code"), getRule(clientResponse, "code"));
+        assertEquals(List.of(base.getQualifiedName()), accountResponse.getSuperClasses());
+
+        // Повторный сбор без изменений берет правила из памяти
+        HandleClassesResponse accountAgain = extract(account);
+        assertSame(getRule(accountResponse, "number"), getRule(accountAgain, "number"));
+        assertSame(getRule(accountResponse, "code"), getRule(accountAgain, "code"));
+
+        // После изменения родителя правила пересобираются
+        setMaxLength(base.findFieldByName("code", false), 20);
+        HandleClassesResponse accountAfterChange = extract(account);
+        assertEquals(20, getRule(accountAfterChange, "code").getMaxLength());
+        assertNotSame(getRule(accountResponse, "code"), getRule(accountAfterChange, "code"));
+        assertEquals(30, getRule(accountAfterChange, "number").getMaxLength());
+    }
+
+    private void setMaxLength(PsiField field, int maxLength){
+        assertNotNull(field);
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            PsiAnnotation annotation = field.getModifierList().getAnnotations()[0];
+            annotation.setDeclaredAttributeValue("maxLength",
+                    JavaPsiFacade.getElementFactory(getProject()).createExpressionFromText(String.valueOf(maxLength), field));
+        });
+        PsiDocumentManager.getInstance(getProject()).commitAllDocuments();
+    }
+
+}
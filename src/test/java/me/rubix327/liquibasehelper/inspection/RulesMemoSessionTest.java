@@ -0,0 +1,55 @@
+package me.rubix327.liquibasehelper.inspection;
+
+import com.intellij.psi.PsiClass;
+import me.rubix327.liquibasehelper.inspection.cache.RulesSnapshotEntry;
+import me.rubix327.liquibasehelper.inspection.model.TagRule;
+import me.rubix327.liquibasehelper.inspection.model.TagRulesContainer;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сбор правил внутри прерываемого read action не изменяет общее состояние:
+ * запомненные правила попадают в {@link RulesMemo} только после {@link RulesManager#commitMemo(RulesMemoSession)},
+ * а {@link RulesInterner} отдает копии, не изменяя исходные правила.
+ */
+public class RulesMemoSessionTest extends RulesTestCase {
+
+    public void testSessionIsNotSharedUntilCommitted(){
+        PsiClass account = addDatamodelClass("Account", "@CbsDatamodelField(maxLength = 30) private String number;");
+
+        RulesMemoSession session = new RulesMemoSession();
+        TagRule collected = getRule(rulesManager.extractRules(account, "test", session), "number");
+        // Внутри той же сессии правила переиспользуются
+        assertSame(collected, getRule(rulesManager.extractRules(account, "test", session), "number"));
+        // ...но до переноса сессии другие сборы их не видят (как будто read action был прерван)
+        assertNotSame(collected, getRule(rulesManager.extractRules(account, "test", new RulesMemoSession()), "number"));
+
+        rulesManager.commitMemo(session);
+        assertSame(collected, getRule(rulesManager.extractRules(account, "test", new RulesMemoSession()), "number"));
+    }
+
+    public void testSnapshotEntryIsNotChangedByInterning(){
+        PsiClass account = addDatamodelClass("Account", "@CbsDatamodelField private String number;");
+        String tooltip = new String("Номер счета");
+        TagRule rule = new TagRule("number");
+        rule.setTagTooltip(tooltip);
+        TagRulesContainer container = new TagRulesContainer()
+                .setParentTagName("account")
+                .setClassPath(account.getQualifiedName())
+                .setTagRules(List.of(rule));
+        RulesSnapshotEntry entry = new RulesSnapshotEntry(container, Map.of(), List.of());
+
+        TagRulesContainer first = rulesManager.extractRulesFromSnapshot(account, entry).getContainer();
+        TagRulesContainer second = rulesManager.extractRulesFromSnapshot(account, entry).getContainer();
+
+        assertNotSame(container, first);
+        assertNotSame(rule, first.getTagRule("number"));
+        assertSame(tooltip, rule.getTagTooltip());
+        assertSame(rule, container.getTagRule("number"));
+        // Копии разных вызовов делят общие значения
+        assertSame(first.getTagRule("number").getTagTooltip(), second.getTagRule("number").getTagTooltip());
+        assertEquals("Номер счета", first.getTagRule("number").getTagTooltip());
+    }
+
+}
@@ -0,0 +1,86 @@
+package me.rubix327.liquibasehelper.inspection;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.testFramework.LeakHunter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Реестр правил хранит названия классов, а не PSI: после перестроения и удаления файлов в нем не должно оставаться
+ * ни PSI-элементов, ни ссылок на проект.<br>
+ * Освобождение правил при закрытии проекта проверяет {@link ClosedProjectRetentionTest}.
+ */
+public class RulesRegistryRetentionTest extends RulesTestCase {
+
+    private static final int CYCLES = 3;
+    private static final int CLASSES_PER_CYCLE = 50;
+
+    public void testRegistryDoesNotRetainPsiAfterRepeatedRegistration(){
+        for (int cycle = 0; cycle < CYCLES; cycle++) {
+            PsiClass currency = addCurrencyEnum();
+            List<PsiClass> classes = new ArrayList<>();
+            Set<String> classNames = new HashSet<>();
+            for (int i = 0; i < CLASSES_PER_CYCLE; i++) {
+                PsiClass psiClass = addDatamodelClass("Entity" + i,
+                        "@CbsDatamodelField(maxLength = " + (cycle + 1) + ") private String code;\n" +
+                        "@CbsDatamodelField(availableValuesEnum = com.example.Currency.class) private String currency;");
+                classes.add(psiClass);
+                classNames.add(psiClass.getQualifiedName());
+            }
+
+            for (PsiClass psiClass : classes) {
+                rulesManager.applyExtractedRules(extract(psiClass));
+            }
+            assertEquals(classNames, rulesManager.getClassesUsingThisEnum(ENUM_QUALIFIED_NAME));
+            assertEquals(CLASSES_PER_CYCLE, rulesManager.getAllRulesContainers().size());
+            assertNoPsiRetained();
+
+            // Удаляем файлы (как при закрытии проекта или перестроении PSI) и правила их классов
+            Map<String, String> removedClasses = new HashMap<>();
+            for (PsiClass psiClass : classes) {
+                removedClasses.put(psiClass.getQualifiedName(), RulesManager.getDatamodelTagOfClass(psiClass));
+            }
+            WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+                for (PsiClass psiClass : classes) {
+                    psiClass.getContainingFile().delete();
+                }
+                currency.getContainingFile().delete();
+            });
+            rulesManager.replaceRulesOfClasses(removedClasses, List.of());
+
+            assertEmpty(rulesManager.getClassesUsingThisEnum(ENUM_QUALIFIED_NAME));
+            assertEmpty(rulesManager.getAllRulesContainers());
+            assertNoPsiRetained();
+        }
+    }
+
+    public void testRemovingClassDropsOnlyItsEnumReferences(){
+        addCurrencyEnum();
+        PsiClass account = addDatamodelClass("Account", "@CbsDatamodelField(availableValuesEnum = com.example.Currency.class) private String currency;");
+        PsiClass client = addDatamodelClass("Client", "@CbsDatamodelField(availableValuesEnum = com.example.Currency.class) private String currency;");
+        rulesManager.applyExtractedRules(extract(account));
+        rulesManager.applyExtractedRules(extract(client));
+        assertEquals(Set.of(ENUM_QUALIFIED_NAME), rulesManager.getEnumsUsedByClass(account.getQualifiedName()));
+
+        rulesManager.removeClassReferencesFromEnums(account.getQualifiedName());
+
+        assertEquals(Set.of(client.getQualifiedName()), rulesManager.getClassesUsingThisEnum(ENUM_QUALIFIED_NAME));
+        assertEmpty(rulesManager.getEnumsUsedByClass(account.getQualifiedName()));
+        assertNoPsiRetained();
+    }
+
+    private void assertNoPsiRetained(){
+        RulesRegistry registry = rulesManager.getRegistry();
+        LeakHunter.checkLeak(registry, PsiElement.class);
+        LeakHunter.checkLeak(registry, Project.class);
+    }
+
+}
@@ -0,0 +1,77 @@
+package me.rubix327.liquibasehelper.inspection;
+
+import com.intellij.psi.PsiClass;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import me.rubix327.liquibasehelper.inspection.model.HandleClassesResponse;
+import me.rubix327.liquibasehelper.inspection.model.TagRule;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Общая основа тестов {@link RulesManager}: аннотации плагина и создание мета-классов в пакете metaloader.
+ */
+public abstract class RulesTestCase extends BasePlatformTestCase {
+
+    protected static final String METALOADER_PACKAGE = "com.example.metaloader";
+    protected static final String ENUM_QUALIFIED_NAME = "com.example.Currency";
+
+    protected RulesManager rulesManager;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        myFixture.addClass("package test.annotations;\n" +
+                "public @interface CbsDatamodelClass { String tag() default \"\"; String comment() default \"\"; " +
+                "String description() default \"\"; boolean mapped() default false; }");
+        myFixture.addClass("package test.annotations;\n" +
+                "public @interface CbsDatamodelField { String comment() default \"\"; String description() default \"\"; " +
+                "boolean required() default false; int maxLength() default 0; String[] availableValues() default {}; " +
+                "Class<?> availableValuesEnum() default Object.class; }");
+        rulesManager = RulesManager.getInstance(getProject());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            RulesManager.removeInstance(getProject());
+        } catch (Throwable e) {
+            addSuppressedException(e);
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    protected PsiClass addCurrencyEnum(){
+        return myFixture.addClass("package com.example;\npublic enum Currency { RUB, USD, EUR }");
+    }
+
+    /**
+     * @param annotation Аннотация класса (н-р, "@CbsDatamodelClass(mapped = true)")
+     * @param superClass Родитель (null - без родителя)
+     * @param body Поля класса
+     */
+    protected PsiClass addDatamodelClass(@NotNull String name, @NotNull String annotation, String superClass, @NotNull String body){
+        return myFixture.addClass("package " + METALOADER_PACKAGE + ";\n" +
+                "import test.annotations.*;\n" +
+                annotation + "\n" +
+                "public class " + name + (superClass == null ? "" : " extends " + superClass) + " {\n" + body + "\n}");
+    }
+
+    protected PsiClass addDatamodelClass(@NotNull String name, @NotNull String body){
+        return addDatamodelClass(name, "@CbsDatamodelClass", null, body);
+    }
+
+    @NotNull
+    protected HandleClassesResponse extract(@NotNull PsiClass psiClass){
+        HandleClassesResponse response = rulesManager.extractRules(psiClass, "test");
+        assertTrue(response.getMessage(), response.isSuccess());
+        return response;
+    }
+
+    @NotNull
+    protected static TagRule getRule(@NotNull HandleClassesResponse response, @NotNull String tagName){
+        TagRule rule = response.getContainer().getTagRule(tagName);
+        assertNotNull("No rule for tag " + tagName, rule);
+        return rule;
+    }
+
+}
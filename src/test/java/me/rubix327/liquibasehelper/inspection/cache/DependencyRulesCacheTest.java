@@ -0,0 +1,71 @@
+package me.rubix327.liquibasehelper.inspection.cache;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.psi.PsiClass;
+import com.intellij.testFramework.PlatformTestUtil;
+import me.rubix327.liquibasehelper.inspection.RulesManager;
+import me.rubix327.liquibasehelper.inspection.RulesTestCase;
+import me.rubix327.liquibasehelper.inspection.model.HandleClassesResponse;
+import me.rubix327.liquibasehelper.inspection.model.TagRule;
+import me.rubix327.liquibasehelper.inspection.model.TagRulesContainer;
+
+import java.util.List;
+
+/**
+ * Правила одного .jar из {@link DependencyRulesCache} в разных проектах не влияют друг на друга.
+ */
+public class DependencyRulesCacheTest extends RulesTestCase {
+
+    private static final long TIMEOUT_MS = 60_000;
+
+    public void testProjectsDoNotShareCachedRules() throws Exception {
+        PsiClass account = addDatamodelClass("Account", "@CbsDatamodelField(maxLength = 30) private String number;");
+        HandleClassesResponse response = extract(account);
+
+        DependencyRulesCache cache = DependencyRulesCache.getInstance();
+        String jarHash = "test-" + System.nanoTime();
+        List<String> packages = List.of(METALOADER_PACKAGE);
+        // Сохранение ищет классы в неблокирующих read action-ах, которые нельзя запускать из EDT
+        PlatformTestUtil.waitForFuture(ApplicationManager.getApplication().executeOnPooledThread(
+                () -> cache.put(getProject(), jarHash, packages, List.of(response), new EmptyProgressIndicator())), TIMEOUT_MS);
+
+        Project otherProject = PlatformTestUtil.loadAndOpenProject(FileUtil.createTempDirectory("other", null).toPath(), getTestRootDisposable());
+        try {
+            // Один и тот же .jar загружается в оба проекта
+            TagRule first = loadFromCache(rulesManager, cache, jarHash, packages);
+            TagRule second = loadFromCache(RulesManager.getInstance(otherProject), cache, jarHash, packages);
+            assertNotSame(first, second);
+
+            // Изменение правила в одном проекте не видно ни в другом проекте, ни в кэше
+            first.setMaxLength(1);
+            response.getContainer().getTagRule("number").setMaxLength(2);
+            assertEquals(30, second.getMaxLength());
+            assertEquals(30, getCachedRule(cache, jarHash, packages).getMaxLength());
+        } finally {
+            RulesManager.removeInstance(otherProject);
+        }
+    }
+
+    private static TagRule loadFromCache(RulesManager rulesManager, DependencyRulesCache cache, String jarHash, List<String> packages){
+        List<RulesSnapshotEntry> entries = ReadAction.compute(() -> cache.get(jarHash, packages));
+        assertNotNull(entries);
+        rulesManager.restoreRulesFromSnapshot(entries.stream().map(RulesSnapshotEntry::getContainer).toList());
+
+        TagRulesContainer container = rulesManager.getRulesContainerByTagName("account");
+        assertNotNull(container);
+        TagRule rule = container.getTagRule("number");
+        assertNotNull(rule);
+        return rule;
+    }
+
+    private static TagRule getCachedRule(DependencyRulesCache cache, String jarHash, List<String> packages){
+        List<RulesSnapshotEntry> entries = ReadAction.compute(() -> cache.get(jarHash, packages));
+        assertNotNull(entries);
+        return entries.get(0).getContainer().getTagRule("number");
+    }
+
+}
@@ -0,0 +1,50 @@
+package me.rubix327.liquibasehelper.inspection.cache;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiClass;
+import me.rubix327.liquibasehelper.inspection.RulesTestCase;
+import me.rubix327.liquibasehelper.inspection.model.TagRulesContainer;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Запись снимка зависит от всех файлов, из которых собраны правила класса (см. {@link RulesSnapshotStorage#findEntrySources}).
+ */
+public class RulesSnapshotStorageTest extends RulesTestCase {
+
+    public void testEntryDependsOnConstantsAndChainEnd(){
+        PsiClass base = myFixture.addClass("package com.example;\npublic class PlainBase {}");
+        PsiClass codes = myFixture.addClass("package com.example;\npublic class Codes {\n" +
+                "public static final String FIRST = \"A,B\";\npublic static final String ALIAS = FIRST;\n}");
+        PsiClass aliases = myFixture.addClass("package com.example;\npublic class Aliases {\n" +
+                "public static final String CODE = Codes.ALIAS;\n}");
+        PsiClass account = addDatamodelClass("Account", "@CbsDatamodelClass", "com.example.PlainBase",
+                "@CbsDatamodelField(availableValues = com.example.Aliases.CODE) private String code;");
+
+        RulesSnapshotStorage.EntrySources sources = findEntrySources(account);
+        assertNotNull(sources);
+        List<VirtualFile> files = sources.files();
+        assertTrue(files.contains(fileOf(account)));
+        assertTrue("Chain end superclass must be stamped", files.contains(fileOf(base)));
+        assertTrue("Referenced constant must be stamped", files.contains(fileOf(aliases)));
+        assertTrue("Constant referenced by a constant must be stamped", files.contains(fileOf(codes)));
+    }
+
+    public void testEntryWithUnresolvedConstantIsNotReusable(){
+        PsiClass account = addDatamodelClass("Account",
+                "@CbsDatamodelField(availableValues = com.example.Missing.CODE) private String code;");
+
+        assertNull(findEntrySources(account));
+    }
+
+    private RulesSnapshotStorage.EntrySources findEntrySources(PsiClass psiClass){
+        TagRulesContainer container = extract(psiClass).getContainer();
+        return RulesSnapshotStorage.findEntrySources(getProject(), container, Set.of());
+    }
+
+    private static VirtualFile fileOf(PsiClass psiClass){
+        return psiClass.getContainingFile().getVirtualFile();
+    }
+
+}
@@ -0,0 +1,174 @@
+package me.rubix327.liquibasehelper.inspection.model;
+
+import com.intellij.ide.highlighter.XmlFileType;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileFactory;
+import com.intellij.psi.util.PsiTreeUtil;
+import com.intellij.psi.xml.XmlAttribute;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import me.rubix327.liquibasehelper.inspection.XmlTagValuesInspector;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link AttributeRulesIndex#getSuitableRule(XmlAttribute)}: правила, использующие только определители прежнего поиска
+ * (mustTagName, mustParentName, названия соседей), выбираются так же, как и прежним поиском перебором;
+ * прародитель, корневой тег и значения соседей проверяются дополнительно.
+ */
+public class AttributeRulesIndexTest extends BasePlatformTestCase {
+
+    private static final String[] TAG_NAMES = {"databaseChangeLog", "changeSet", "createTable", "addColumn", "column", "sql"};
+    private static final String[] ATTRIBUTE_NAMES = {"id", "author", "name", "tableName", "columnName", "indexName", "type", "kind"};
+    private static final String[] VALUES = {"", "a", "b", "VARCHAR"};
+    private static final int DOCUMENTS = 200;
+
+    public void testBaselineDefinersMatchLinearScan(){
+        List<AttributeRule> rules = new ArrayList<>(List.of(
+                new AttributeRule("name").setMustTagName("column").setMustParentName("createTable"),
+                new AttributeRule("name").setMustNeighbours(List.of(new AttributeNeighbour("type", null))),
+                new AttributeRule("name").setMustNeighbours(List.of(new AttributeNeighbour("kind", null), new AttributeNeighbour(null, "b"))),
+                new AttributeRule("name").setMustTagName("column"),
+                new AttributeRule("tableName").setMustParentName("changeSet").setMustNeighbours(List.of(new AttributeNeighbour("kind", null))),
+                new AttributeRule("tableName"),
+                new AttributeRule("kind").setMustTagName("sql").setMustParentName("changeSet")
+        ));
+        rules.addAll(XmlTagValuesInspector.attributeRules);
+        assertSameAsScan(rules);
+    }
+
+    public void testChangeSetAttributesMatchOnlyOnChangeSet(){
+        AttributeRulesIndex index = XmlTagValuesInspector.attributeRulesIndex;
+        String xml = "<databaseChangeLog><changeSet id=\"1\" author=\"me\"><sql id=\"2\" author=\"me\"/></changeSet></databaseChangeLog>";
+        assertNotNull(index.getSuitableRule(findAttribute(xml, "changeSet", "id")));
+        assertNotNull(index.getSuitableRule(findAttribute(xml, "changeSet", "author")));
+        assertNull(index.getSuitableRule(findAttribute(xml, "sql", "id")));
+        assertNull(index.getSuitableRule(findAttribute(xml, "sql", "author")));
+    }
+
+    public void testDdlAttributesMatchOnlyInsideChangeSet(){
+        AttributeRulesIndex index = XmlTagValuesInspector.attributeRulesIndex;
+        String xml = "<databaseChangeLog><changeSet><createTable tableName=\"T\"><column name=\"C\"/></createTable></changeSet>" +
+                "<property tableName=\"T\" name=\"P\"/></databaseChangeLog>";
+        assertEquals(30, index.getSuitableRule(findAttribute(xml, "createTable", "tableName")).getMaxLength());
+        assertEquals(30, index.getSuitableRule(findAttribute(xml, "column", "name")).getMaxLength());
+        assertNull(index.getSuitableRule(findAttribute(xml, "property", "tableName")));
+        assertNull(index.getSuitableRule(findAttribute(xml, "property", "name")));
+    }
+
+    public void testGrandParentAndRootTagAreChecked(){
+        AttributeRule byGrandParent = new AttributeRule("name").setMustGrandParentName("changeSet");
+        AttributeRule byRoot = new AttributeRule("type").setMustRootTagName("databaseChangeLog");
+        AttributeRulesIndex index = AttributeRulesIndex.of(List.of(byGrandParent, byRoot));
+
+        String xml = "<databaseChangeLog><changeSet><createTable><column name=\"C\" type=\"T\"/></createTable><sql name=\"S\"/></changeSet></databaseChangeLog>";
+        assertSame(byGrandParent, index.getSuitableRule(findAttribute(xml, "column", "name")));
+        assertNull(index.getSuitableRule(findAttribute(xml, "sql", "name")));
+        assertSame(byRoot, index.getSuitableRule(findAttribute(xml, "column", "type")));
+        assertNull(index.getSuitableRule(findAttribute("<include><column type=\"T\"/></include>", "column", "type")));
+    }
+
+    public void testNeighbourValueIsCompared(){
+        AttributeRule rule = new AttributeRule("name").setMustNeighbours(List.of(new AttributeNeighbour("kind", "a")));
+        AttributeRulesIndex index = AttributeRulesIndex.of(List.of(rule));
+
+        String xml = "<root><column kind=\"a\" name=\"A\"/><sql kind=\"b\" name=\"B\"/></root>";
+        assertSame(rule, index.getSuitableRule(findAttribute(xml, "column", "name")));
+        assertNull(index.getSuitableRule(findAttribute(xml, "sql", "name")));
+    }
+
+    private void assertSameAsScan(@NotNull List<AttributeRule> rules){
+        AttributeRulesIndex index = AttributeRulesIndex.of(rules);
+        Random random = new Random(23);
+        int matched = 0;
+        for (int i = 0; i < DOCUMENTS; i++) {
+            for (XmlAttribute attribute : getAttributes(randomDocument(random))) {
+                AttributeRule expected = getSuitableRuleByScan(rules, attribute);
+                assertSame(attribute.getParent().getText(), expected, index.getSuitableRule(attribute));
+                if (expected != null) matched++;
+            }
+        }
+        assertTrue("Generated documents must hit some rules", matched > 0);
+    }
+
+    /**
+     * Прежний поиск правила перебором (AttributeRule.getSuitableAttributeRule и XmlTagValuesInspector.isTagSuitableByNeighbours).
+     */
+    private static AttributeRule getSuitableRuleByScan(List<AttributeRule> allRules, @NotNull XmlAttribute attribute){
+        for (AttributeRule rule : allRules) {
+            if (!attribute.getName().equals(rule.getAttributeName())) continue;
+            if (rule.getMustTagName() != null){
+                if (attribute.getParent() == null) continue;
+                if (!rule.getMustTagName().equals(attribute.getParent().getName())) continue;
+            }
+            if (rule.getMustParentName() != null){
+                if (attribute.getParent() == null) continue;
+                if (attribute.getParent().getParentTag() == null) continue;
+                if (!rule.getMustParentName().equals(attribute.getParent().getParentTag().getName())) continue;
+            }
+            if (!isTagSuitableByNeighbours(attribute, rule.getMustNeighbours())) continue;
+            return rule;
+        }
+        return null;
+    }
+
+    private static boolean isTagSuitableByNeighbours(@NotNull XmlAttribute tagAttribute, @NotNull List<AttributeNeighbour> neighbours){
+        for (AttributeNeighbour neighbour : neighbours) {
+            if (neighbour.attributeName == null) continue;
+
+            XmlAttribute attribute = tagAttribute.getParent().getAttribute(neighbour.attributeName);
+            if (attribute == null) return false;
+            if (neighbour.attributeValue == null) continue;
+
+            if (attribute.getValue() == null) return false;
+        }
+        return true;
+    }
+
+    @NotNull
+    private String randomDocument(@NotNull Random random){
+        StringBuilder builder = new StringBuilder();
+        appendTag(builder, random, random.nextBoolean() ? "databaseChangeLog" : pick(random, TAG_NAMES), 0);
+        return builder.toString();
+    }
+
+    private static void appendTag(@NotNull StringBuilder builder, @NotNull Random random, @NotNull String name, int depth){
+        builder.append('<').append(name);
+        List<String> used = new ArrayList<>();
+        for (int i = random.nextInt(4); i > 0; i--) {
+            String attributeName = pick(random, ATTRIBUTE_NAMES);
+            if (used.contains(attributeName)) continue;
+            used.add(attributeName);
+            builder.append(' ').append(attributeName).append("=\"").append(pick(random, VALUES)).append('"');
+        }
+        builder.append('>');
+        if (depth < 4){
+            for (int i = random.nextInt(3); i > 0; i--) {
+                appendTag(builder, random, pick(random, TAG_NAMES), depth + 1);
+            }
+        }
+        builder.append("</").append(name).append('>');
+    }
+
+    @NotNull
+    private XmlAttribute findAttribute(@NotNull String text, @NotNull String tagName, @NotNull String attributeName){
+        for (XmlAttribute attribute : getAttributes(text)) {
+            if (attribute.getName().equals(attributeName) && attribute.getParent().getName().equals(tagName)) return attribute;
+        }
+        throw new AssertionError("No attribute " + attributeName + " in tag " + tagName);
+    }
+
+    @NotNull
+    private Collection<XmlAttribute> getAttributes(@NotNull String text){
+        PsiFile file = PsiFileFactory.getInstance(getProject()).createFileFromText("changelog.xml", XmlFileType.INSTANCE, text);
+        return PsiTreeUtil.findChildrenOfType(file, XmlAttribute.class);
+    }
+
+    private static String pick(@NotNull Random random, @NotNull String[] values){
+        return values[random.nextInt(values.length)];
+    }
+
+}
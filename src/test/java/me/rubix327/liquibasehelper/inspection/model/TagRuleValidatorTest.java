@@ -0,0 +1,158 @@
+package me.rubix327.liquibasehelper.inspection.model;
+
+import me.rubix327.liquibasehelper.Utils;
+import me.rubix327.liquibasehelper.inspection.model.TagRuleValidator.ValueType;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Проверки {@link TagRuleValidator} должны давать те же результаты, что и прежние проверки правила
+ * в XmlTagValuesInspector (сравнение строк типов и разбор значений через исключения).
+ */
+public class TagRuleValidatorTest {
+
+    private static final List<String> TYPES = List.of(
+            String.class.getTypeName(), Long.class.getTypeName(), Double.class.getTypeName(),
+            Boolean.class.getTypeName(), Date.class.getTypeName(), "java.lang.Integer", "");
+
+    private static final List<String> VALUES = List.of(
+            "", "0", "1", "2", "-1", "01", "1.5", "1e3", "NaN", "abc", " 1", "9223372036854775808",
+            "2024-01-01", "31.12.2023 23:59:59", "2023-02-31", "2024-13-01", "Currency", "RUB", "USD");
+
+    @Test
+    public void resolvesValueTypeByTypeName(){
+        assertEquals(ValueType.LONG, ValueType.of("java.lang.Long"));
+        assertEquals(ValueType.DOUBLE, ValueType.of("java.lang.Double"));
+        assertEquals(ValueType.BOOLEAN, ValueType.of("java.lang.Boolean"));
+        assertEquals(ValueType.DATE, ValueType.of("java.util.Date"));
+        assertEquals(ValueType.STRING, ValueType.of("java.lang.String"));
+        assertEquals(ValueType.STRING, ValueType.of("java.lang.Integer"));
+        assertEquals(ValueType.STRING, ValueType.of(null));
+        assertNull(ValueType.STRING.getMessageKey());
+    }
+
+    @Test
+    public void checksMaxLength(){
+        TagRuleValidator validator = new TagRuleValidator(rule(String.class.getTypeName(), 3, false));
+        assertFalse(validator.isTooLong(""));
+        assertFalse(validator.isTooLong("abc"));
+        assertTrue(validator.isTooLong("abcd"));
+
+        // 0 - длина не ограничена
+        TagRuleValidator unlimited = new TagRuleValidator(rule(String.class.getTypeName(), 0, false));
+        assertFalse(unlimited.isTooLong("a".repeat(10_000)));
+    }
+
+    @Test
+    public void checksAvailableValues(){
+        TagRule rule = rule(String.class.getTypeName(), 0, true);
+        rule.setAvailableValues(List.of(new AvailableValue("RUB", "Рубль"), new AvailableValue("USD"), new AvailableValue("RUB")));
+        TagRuleValidator validator = new TagRuleValidator(rule);
+
+        assertTrue(validator.isRequired());
+        assertFalse(validator.isNotAvailable("RUB"));
+        assertFalse(validator.isNotAvailable("USD"));
+        assertTrue(validator.isNotAvailable("EUR"));
+        assertTrue(validator.isNotAvailable("rub"));
+        // В тексте ошибки - значения в исходном порядке, как в правиле
+        assertEquals(List.of("RUB", "USD", "RUB"), validator.getAvailableValuesList());
+
+        TagRuleValidator unrestricted = new TagRuleValidator(rule(String.class.getTypeName(), 0, false));
+        assertFalse(unrestricted.isNotAvailable("anything"));
+        assertTrue(unrestricted.getAvailableValuesList().isEmpty());
+    }
+
+    @Test
+    public void matchesPreviousInspectorChecks(){
+        List<List<AvailableValue>> availableValuesVariants = List.of(
+                List.of(),
+                List.of(new AvailableValue("0", "Нет"), new AvailableValue("1", "Да")),
+                List.of(new AvailableValue("RUB"), new AvailableValue("USD")),
+                List.of(new AvailableValue(null)));
+
+        for (String type : TYPES) {
+            for (int maxLength : new int[]{0, 1, 10}) {
+                for (List<AvailableValue> availableValues : availableValuesVariants) {
+                    TagRule rule = rule(type, maxLength, false);
+                    rule.setAvailableValues(new ArrayList<>(availableValues));
+                    TagRuleValidator validator = new TagRuleValidator(rule);
+
+                    for (String value : VALUES) {
+                        String description = rule + " / '" + value + "'";
+                        assertEquals(description, maxLength > 0 && value.length() > maxLength, validator.isTooLong(value));
+                        assertEquals(description, isTypeMismatchByRule(rule, value), validator.isTypeMismatch(value));
+                        assertEquals(description, isNotAvailableByRule(rule, value), validator.isNotAvailable(value));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Проверка типа в том виде, в каком она была в XmlTagValuesInspector до появления {@link TagRuleValidator}.
+     */
+    private static boolean isTypeMismatchByRule(TagRule rule, String value){
+        if (Long.class.getTypeName().equals(rule.getType())){
+            try {
+                Long.parseLong(value);
+                return false;
+            } catch (NumberFormatException e) {
+                return true;
+            }
+        }
+        if (Double.class.getTypeName().equals(rule.getType())){
+            try {
+                Double.parseDouble(value);
+                return false;
+            } catch (NumberFormatException e) {
+                return true;
+            }
+        }
+        if (Boolean.class.getTypeName().equals(rule.getType())){
+            return !List.of("0", "1").contains(value);
+        }
+        if (Date.class.getTypeName().equals(rule.getType())){
+            return !isDateByFormatters(value);
+        }
+        return false;
+    }
+
+    private static boolean isNotAvailableByRule(TagRule rule, String value){
+        List<String> availableValues = rule.getAvailableValues().stream().map(AvailableValue::getValue).toList();
+        return !rule.getAvailableValues().isEmpty() && !availableValues.contains(value);
+    }
+
+    private static boolean isDateByFormatters(String value){
+        for (String pattern : Utils.DATE_TIME_PATTERNS) {
+            try {
+                LocalDateTime.parse(value, DateTimeFormatter.ofPattern(pattern));
+                return true;
+            } catch (DateTimeParseException ignored) {}
+        }
+        for (String pattern : Utils.DATE_PATTERNS) {
+            try {
+                LocalDate.parse(value, DateTimeFormatter.ofPattern(pattern));
+                return true;
+            } catch (DateTimeParseException ignored) {}
+        }
+        return false;
+    }
+
+    private static TagRule rule(String type, int maxLength, boolean required){
+        TagRule rule = new TagRule("tag");
+        rule.setType(type);
+        rule.setMaxLength(maxLength);
+        rule.setRequired(required);
+        return rule;
+    }
+
+}